@@ -0,0 +1,103 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar;
+
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.database.PositionBatchWriter;
+
+import jakarta.annotation.Nullable;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+@Singleton
+public class BackpressureManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BackpressureManager.class);
+
+    private final ServerManager serverManager;
+    private final OverloadManager overloadManager;
+    private final PositionForwardingHandler positionForwardingHandler;
+    private final ProcessingExecutor processingExecutor;
+    private final PositionBatchWriter positionBatchWriter;
+    private final HikariPoolMXBean poolMXBean;
+
+    private final int highWatermark;
+    private final int lowWatermark;
+
+    private volatile boolean paused;
+
+    @Inject
+    public BackpressureManager(
+            Config config, ServerManager serverManager, OverloadManager overloadManager,
+            PositionForwardingHandler positionForwardingHandler, @Nullable HikariPoolMXBean poolMXBean,
+            @Nullable ProcessingExecutor processingExecutor, @Nullable PositionBatchWriter positionBatchWriter) {
+        this.serverManager = serverManager;
+        this.overloadManager = overloadManager;
+        this.positionForwardingHandler = positionForwardingHandler;
+        this.processingExecutor = processingExecutor;
+        this.positionBatchWriter = positionBatchWriter;
+        this.poolMXBean = poolMXBean;
+
+        highWatermark = config.getInteger(Keys.SERVER_BACKPRESSURE_HIGH);
+        lowWatermark = config.getInteger(Keys.SERVER_BACKPRESSURE_LOW, highWatermark / 2);
+    }
+
+    public boolean isEnabled() {
+        return highWatermark > 0 || overloadManager.isEnabled();
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public int getBacklog() {
+        int backlog = positionForwardingHandler.getDeliveryPending();
+        if (processingExecutor != null) {
+            backlog += processingExecutor.getQueueSize();
+        }
+        if (positionBatchWriter != null) {
+            backlog += positionBatchWriter.getPendingCount();
+        }
+        if (poolMXBean != null) {
+            backlog += poolMXBean.getThreadsAwaitingConnection();
+        }
+        return backlog;
+    }
+
+    public synchronized void check() {
+        int backlog = getBacklog();
+        if (overloadManager.isEnabled()) {
+            overloadManager.update(backlog);
+        }
+        if (highWatermark <= 0) {
+            return;
+        }
+        if (!paused && backlog >= highWatermark) {
+            paused = true;
+            LOGGER.warn("Backlog {} reached high watermark, pausing reads", backlog);
+            serverManager.setAutoRead(false);
+        } else if (paused && backlog <= lowWatermark) {
+            paused = false;
+            LOGGER.info("Backlog {} dropped below low watermark, resuming reads", backlog);
+            serverManager.setAutoRead(true);
+        }
+    }
+
+}
@@ -23,8 +23,10 @@ import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOutboundHandler;
 import io.netty.channel.ChannelPipeline;
 import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.concurrent.EventExecutorGroup;
 import org.traccar.config.Config;
 import org.traccar.config.Keys;
+import org.traccar.database.LatencyManager;
 import org.traccar.handler.AcknowledgementHandler;
 import org.traccar.handler.ComputedAttributesHandler;
 import org.traccar.handler.CopyAttributesHandler;
@@ -40,6 +42,7 @@ import org.traccar.handler.MotionHandler;
 import org.traccar.handler.NetworkForwarderHandler;
 import org.traccar.handler.NetworkMessageHandler;
 import org.traccar.handler.OpenChannelHandler;
+import org.traccar.handler.ProcessingHandler;
 import org.traccar.handler.RemoteAddressHandler;
 import org.traccar.handler.SpeedLimitHandler;
 import org.traccar.handler.StandardLoggingHandler;
@@ -55,16 +58,28 @@ import org.traccar.handler.events.MaintenanceEventHandler;
 import org.traccar.handler.events.MediaEventHandler;
 import org.traccar.handler.events.MotionEventHandler;
 import org.traccar.handler.events.OverspeedEventHandler;
+import org.traccar.helper.LatencyHistogram;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 public abstract class BasePipelineFactory extends ChannelInitializer<Channel> {
 
+    private static final Map<Class<? extends ChannelHandler>, String> OPTIONAL_STAGES = Map.of(
+            GeolocationHandler.class, OverloadManager.STAGE_GEOLOCATION,
+            GeocoderHandler.class, OverloadManager.STAGE_GEOCODER,
+            SpeedLimitHandler.class, OverloadManager.STAGE_SPEED_LIMIT,
+            ComputedAttributesHandler.class, OverloadManager.STAGE_COMPUTED_ATTRIBUTES);
+
     private final Injector injector;
     private final TrackerConnector connector;
     private final Config config;
     private final String protocol;
     private final int timeout;
+    private final ProcessingExecutor processingExecutor;
+    private final OverloadManager overloadManager;
+    private final LatencyManager latencyManager;
 
     public BasePipelineFactory(TrackerConnector connector, Config config, String protocol) {
         this.injector = Main.getInjector();
@@ -77,27 +92,77 @@ public abstract class BasePipelineFactory extends ChannelInitializer<Channel> {
         } else {
             this.timeout = timeout;
         }
+        processingExecutor = injector.getInstance(ProcessingExecutor.class);
+        overloadManager = injector.getInstance(OverloadManager.class);
+        latencyManager = injector.getInstance(LatencyManager.class);
     }
 
     protected abstract void addTransportHandlers(PipelineBuilder pipeline);
 
     protected abstract void addProtocolHandlers(PipelineBuilder pipeline);
 
+    private boolean isParallel() {
+        return processingExecutor != null && connector.isDatagram()
+                && config.getBoolean(Keys.PROTOCOL_PARALLEL.withPrefix(protocol));
+    }
+
+    /**
+     * Parallel decoding shares one set of protocol handlers between processing threads, so each of them has to be
+     * marked as sharable.
+     */
+    public void checkParallel() {
+        if (isParallel()) {
+            List<String> unsafe = new ArrayList<>();
+            addProtocolHandlers(handler -> {
+                if (!handler.getClass().isAnnotationPresent(ChannelHandler.Sharable.class)) {
+                    unsafe.add(handler.getClass().getSimpleName());
+                }
+            });
+            if (!unsafe.isEmpty()) {
+                throw new IllegalStateException(
+                        "Parallel decoding for " + protocol + " is not supported by " + String.join(", ", unsafe));
+            }
+        }
+    }
+
     @SafeVarargs
-    private void addHandlers(ChannelPipeline pipeline, Class<? extends ChannelHandler>... handlerClasses) {
+    private void addHandlers(
+            ChannelPipeline pipeline, EventExecutorGroup group, Class<? extends ChannelHandler>... handlerClasses) {
+        List<ChannelHandler> handlers = new ArrayList<>();
+        List<String> stages = new ArrayList<>();
         for (Class<? extends ChannelHandler> handlerClass : handlerClasses) {
             if (handlerClass != null) {
-                pipeline.addLast(injector.getInstance(handlerClass));
+                ChannelHandler handler = injector.getInstance(handlerClass);
+                String stage = OPTIONAL_STAGES.get(handlerClass);
+                if (handler != null && stage != null && overloadManager.isOptional(stage)) {
+                    handler = new OptionalInboundHandler((ChannelInboundHandler) handler, overloadManager, stage);
+                }
+                if (handler != null) {
+                    handlers.add(handler);
+                    stages.add(handlerClass.getSimpleName());
+                }
             }
         }
+        LatencyHistogram previousHistogram = null;
+        for (int i = 0; i < handlers.size(); i++) {
+            ChannelHandler handler = handlers.get(i);
+            if (latencyManager.isEnabled()) {
+                LatencyHistogram histogram = latencyManager.getHistogram(protocol, stages.get(i));
+                handler = new TracingInboundHandler(
+                        (ChannelInboundHandler) handler, previousHistogram, histogram, i == handlers.size() - 1);
+                previousHistogram = histogram;
+            }
+            pipeline.addLast(group, handler);
+        }
     }
 
     public static <T extends ChannelHandler> T getHandler(ChannelPipeline pipeline, Class<T> clazz) {
         for (Map.Entry<String, ChannelHandler> handlerEntry : pipeline) {
             ChannelHandler handler = handlerEntry.getValue();
-            if (handler instanceof WrapperInboundHandler) {
+            while (handler instanceof WrapperInboundHandler) {
                 handler = ((WrapperInboundHandler) handler).getWrappedHandler();
-            } else if (handler instanceof WrapperOutboundHandler) {
+            }
+            if (handler instanceof WrapperOutboundHandler) {
                 handler = ((WrapperOutboundHandler) handler).getWrappedHandler();
             }
             if (clazz.isAssignableFrom(handler.getClass())) {
@@ -111,24 +176,35 @@ public abstract class BasePipelineFactory extends ChannelInitializer<Channel> {
     protected void initChannel(Channel channel) {
         final ChannelPipeline pipeline = channel.pipeline();
 
+        if (!connector.isDatagram() && injector.getInstance(BackpressureManager.class).isPaused()) {
+            channel.config().setAutoRead(false);
+        }
+
         addTransportHandlers(pipeline::addLast);
 
+        EventExecutorGroup decoderGroup = null;
+        if (isParallel()) {
+            decoderGroup = processingExecutor;
+            pipeline.addLast(new ProcessingHandler(processingExecutor));
+        }
+
         if (timeout > 0 && !connector.isDatagram()) {
             pipeline.addLast(new IdleStateHandler(timeout, 0, 0));
         }
-        pipeline.addLast(new OpenChannelHandler(connector));
+        pipeline.addLast(decoderGroup, new OpenChannelHandler(connector));
         if (config.hasKey(Keys.SERVER_FORWARD)) {
             int port = config.getInteger(Keys.PROTOCOL_PORT.withPrefix(protocol));
             var handler = new NetworkForwarderHandler(port);
             injector.injectMembers(handler);
-            pipeline.addLast(handler);
+            pipeline.addLast(decoderGroup, handler);
         }
-        pipeline.addLast(new NetworkMessageHandler());
-        pipeline.addLast(new StandardLoggingHandler(protocol));
+        pipeline.addLast(decoderGroup, new NetworkMessageHandler());
+        pipeline.addLast(decoderGroup, new StandardLoggingHandler(protocol));
         if (!connector.isDatagram() && !config.getBoolean(Keys.SERVER_INSTANT_ACKNOWLEDGEMENT)) {
             pipeline.addLast(new AcknowledgementHandler());
         }
 
+        final EventExecutorGroup protocolGroup = decoderGroup;
         addProtocolHandlers(handler -> {
             if (handler instanceof BaseProtocolDecoder || handler instanceof BaseProtocolEncoder) {
                 injector.injectMembers(handler);
@@ -139,11 +215,16 @@ public abstract class BasePipelineFactory extends ChannelInitializer<Channel> {
                     handler = new WrapperOutboundHandler((ChannelOutboundHandler) handler);
                 }
             }
-            pipeline.addLast(handler);
+            pipeline.addLast(protocolGroup, handler);
         });
 
+        if (processingExecutor != null) {
+            pipeline.addLast(decoderGroup, new ProcessingHandler(processingExecutor));
+        }
+
         addHandlers(
                 pipeline,
+                processingExecutor,
                 TimeHandler.class,
                 GeolocationHandler.class,
                 HemisphereHandler.class,
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012 - 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2012 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -97,6 +97,14 @@ public abstract class BaseProtocolDecoder extends ExtendedObjectDecoder {
         return protocol != null ? protocol.getName() : PROTOCOL_UNKNOWN;
     }
 
+    /**
+     * Device identifier read from a raw datagram without decoding it. Parallel decoding uses it to keep messages of a
+     * device on one processing thread even if its address changes.
+     */
+    public String getDatagramUniqueId(ByteBuf buf) {
+        return null;
+    }
+
     public String getServer(Channel channel, char delimiter) {
         String server = getConfig().getString(Keys.PROTOCOL_SERVER.withPrefix(getProtocolName()));
         if (server == null && channel != null) {
@@ -171,7 +179,7 @@ public abstract class BaseProtocolDecoder extends ExtendedObjectDecoder {
     protected void onMessageEvent(
             Channel channel, SocketAddress remoteAddress, Object originalMessage, Object decodedMessage) {
         if (statisticsManager != null) {
-            statisticsManager.registerMessageReceived();
+            statisticsManager.registerMessageReceived(getProtocolName());
         }
         Set<Long> deviceIds = new HashSet<>();
         if (decodedMessage != null) {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012 - 2018 Anton Tananaev (anton@traccar.org)
+ * Copyright 2012 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,23 +15,79 @@
  */
 package org.traccar;
 
+import io.netty.channel.Channel;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
 
 public final class EventLoopGroupFactory {
 
-    private static EventLoopGroup bossGroup = new NioEventLoopGroup();
-    private static EventLoopGroup workerGroup = new NioEventLoopGroup();
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventLoopGroupFactory.class);
+
+    private static boolean epoll;
+    private static EventLoopGroup bossGroup;
+    private static EventLoopGroup workerGroup;
 
     private EventLoopGroupFactory() {
     }
 
-    public static EventLoopGroup getBossGroup() {
+    public static synchronized void init(Config config) {
+        if (config.getBoolean(Keys.SERVER_EPOLL)) {
+            if (Epoll.isAvailable()) {
+                epoll = true;
+            } else {
+                LOGGER.warn("Epoll transport is not available", Epoll.unavailabilityCause());
+            }
+        }
+        bossGroup = createGroup(config.getInteger(Keys.SERVER_BOSS_THREADS));
+        workerGroup = createGroup(config.getInteger(Keys.SERVER_WORKER_THREADS));
+    }
+
+    private static EventLoopGroup createGroup(int threads) {
+        return epoll ? new EpollEventLoopGroup(threads) : new NioEventLoopGroup(threads);
+    }
+
+    public static boolean isEpoll() {
+        return epoll;
+    }
+
+    public static synchronized EventLoopGroup getBossGroup() {
+        if (bossGroup == null) {
+            bossGroup = createGroup(0);
+        }
         return bossGroup;
     }
 
-    public static EventLoopGroup getWorkerGroup() {
+    public static synchronized EventLoopGroup getWorkerGroup() {
+        if (workerGroup == null) {
+            workerGroup = createGroup(0);
+        }
         return workerGroup;
     }
 
+    public static Class<? extends ServerChannel> getServerChannelClass() {
+        return epoll ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+    }
+
+    public static Class<? extends Channel> getSocketChannelClass() {
+        return epoll ? EpollSocketChannel.class : NioSocketChannel.class;
+    }
+
+    public static Class<? extends DatagramChannel> getDatagramChannelClass() {
+        return epoll ? EpollDatagramChannel.class : NioDatagramChannel.class;
+    }
+
 }
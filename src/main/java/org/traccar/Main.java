@@ -1,5 +1,5 @@
 /*
- * Copyright 2012 - 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2012 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,8 +20,14 @@ import com.google.inject.Injector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.traccar.broadcast.BroadcastService;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.database.PositionBatchWriter;
+import org.traccar.geocoder.GeocoderCache;
 import org.traccar.helper.model.DeviceUtil;
 import org.traccar.schedule.ScheduleManager;
+import org.traccar.session.ConnectionManager;
+import org.traccar.session.cache.CacheManager;
 import org.traccar.storage.DatabaseModule;
 import org.traccar.storage.Storage;
 import org.traccar.web.WebModule;
@@ -118,6 +124,7 @@ public final class Main {
     public static void run(String configFile) {
         try {
             injector = Guice.createInjector(new MainModule(configFile), new DatabaseModule(), new WebModule());
+            EventLoopGroupFactory.init(injector.getInstance(Config.class));
             logSystemInfo();
             LOGGER.info("Version: " + Main.class.getPackage().getImplementationVersion());
             LOGGER.info("Starting server...");
@@ -126,8 +133,14 @@ public final class Main {
                 DeviceUtil.resetStatus(injector.getInstance(Storage.class));
             }
 
+            Config config = injector.getInstance(Config.class);
+            if (config.getBoolean(Keys.DATABASE_PRELOAD)) {
+                injector.getInstance(CacheManager.class).preload(config.getLong(Keys.DATABASE_PRELOAD_PERIOD));
+            }
+
             var services = Stream.of(
-                    ServerManager.class, WebServer.class, ScheduleManager.class, BroadcastService.class)
+                    ServerManager.class, WebServer.class, ScheduleManager.class, BroadcastService.class,
+                    PositionBatchWriter.class, GeocoderCache.class, ConnectionManager.class)
                     .map(injector::getInstance)
                     .filter(Objects::nonNull)
                     .collect(Collectors.toList());
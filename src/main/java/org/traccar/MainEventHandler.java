@@ -26,6 +26,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.traccar.config.Config;
 import org.traccar.config.Keys;
+import org.traccar.database.LatencyManager;
 import org.traccar.database.StatisticsManager;
 import org.traccar.handler.AcknowledgementHandler;
 import org.traccar.helper.DateUtil;
@@ -61,15 +62,19 @@ public class MainEventHandler extends ChannelInboundHandlerAdapter {
     private final Storage storage;
     private final ConnectionManager connectionManager;
     private final StatisticsManager statisticsManager;
+    private final OverloadManager overloadManager;
+    private final LatencyManager latencyManager;
 
     @Inject
     public MainEventHandler(
             Config config, CacheManager cacheManager, Storage storage, ConnectionManager connectionManager,
-            StatisticsManager statisticsManager) {
+            StatisticsManager statisticsManager, OverloadManager overloadManager, LatencyManager latencyManager) {
         this.cacheManager = cacheManager;
         this.storage = storage;
         this.connectionManager = connectionManager;
         this.statisticsManager = statisticsManager;
+        this.overloadManager = overloadManager;
+        this.latencyManager = latencyManager;
         String connectionlessProtocolList = config.getString(Keys.STATUS_IGNORE_OFFLINE);
         if (connectionlessProtocolList != null) {
             connectionlessProtocols.addAll(Arrays.asList(connectionlessProtocolList.split("[, ]")));
@@ -146,6 +151,8 @@ public class MainEventHandler extends ChannelInboundHandlerAdapter {
             LOGGER.info(builder.toString());
 
             statisticsManager.registerMessageStored(position.getDeviceId(), position.getProtocol());
+            overloadManager.registerLatency(System.currentTimeMillis() - position.getServerTime().getTime());
+            latencyManager.registerSinceDecode(position, LatencyManager.STAGE_TOTAL);
 
             ctx.writeAndFlush(new AcknowledgementHandler.EventHandled(position));
         }
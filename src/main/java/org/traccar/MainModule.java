@@ -23,6 +23,8 @@ import com.google.inject.Injector;
 import com.google.inject.Provides;
 import com.google.inject.Scopes;
 import com.google.inject.name.Names;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import io.netty.util.HashedWheelTimer;
 import io.netty.util.Timer;
 import org.apache.velocity.app.VelocityEngine;
@@ -34,6 +36,7 @@ import org.traccar.config.Config;
 import org.traccar.config.Keys;
 import org.traccar.database.LdapProvider;
 import org.traccar.database.OpenIdProvider;
+import org.traccar.database.PositionBatchWriter;
 import org.traccar.database.StatisticsManager;
 import org.traccar.forward.EventForwarder;
 import org.traccar.forward.EventForwarderJson;
@@ -54,9 +57,13 @@ import org.traccar.geocoder.GeoapifyGeocoder;
 import org.traccar.geocoder.GeocodeFarmGeocoder;
 import org.traccar.geocoder.GeocodeXyzGeocoder;
 import org.traccar.geocoder.Geocoder;
+import org.traccar.geocoder.GeocoderCache;
 import org.traccar.geocoder.GisgraphyGeocoder;
 import org.traccar.geocoder.GoogleGeocoder;
 import org.traccar.geocoder.HereGeocoder;
+import org.traccar.geocoder.JsonGeocoder;
+import org.traccar.geocoder.LimitedGeocoder;
+import org.traccar.geocoder.LocalGeocoder;
 import org.traccar.geocoder.LocationIqGeocoder;
 import org.traccar.geocoder.MapQuestGeocoder;
 import org.traccar.geocoder.MapTilerGeocoder;
@@ -69,6 +76,7 @@ import org.traccar.geocoder.TestGeocoder;
 import org.traccar.geocoder.TomTomGeocoder;
 import org.traccar.geolocation.GeolocationProvider;
 import org.traccar.geolocation.GoogleGeolocationProvider;
+import org.traccar.geolocation.LimitedGeolocationProvider;
 import org.traccar.geolocation.MozillaGeolocationProvider;
 import org.traccar.geolocation.OpenCellIdGeolocationProvider;
 import org.traccar.geolocation.UnwiredGeolocationProvider;
@@ -76,6 +84,7 @@ import org.traccar.handler.GeocoderHandler;
 import org.traccar.handler.GeolocationHandler;
 import org.traccar.handler.SpeedLimitHandler;
 import org.traccar.helper.ObjectMapperContextResolver;
+import org.traccar.helper.RequestLimiter;
 import org.traccar.helper.SanitizerModule;
 import org.traccar.helper.WebHelper;
 import org.traccar.mail.LogMailManager;
@@ -85,6 +94,7 @@ import org.traccar.session.cache.CacheManager;
 import org.traccar.sms.HttpSmsClient;
 import org.traccar.sms.SmsManager;
 import org.traccar.sms.SnsSmsClient;
+import org.traccar.speedlimit.LimitedSpeedLimitProvider;
 import org.traccar.speedlimit.OverpassSpeedLimitProvider;
 import org.traccar.speedlimit.SpeedLimitProvider;
 import org.traccar.storage.DatabaseStorage;
@@ -97,6 +107,7 @@ import jakarta.annotation.Nullable;
 import jakarta.inject.Singleton;
 import jakarta.ws.rs.client.Client;
 import jakarta.ws.rs.client.ClientBuilder;
+import javax.sql.DataSource;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.http.HttpClient;
@@ -127,6 +138,37 @@ public class MainModule extends AbstractModule {
         }
     }
 
+    @Singleton
+    @Provides
+    public static PositionBatchWriter providePositionBatchWriter(Config config, Storage storage) {
+        if (config.getBoolean(Keys.DATABASE_BATCH_ENABLE)) {
+            return new PositionBatchWriter(config, storage);
+        }
+        return null;
+    }
+
+    @Singleton
+    @Provides
+    public static HikariPoolMXBean provideHikariPoolMXBean(Config config, Injector injector) {
+        if (!config.getBoolean(Keys.DATABASE_MEMORY)) {
+            DataSource dataSource = injector.getInstance(DataSource.class);
+            if (dataSource instanceof HikariDataSource) {
+                return ((HikariDataSource) dataSource).getHikariPoolMXBean();
+            }
+        }
+        return null;
+    }
+
+    @Singleton
+    @Provides
+    public static ProcessingExecutor provideProcessingExecutor(Config config) {
+        int threads = config.getInteger(Keys.SERVER_PROCESSING_THREADS);
+        if (threads > 0) {
+            return new ProcessingExecutor(threads, config.getInteger(Keys.SERVER_PROCESSING_QUEUE_SIZE));
+        }
+        return null;
+    }
+
     @Singleton
     @Provides
     public static ObjectMapper provideObjectMapper(Config config) {
@@ -196,7 +238,20 @@ public class MainModule extends AbstractModule {
 
     @Singleton
     @Provides
-    public static Geocoder provideGeocoder(Config config, Client client, StatisticsManager statisticsManager) {
+    public static GeocoderCache provideGeocoderCache(Config config) {
+        String type = config.getString(Keys.GEOCODER_TYPE, "google");
+        if (config.getBoolean(Keys.GEOCODER_ENABLE) && config.getInteger(Keys.GEOCODER_CACHE_SIZE) > 0
+                && !type.equals("local") && !type.equals("test")) {
+            return new GeocoderCache(config);
+        }
+        return null;
+    }
+
+    @Singleton
+    @Provides
+    public static Geocoder provideGeocoder(
+            Config config, Client client, Timer timer, StatisticsManager statisticsManager,
+            @Nullable GeocoderCache geocoderCache) {
         if (config.getBoolean(Keys.GEOCODER_ENABLE)) {
             String type = config.getString(Keys.GEOCODER_TYPE, "google");
             String url = config.getString(Keys.GEOCODER_URL);
@@ -205,68 +260,85 @@ public class MainModule extends AbstractModule {
             String formatString = config.getString(Keys.GEOCODER_FORMAT);
             AddressFormat addressFormat = formatString != null ? new AddressFormat(formatString) : new AddressFormat();
 
-            int cacheSize = config.getInteger(Keys.GEOCODER_CACHE_SIZE);
             Geocoder geocoder;
             switch (type) {
                 case "test":
                     geocoder = new TestGeocoder();
                     break;
+                case "local":
+                    try {
+                        geocoder = new LocalGeocoder(
+                                config.getString(Keys.GEOCODER_FILE), config.getDouble(Keys.GEOCODER_MAX_DISTANCE),
+                                addressFormat);
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                    break;
                 case "nominatim":
-                    geocoder = new NominatimGeocoder(client, url, key, language, cacheSize, addressFormat);
+                    geocoder = new NominatimGeocoder(client, url, key, language, addressFormat);
                     break;
                 case "locationiq":
-                    geocoder = new LocationIqGeocoder(client, url, key, language, cacheSize, addressFormat);
+                    geocoder = new LocationIqGeocoder(client, url, key, language, addressFormat);
                     break;
                 case "gisgraphy":
-                    geocoder = new GisgraphyGeocoder(client, url, cacheSize, addressFormat);
+                    geocoder = new GisgraphyGeocoder(client, url, addressFormat);
                     break;
                 case "mapquest":
-                    geocoder = new MapQuestGeocoder(client, url, key, cacheSize, addressFormat);
+                    geocoder = new MapQuestGeocoder(client, url, key, addressFormat);
                     break;
                 case "opencage":
-                    geocoder = new OpenCageGeocoder(client, url, key, language, cacheSize, addressFormat);
+                    geocoder = new OpenCageGeocoder(client, url, key, language, addressFormat);
                     break;
                 case "bingmaps":
-                    geocoder = new BingMapsGeocoder(client, url, key, cacheSize, addressFormat);
+                    geocoder = new BingMapsGeocoder(client, url, key, addressFormat);
                     break;
                 case "factual":
-                    geocoder = new FactualGeocoder(client, url, key, cacheSize, addressFormat);
+                    geocoder = new FactualGeocoder(client, url, key, addressFormat);
                     break;
                 case "geocodefarm":
-                    geocoder = new GeocodeFarmGeocoder(client, key, language, cacheSize, addressFormat);
+                    geocoder = new GeocodeFarmGeocoder(client, key, language, addressFormat);
                     break;
                 case "geocodexyz":
-                    geocoder = new GeocodeXyzGeocoder(client, key, cacheSize, addressFormat);
+                    geocoder = new GeocodeXyzGeocoder(client, key, addressFormat);
                     break;
                 case "ban":
-                    geocoder = new BanGeocoder(client, cacheSize, addressFormat);
+                    geocoder = new BanGeocoder(client, addressFormat);
                     break;
                 case "here":
-                    geocoder = new HereGeocoder(client, url, key, language, cacheSize, addressFormat);
+                    geocoder = new HereGeocoder(client, url, key, language, addressFormat);
                     break;
                 case "mapmyindia":
-                    geocoder = new MapmyIndiaGeocoder(client, url, key, cacheSize, addressFormat);
+                    geocoder = new MapmyIndiaGeocoder(client, url, key, addressFormat);
                     break;
                 case "tomtom":
-                    geocoder = new TomTomGeocoder(client, url, key, cacheSize, addressFormat);
+                    geocoder = new TomTomGeocoder(client, url, key, addressFormat);
                     break;
                 case "positionstack":
-                    geocoder = new PositionStackGeocoder(client, key, cacheSize, addressFormat);
+                    geocoder = new PositionStackGeocoder(client, key, addressFormat);
                     break;
                 case "mapbox":
-                    geocoder = new MapboxGeocoder(client, key, cacheSize, addressFormat);
+                    geocoder = new MapboxGeocoder(client, key, addressFormat);
                     break;
                 case "maptiler":
-                    geocoder = new MapTilerGeocoder(client, key, cacheSize, addressFormat);
+                    geocoder = new MapTilerGeocoder(client, key, addressFormat);
                     break;
                 case "geoapify":
-                    geocoder = new GeoapifyGeocoder(client, key, language, cacheSize, addressFormat);
+                    geocoder = new GeoapifyGeocoder(client, key, language, addressFormat);
                     break;
                 default:
-                    geocoder = new GoogleGeocoder(client, key, language, cacheSize, addressFormat);
+                    geocoder = new GoogleGeocoder(client, key, language, addressFormat);
                     break;
             }
             geocoder.setStatisticsManager(statisticsManager);
+            if (geocoder instanceof JsonGeocoder) {
+                JsonGeocoder jsonGeocoder = (JsonGeocoder) geocoder;
+                if (geocoderCache != null) {
+                    jsonGeocoder.setCache(geocoderCache);
+                }
+                return new LimitedGeocoder(jsonGeocoder, new RequestLimiter<>(
+                        timer, config.getInteger(Keys.GEOCODER_CONCURRENCY),
+                        config.getInteger(Keys.GEOCODER_QUEUE_SIZE), config.getDouble(Keys.GEOCODER_RATE_LIMIT)));
+            }
             return geocoder;
         }
         return null;
@@ -274,36 +346,49 @@ public class MainModule extends AbstractModule {
 
     @Singleton
     @Provides
-    public static GeolocationProvider provideGeolocationProvider(Config config, Client client) {
+    public static GeolocationProvider provideGeolocationProvider(Config config, Client client, Timer timer) {
         if (config.getBoolean(Keys.GEOLOCATION_ENABLE)) {
             String type = config.getString(Keys.GEOLOCATION_TYPE, "mozilla");
             String url = config.getString(Keys.GEOLOCATION_URL);
             String key = config.getString(Keys.GEOLOCATION_KEY);
+            GeolocationProvider geolocationProvider;
             switch (type) {
                 case "google":
-                    return new GoogleGeolocationProvider(client, key);
+                    geolocationProvider = new GoogleGeolocationProvider(client, key);
+                    break;
                 case "opencellid":
-                    return new OpenCellIdGeolocationProvider(client, url, key);
+                    geolocationProvider = new OpenCellIdGeolocationProvider(client, url, key);
+                    break;
                 case "unwired":
-                    return new UnwiredGeolocationProvider(client, url, key);
+                    geolocationProvider = new UnwiredGeolocationProvider(client, url, key);
+                    break;
                 default:
-                    return new MozillaGeolocationProvider(client, key);
+                    geolocationProvider = new MozillaGeolocationProvider(client, key);
+                    break;
             }
+            return new LimitedGeolocationProvider(geolocationProvider, new RequestLimiter<>(
+                    timer, config.getInteger(Keys.GEOLOCATION_CONCURRENCY),
+                    config.getInteger(Keys.GEOLOCATION_QUEUE_SIZE), config.getDouble(Keys.GEOLOCATION_RATE_LIMIT)));
         }
         return null;
     }
 
     @Singleton
     @Provides
-    public static SpeedLimitProvider provideSpeedLimitProvider(Config config, Client client) {
+    public static SpeedLimitProvider provideSpeedLimitProvider(Config config, Client client, Timer timer) {
         if (config.getBoolean(Keys.SPEED_LIMIT_ENABLE)) {
             String type = config.getString(Keys.SPEED_LIMIT_TYPE, "overpass");
             String url = config.getString(Keys.SPEED_LIMIT_URL);
+            SpeedLimitProvider speedLimitProvider;
             switch (type) {
                 case "overpass":
                 default:
-                    return new OverpassSpeedLimitProvider(config, client, url);
+                    speedLimitProvider = new OverpassSpeedLimitProvider(config, client, url);
+                    break;
             }
+            return new LimitedSpeedLimitProvider(speedLimitProvider, new RequestLimiter<>(
+                    timer, config.getInteger(Keys.SPEED_LIMIT_CONCURRENCY),
+                    config.getInteger(Keys.SPEED_LIMIT_QUEUE_SIZE), config.getDouble(Keys.SPEED_LIMIT_RATE_LIMIT)));
         }
         return null;
     }
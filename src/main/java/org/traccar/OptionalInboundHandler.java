@@ -0,0 +1,43 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandler;
+import org.traccar.model.Position;
+
+public class OptionalInboundHandler extends WrapperInboundHandler {
+
+    private final OverloadManager overloadManager;
+    private final String stage;
+
+    public OptionalInboundHandler(ChannelInboundHandler handler, OverloadManager overloadManager, String stage) {
+        super(handler);
+        this.overloadManager = overloadManager;
+        this.stage = stage;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof Position && overloadManager.isShedding(stage)) {
+            overloadManager.markBypassed((Position) msg, stage);
+            ctx.fireChannelRead(msg);
+        } else {
+            super.channelRead(ctx, msg);
+        }
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.model.OverloadState;
+import org.traccar.model.Position;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+@Singleton
+public class OverloadManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OverloadManager.class);
+
+    public static final String STAGE_GEOCODER = "geocoder";
+    public static final String STAGE_GEOLOCATION = "geolocation";
+    public static final String STAGE_SPEED_LIMIT = "speedLimit";
+    public static final String STAGE_COMPUTED_ATTRIBUTES = "computedAttributes";
+    public static final String STAGE_FORWARD_RETRY = "forwardRetry";
+
+    private final Set<String> stages = new HashSet<>();
+    private final long latencyThreshold;
+    private final int backlogThreshold;
+
+    private final LongAdder latencySum = new LongAdder();
+    private final LongAdder latencyCount = new LongAdder();
+
+    private volatile boolean shedding;
+    private volatile long latency;
+    private volatile int backlog;
+
+    @Inject
+    public OverloadManager(Config config) {
+        String stageList = config.getString(Keys.SERVER_OVERLOAD_STAGES);
+        if (stageList != null) {
+            stages.addAll(Arrays.asList(stageList.split("[, ]")));
+        }
+        latencyThreshold = config.getLong(Keys.SERVER_OVERLOAD_LATENCY);
+        backlogThreshold = config.getInteger(Keys.SERVER_OVERLOAD_BACKLOG);
+    }
+
+    public boolean isEnabled() {
+        return !stages.isEmpty() && (latencyThreshold > 0 || backlogThreshold > 0);
+    }
+
+    public boolean isOptional(String stage) {
+        return isEnabled() && stages.contains(stage);
+    }
+
+    public boolean isShedding(String stage) {
+        return shedding && stages.contains(stage);
+    }
+
+    public void registerLatency(long latency) {
+        latencySum.add(latency);
+        latencyCount.increment();
+    }
+
+    public void markBypassed(Position position, String stage) {
+        String bypassed = position.getString(Position.KEY_BYPASSED);
+        position.set(Position.KEY_BYPASSED, bypassed != null ? bypassed + "," + stage : stage);
+    }
+
+    public synchronized void update(int backlog) {
+        long count = latencyCount.sumThenReset();
+        long sum = latencySum.sumThenReset();
+        latency = count > 0 ? sum / count : 0;
+        this.backlog = backlog;
+
+        boolean overloaded = latencyThreshold > 0 && latency > latencyThreshold
+                || backlogThreshold > 0 && backlog > backlogThreshold;
+        boolean recovered = (latencyThreshold == 0 || latency <= latencyThreshold / 2)
+                && (backlogThreshold == 0 || backlog <= backlogThreshold / 2);
+
+        if (!shedding && overloaded) {
+            shedding = true;
+            LOGGER.warn("Overload detected (latency {} ms, backlog {}), bypassing {}", latency, backlog, stages);
+        } else if (shedding && recovered) {
+            shedding = false;
+            LOGGER.info("Overload cleared (latency {} ms, backlog {})", latency, backlog);
+        }
+    }
+
+    public OverloadState getState() {
+        OverloadState state = new OverloadState();
+        state.setShedding(shedding);
+        state.setLatency(latency);
+        state.setBacklog(backlog);
+        state.setStages(shedding ? Set.copyOf(stages) : Set.of());
+        return state;
+    }
+
+}
@@ -44,6 +44,7 @@ public class PositionForwardingHandler extends BaseDataHandler {
 
     private final CacheManager cacheManager;
     private final Timer timer;
+    private final OverloadManager overloadManager;
 
     private final PositionForwarder positionForwarder;
 
@@ -56,10 +57,12 @@ public class PositionForwardingHandler extends BaseDataHandler {
 
     @Inject
     public PositionForwardingHandler(
-            Config config, CacheManager cacheManager, Timer timer, @Nullable PositionForwarder positionForwarder) {
+            Config config, CacheManager cacheManager, Timer timer, OverloadManager overloadManager,
+            @Nullable PositionForwarder positionForwarder) {
 
         this.cacheManager = cacheManager;
         this.timer = timer;
+        this.overloadManager = overloadManager;
         this.positionForwarder = positionForwarder;
 
         this.retryEnabled = config.getBoolean(Keys.FORWARD_RETRY_ENABLE);
@@ -70,6 +73,10 @@ public class PositionForwardingHandler extends BaseDataHandler {
         this.deliveryPending = new AtomicInteger();
     }
 
+    public int getDeliveryPending() {
+        return deliveryPending.get();
+    }
+
     class AsyncRequestAndCallback implements ResultHandler, TimerTask {
 
         private final PositionData positionData;
@@ -88,7 +95,8 @@ public class PositionForwardingHandler extends BaseDataHandler {
         private void retry(Throwable throwable) {
             boolean scheduled = false;
             try {
-                if (retryEnabled && deliveryPending.get() <= retryLimit && retries < retryCount) {
+                if (retryEnabled && deliveryPending.get() <= retryLimit && retries < retryCount
+                        && !overloadManager.isShedding(OverloadManager.STAGE_FORWARD_RETRY)) {
                     schedule();
                     scheduled = true;
                 }
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.concurrent.AbstractEventExecutor;
+import io.netty.util.concurrent.DefaultPromise;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.concurrent.Promise;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.model.Position;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ProcessingExecutor extends AbstractEventExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProcessingExecutor.class);
+
+    private final int queueSize;
+    private final ThreadPoolExecutor[] workers;
+    private final Thread[] workerThreads;
+    private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger nextWorker = new AtomicInteger();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong overflowCount = new AtomicLong();
+    private final Promise<Void> terminationFuture = new DefaultPromise<>(GlobalEventExecutor.INSTANCE);
+
+    public ProcessingExecutor(int threadCount, int queueSize) {
+        this.queueSize = queueSize;
+        workers = new ThreadPoolExecutor[threadCount];
+        workerThreads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            int index = i;
+            String name = "processing-" + i;
+            workers[i] = new ThreadPoolExecutor(
+                    1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, name);
+                        threads.add(thread);
+                        workerThreads[index] = thread;
+                        return thread;
+                    },
+                    (runnable, executor) -> {
+                        throw new RejectedExecutionException("Processing threads are shut down");
+                    });
+        }
+    }
+
+    private void execute(ThreadPoolExecutor worker, Runnable task) {
+        worker.execute(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                LOGGER.warn("Processing task error", e);
+            }
+        });
+    }
+
+    /**
+     * Continuations of messages that were already accepted are always queued, even past the limit, because dropping
+     * them would lose a position that is partly processed.
+     */
+    private void executeContinuation(ThreadPoolExecutor worker, Runnable task) {
+        if (worker.getQueue().size() >= queueSize) {
+            overflowCount.incrementAndGet();
+        }
+        execute(worker, task);
+    }
+
+    /**
+     * Accept a new message for processing. The queue limit only applies here.
+     */
+    public void execute(long key, Runnable task) {
+        ThreadPoolExecutor worker = workers[Math.floorMod(key, workers.length)];
+        if (worker.getQueue().size() >= queueSize) {
+            rejectedCount.incrementAndGet();
+            throw new RejectedExecutionException("Processing queue is full");
+        }
+        execute(worker, task);
+    }
+
+    private void resume(long key, Runnable task) {
+        int index = Math.floorMod(key, workers.length);
+        if (Thread.currentThread() == workerThreads[index]) {
+            task.run();
+        } else {
+            executeContinuation(workers[index], task);
+        }
+    }
+
+    /**
+     * Continue processing of a position after an asynchronous stage on the worker that owns the device. Tasks that
+     * Netty submits without a key would be spread across workers and could overtake other positions of the device.
+     */
+    public static void fireChannelRead(ChannelHandlerContext ctx, Position position) {
+        if (ctx.executor() instanceof ProcessingExecutor) {
+            ((ProcessingExecutor) ctx.executor()).resume(position.getDeviceId(), () -> ctx.fireChannelRead(position));
+        } else {
+            ctx.fireChannelRead(position);
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        executeContinuation(workers[Math.floorMod(nextWorker.getAndIncrement(), workers.length)], task);
+    }
+
+    public int getQueueSize() {
+        int size = 0;
+        for (ThreadPoolExecutor worker : workers) {
+            size += worker.getQueue().size();
+        }
+        return size;
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    @Override
+    public boolean inEventLoop(Thread thread) {
+        return threads.contains(thread);
+    }
+
+    @Override
+    public boolean isShuttingDown() {
+        return isShutdown();
+    }
+
+    @Override
+    public Future<?> shutdownGracefully(long quietPeriod, long timeout, TimeUnit unit) {
+        shutdown();
+        return terminationFuture;
+    }
+
+    @Override
+    public Future<?> terminationFuture() {
+        return terminationFuture;
+    }
+
+    @Override
+    @Deprecated
+    public void shutdown() {
+        for (ThreadPoolExecutor worker : workers) {
+            worker.shutdown();
+        }
+        GlobalEventExecutor.INSTANCE.execute(() -> {
+            try {
+                while (!awaitTermination(1, TimeUnit.SECONDS)) {
+                    LOGGER.debug("Waiting for processing threads to finish");
+                }
+                terminationFuture.trySuccess(null);
+            } catch (InterruptedException e) {
+                terminationFuture.tryFailure(e);
+            }
+        });
+    }
+
+    @Override
+    public boolean isShutdown() {
+        for (ThreadPoolExecutor worker : workers) {
+            if (!worker.isShutdown()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        for (ThreadPoolExecutor worker : workers) {
+            if (!worker.isTerminated()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (ThreadPoolExecutor worker : workers) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || !worker.awaitTermination(remaining, TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
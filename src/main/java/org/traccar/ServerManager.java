@@ -16,6 +16,8 @@
 package org.traccar;
 
 import com.google.inject.Injector;
+import io.netty.channel.Channel;
+import io.netty.channel.socket.DatagramChannel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.traccar.config.Config;
@@ -67,6 +69,16 @@ public class ServerManager implements LifecycleObject {
         return protocolList.get(name);
     }
 
+    public void setAutoRead(boolean autoRead) {
+        for (TrackerConnector connector : connectorList) {
+            for (Channel channel : connector.getChannelGroup()) {
+                if (!(channel instanceof DatagramChannel)) {
+                    channel.config().setAutoRead(autoRead);
+                }
+            }
+        }
+    }
+
     @Override
     public void start() throws Exception {
         for (TrackerConnector connector: connectorList) {
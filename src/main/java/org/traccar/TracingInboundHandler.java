@@ -0,0 +1,56 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandler;
+import org.traccar.helper.LatencyHistogram;
+import org.traccar.model.Position;
+
+public class TracingInboundHandler extends WrapperInboundHandler {
+
+    private final LatencyHistogram previousHistogram;
+    private final LatencyHistogram histogram;
+    private final boolean last;
+
+    public TracingInboundHandler(
+            ChannelInboundHandler handler, LatencyHistogram previousHistogram, LatencyHistogram histogram,
+            boolean last) {
+        super(handler);
+        this.previousHistogram = previousHistogram;
+        this.histogram = histogram;
+        this.last = last;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof Position) {
+            Position position = (Position) msg;
+            long start = System.nanoTime();
+            if (previousHistogram != null && position.getStageTime() > 0) {
+                previousHistogram.record(start - position.getStageTime());
+            }
+            position.setStageTime(start);
+            super.channelRead(ctx, msg);
+            if (last) {
+                histogram.record(System.nanoTime() - start);
+            }
+        } else {
+            super.channelRead(ctx, msg);
+        }
+    }
+
+}
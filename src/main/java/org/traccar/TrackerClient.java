@@ -1,5 +1,5 @@
 /*
- * Copyright 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2022 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,7 +18,6 @@ package org.traccar;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.group.ChannelGroup;
 import io.netty.channel.group.DefaultChannelGroup;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.ssl.SslHandler;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.GenericFutureListener;
@@ -86,7 +85,7 @@ public abstract class TrackerClient implements TrackerConnector {
 
         bootstrap = new Bootstrap()
                 .group(EventLoopGroupFactory.getWorkerGroup())
-                .channel(NioSocketChannel.class)
+                .channel(EventLoopGroupFactory.getSocketChannelClass())
                 .handler(pipelineFactory);
     }
 
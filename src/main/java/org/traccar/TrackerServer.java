@@ -1,5 +1,5 @@
 /*
- * Copyright 2012 - 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2012 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,12 +19,13 @@ import io.netty.bootstrap.AbstractBootstrap;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.Channel;
+import io.netty.channel.epoll.EpollChannelOption;
 import io.netty.channel.group.ChannelGroup;
 import io.netty.channel.group.DefaultChannelGroup;
-import io.netty.channel.socket.nio.NioDatagramChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.ssl.SslHandler;
 import io.netty.util.concurrent.GlobalEventExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.traccar.config.Config;
 import org.traccar.config.Keys;
 
@@ -34,6 +35,8 @@ import java.net.InetSocketAddress;
 
 public abstract class TrackerServer implements TrackerConnector {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(TrackerServer.class);
+
     private final boolean datagram;
     private final boolean secure;
 
@@ -42,6 +45,9 @@ public abstract class TrackerServer implements TrackerConnector {
 
     private final int port;
     private final String address;
+    private final int sockets;
+
+    private final BasePipelineFactory pipelineFactory;
 
     private final ChannelGroup channelGroup = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
 
@@ -60,7 +66,14 @@ public abstract class TrackerServer implements TrackerConnector {
         address = config.getString(Keys.PROTOCOL_ADDRESS.withPrefix(protocol));
         port = config.getInteger(Keys.PROTOCOL_PORT.withPrefix(protocol));
 
-        BasePipelineFactory pipelineFactory = new BasePipelineFactory(this, config, protocol) {
+        int sockets = config.getInteger(Keys.PROTOCOL_SOCKETS.withPrefix(protocol), 1);
+        if (sockets > 1 && !EventLoopGroupFactory.isEpoll()) {
+            LOGGER.warn("Multiple sockets for {} require epoll transport", protocol);
+            sockets = 1;
+        }
+        this.sockets = sockets;
+
+        pipelineFactory = new BasePipelineFactory(this, config, protocol) {
             @Override
             protected void addTransportHandlers(PipelineBuilder pipeline) {
                 try {
@@ -83,14 +96,17 @@ public abstract class TrackerServer implements TrackerConnector {
         if (datagram) {
             bootstrap = new Bootstrap()
                     .group(EventLoopGroupFactory.getWorkerGroup())
-                    .channel(NioDatagramChannel.class)
+                    .channel(EventLoopGroupFactory.getDatagramChannelClass())
                     .handler(pipelineFactory);
         } else {
             bootstrap = new ServerBootstrap()
                     .group(EventLoopGroupFactory.getBossGroup(), EventLoopGroupFactory.getWorkerGroup())
-                    .channel(NioServerSocketChannel.class)
+                    .channel(EventLoopGroupFactory.getServerChannelClass())
                     .childHandler(pipelineFactory);
         }
+        if (sockets > 1) {
+            bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+        }
     }
 
     protected abstract void addProtocolHandlers(PipelineBuilder pipeline, Config config);
@@ -110,6 +126,8 @@ public abstract class TrackerServer implements TrackerConnector {
 
     @Override
     public void start() throws Exception {
+        pipelineFactory.checkParallel();
+
         InetSocketAddress endpoint;
         if (address == null) {
             endpoint = new InetSocketAddress(port);
@@ -117,9 +135,11 @@ public abstract class TrackerServer implements TrackerConnector {
             endpoint = new InetSocketAddress(address, port);
         }
 
-        Channel channel = bootstrap.bind(endpoint).syncUninterruptibly().channel();
-        if (channel != null) {
-            getChannelGroup().add(channel);
+        for (int i = 0; i < sockets; i++) {
+            Channel channel = bootstrap.bind(endpoint).syncUninterruptibly().channel();
+            if (channel != null) {
+                getChannelGroup().add(channel);
+            }
         }
     }
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2017 - 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2017 - 2023 Anton Tananaev (anton@traccar.org)
  * Copyright 2017 Andrey Kunitsyn (andrey@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
@@ -32,6 +32,7 @@ import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -67,14 +68,15 @@ public class PermissionsResource  extends BaseResource {
     public Response add(List<LinkedHashMap<String, Long>> entities) throws StorageException, ClassNotFoundException {
         permissionsService.checkRestriction(getUserId(), UserRestrictions::getReadonly);
         checkPermissionTypes(entities);
+        List<Permission> permissions = new ArrayList<>();
         for (LinkedHashMap<String, Long> entity: entities) {
             Permission permission = new Permission(entity);
             checkPermission(permission);
-            storage.addPermission(permission);
-            cacheManager.invalidatePermission(
-                    true,
-                    permission.getOwnerClass(), permission.getOwnerId(),
-                    permission.getPropertyClass(), permission.getPropertyId());
+            permissions.add(permission);
+        }
+        storage.addPermissions(permissions);
+        cacheManager.invalidatePermissions(true, permissions);
+        for (Permission permission : permissions) {
             LogAction.link(getUserId(),
                     permission.getOwnerClass(), permission.getOwnerId(),
                     permission.getPropertyClass(), permission.getPropertyId());
@@ -92,14 +94,15 @@ public class PermissionsResource  extends BaseResource {
     public Response remove(List<LinkedHashMap<String, Long>> entities) throws StorageException, ClassNotFoundException {
         permissionsService.checkRestriction(getUserId(), UserRestrictions::getReadonly);
         checkPermissionTypes(entities);
+        List<Permission> permissions = new ArrayList<>();
         for (LinkedHashMap<String, Long> entity: entities) {
             Permission permission = new Permission(entity);
             checkPermission(permission);
-            storage.removePermission(permission);
-            cacheManager.invalidatePermission(
-                    true,
-                    permission.getOwnerClass(), permission.getOwnerId(),
-                    permission.getPropertyClass(), permission.getPropertyId());
+            permissions.add(permission);
+        }
+        storage.removePermissions(permissions);
+        cacheManager.invalidatePermissions(true, permissions);
+        for (Permission permission : permissions) {
             LogAction.unlink(getUserId(),
                     permission.getOwnerClass(), permission.getOwnerId(),
                     permission.getPropertyClass(), permission.getPropertyId());
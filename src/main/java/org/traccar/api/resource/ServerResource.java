@@ -15,16 +15,20 @@
  */
 package org.traccar.api.resource;
 
+import org.traccar.OverloadManager;
 import org.traccar.api.BaseResource;
 import org.traccar.config.Config;
 import org.traccar.config.Keys;
+import org.traccar.database.LatencyManager;
 import org.traccar.database.OpenIdProvider;
 import org.traccar.geocoder.Geocoder;
 import org.traccar.helper.Log;
 import org.traccar.helper.LogAction;
 import org.traccar.helper.model.UserUtil;
 import org.traccar.mail.MailManager;
+import org.traccar.model.OverloadState;
 import org.traccar.model.Server;
+import org.traccar.model.StageLatency;
 import org.traccar.model.User;
 import org.traccar.session.cache.CacheManager;
 import org.traccar.sms.SmsManager;
@@ -82,6 +86,12 @@ public class ServerResource extends BaseResource {
     @Nullable
     private Geocoder geocoder;
 
+    @Inject
+    private OverloadManager overloadManager;
+
+    @Inject
+    private LatencyManager latencyManager;
+
     @PermitAll
     @GET
     public Server get() throws StorageException {
@@ -126,6 +136,20 @@ public class ServerResource extends BaseResource {
         }
     }
 
+    @Path("overload")
+    @GET
+    public OverloadState overload() throws StorageException {
+        permissionsService.checkAdmin(getUserId());
+        return overloadManager.getState();
+    }
+
+    @Path("latency")
+    @GET
+    public Collection<StageLatency> latency() throws StorageException {
+        permissionsService.checkAdmin(getUserId());
+        return latencyManager.getStatistics();
+    }
+
     @Path("timezones")
     @GET
     public Collection<String> timezones() {
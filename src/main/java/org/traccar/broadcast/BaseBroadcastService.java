@@ -15,7 +15,10 @@
  */
 package org.traccar.broadcast;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -27,6 +30,8 @@ import org.traccar.model.Position;
 
 public abstract class BaseBroadcastService implements BroadcastService {
 
+    private static final int PERMISSIONS_MESSAGE_SIZE = 100;
+
     private final Set<BroadcastInterface> listeners = new HashSet<>();
 
     @Override
@@ -85,6 +90,31 @@ public abstract class BaseBroadcastService implements BroadcastService {
         sendMessage(message);
     }
 
+    @Override
+    public void invalidatePermissions(boolean local, List<Permission> permissions) {
+        Map<String, List<Permission>> groups = new LinkedHashMap<>();
+        for (Permission permission : permissions) {
+            groups.computeIfAbsent(permission.getStorageName(), k -> new ArrayList<>()).add(permission);
+        }
+        for (List<Permission> group : groups.values()) {
+            for (int start = 0; start < group.size(); start += PERMISSIONS_MESSAGE_SIZE) {
+                var chunk = group.subList(start, Math.min(start + PERMISSIONS_MESSAGE_SIZE, group.size()));
+                List<Long> ownerIds = new ArrayList<>();
+                List<Long> propertyIds = new ArrayList<>();
+                for (Permission permission : chunk) {
+                    ownerIds.add(permission.getOwnerId());
+                    propertyIds.add(permission.getPropertyId());
+                }
+                Map<String, List<Long>> changes = new LinkedHashMap<>();
+                changes.put(Permission.getKey(chunk.get(0).getOwnerClass()), ownerIds);
+                changes.put(Permission.getKey(chunk.get(0).getPropertyClass()), propertyIds);
+                BroadcastMessage message = new BroadcastMessage();
+                message.setPermissions(changes);
+                sendMessage(message);
+            }
+        }
+    }
+
     protected abstract void sendMessage(BroadcastMessage message);
 
     protected void handleMessage(BroadcastMessage message) {
@@ -96,6 +126,17 @@ public abstract class BaseBroadcastService implements BroadcastService {
             listeners.forEach(listener -> listener.updateEvent(false, message.getUserId(), message.getEvent()));
         } else if (message.getCommandDeviceId() != null) {
             listeners.forEach(listener -> listener.updateCommand(false, message.getCommandDeviceId()));
+        } else if (message.getPermissions() != null && message.getPermissions().size() == 2) {
+            var iterator = message.getPermissions().entrySet().iterator();
+            var owners = iterator.next();
+            var properties = iterator.next();
+            List<Permission> permissions = new ArrayList<>();
+            for (int i = 0; i < owners.getValue().size(); i++) {
+                permissions.add(new Permission(
+                        Permission.getKeyClass(owners.getKey()), owners.getValue().get(i),
+                        Permission.getKeyClass(properties.getKey()), properties.getValue().get(i)));
+            }
+            listeners.forEach(listener -> listener.invalidatePermissions(false, permissions));
         } else if (message.getChanges() != null) {
             var iterator = message.getChanges().entrySet().iterator();
             if (iterator.hasNext()) {
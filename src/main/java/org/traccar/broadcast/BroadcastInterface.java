@@ -1,5 +1,5 @@
 /*
- * Copyright 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2022 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,8 +18,11 @@ package org.traccar.broadcast;
 import org.traccar.model.BaseModel;
 import org.traccar.model.Device;
 import org.traccar.model.Event;
+import org.traccar.model.Permission;
 import org.traccar.model.Position;
 
+import java.util.List;
+
 public interface BroadcastInterface {
 
     default void updateDevice(boolean local, Device device) {
@@ -42,4 +45,13 @@ public interface BroadcastInterface {
             Class<? extends BaseModel> clazz1, long id1,
             Class<? extends BaseModel> clazz2, long id2) {
     }
+
+    default void invalidatePermissions(boolean local, List<Permission> permissions) {
+        for (Permission permission : permissions) {
+            invalidatePermission(
+                    local,
+                    permission.getOwnerClass(), permission.getOwnerId(),
+                    permission.getPropertyClass(), permission.getPropertyId());
+        }
+    }
 }
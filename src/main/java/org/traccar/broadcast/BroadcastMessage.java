@@ -1,5 +1,5 @@
 /*
- * Copyright 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2022 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ import org.traccar.model.Device;
 import org.traccar.model.Event;
 import org.traccar.model.Position;
 
+import java.util.List;
 import java.util.Map;
 
 public class BroadcastMessage {
@@ -82,4 +83,14 @@ public class BroadcastMessage {
     public void setChanges(Map<String, Long> changes) {
         this.changes = changes;
     }
+
+    private Map<String, List<Long>> permissions;
+
+    public Map<String, List<Long>> getPermissions() {
+        return permissions;
+    }
+
+    public void setPermissions(Map<String, List<Long>> permissions) {
+        this.permissions = permissions;
+    }
 }
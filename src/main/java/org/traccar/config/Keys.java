@@ -69,6 +69,23 @@ public final class Keys {
             ".timeout",
             List.of(KeyType.CONFIG));
 
+    /**
+     * Decode UDP messages for the protocol on the processing threads instead of the single network thread that owns
+     * the datagram channel. Messages from the same device are decoded in order. Requires 'server.processing.threads' to
+     * be set. Server fails to start if a protocol handler is not sharable between threads.
+     */
+    public static final ConfigSuffix<Boolean> PROTOCOL_PARALLEL = new BooleanConfigSuffix(
+            ".parallel",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Number of sockets bound to the protocol port using SO_REUSEPORT. Kernel distributes incoming connections and
+     * datagrams between them, so several network threads can serve one port. Only works with epoll transport.
+     */
+    public static final ConfigSuffix<Integer> PROTOCOL_SOCKETS = new IntegerConfigSuffix(
+            ".sockets",
+            List.of(KeyType.CONFIG));
+
     /**
      * Device password. Commonly used in some protocol for sending commands.
      */
@@ -306,6 +323,113 @@ public final class Keys {
             "server.instantAcknowledgement",
             List.of(KeyType.CONFIG));
 
+    /**
+     * Number of threads for processing decoded messages. If set, all handlers after the protocol decoder run on a
+     * separate executor instead of the network threads, so slow database or notification calls do not block other
+     * connections. Messages for the same device are always processed by the same thread. By default processing
+     * happens on the network threads.
+     */
+    public static final ConfigKey<Integer> SERVER_PROCESSING_THREADS = new IntegerConfigKey(
+            "server.processing.threads",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Maximum number of messages waiting for each processing thread. New messages above the limit are rejected, while
+     * messages resuming after an asynchronous stage are still queued. Default value is 10000.
+     */
+    public static final ConfigKey<Integer> SERVER_PROCESSING_QUEUE_SIZE = new IntegerConfigKey(
+            "server.processing.queueSize",
+            List.of(KeyType.CONFIG),
+            10000);
+
+    /**
+     * Use native Linux epoll transport instead of Java NIO. If native transport is not available on the platform, the
+     * server falls back to NIO.
+     */
+    public static final ConfigKey<Boolean> SERVER_EPOLL = new BooleanConfigKey(
+            "server.epoll",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Number of threads accepting incoming TCP connections. By default it's two threads per CPU core.
+     */
+    public static final ConfigKey<Integer> SERVER_BOSS_THREADS = new IntegerConfigKey(
+            "server.bossThreads",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Number of network threads handling connections and datagrams. By default it's two threads per CPU core.
+     */
+    public static final ConfigKey<Integer> SERVER_WORKER_THREADS = new IntegerConfigKey(
+            "server.workerThreads",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Backlog size that pauses reading from TCP connections. Backlog includes messages waiting for processing
+     * threads, positions waiting for a database batch, pending position forwarding requests and threads waiting for a
+     * database connection. Devices buffer data while the server is not reading. Backpressure is disabled by default.
+     */
+    public static final ConfigKey<Integer> SERVER_BACKPRESSURE_HIGH = new IntegerConfigKey(
+            "server.backpressure.high",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Backlog size that resumes reading after it has been paused. By default it's half of the high watermark.
+     */
+    public static final ConfigKey<Integer> SERVER_BACKPRESSURE_LOW = new IntegerConfigKey(
+            "server.backpressure.low",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Backlog check interval in milliseconds. Default value is 500.
+     */
+    public static final ConfigKey<Long> SERVER_BACKPRESSURE_INTERVAL = new LongConfigKey(
+            "server.backpressure.interval",
+            List.of(KeyType.CONFIG),
+            500L);
+
+    /**
+     * List of optional processing stages that are bypassed when the server is overloaded. Supported values are
+     * 'geocoder', 'geolocation', 'speedLimit', 'computedAttributes' and 'forwardRetry'. Bypassed positions get a
+     * 'bypassed' attribute with the list of skipped stages, so they can be enriched later.
+     */
+    public static final ConfigKey<String> SERVER_OVERLOAD_STAGES = new StringConfigKey(
+            "server.overload.stages",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Average position processing latency in milliseconds that triggers bypassing of optional stages. Stages are
+     * restored when latency drops below half of the threshold.
+     */
+    public static final ConfigKey<Long> SERVER_OVERLOAD_LATENCY = new LongConfigKey(
+            "server.overload.latency",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Processing backlog size that triggers bypassing of optional stages. See backpressure configuration for backlog
+     * definition. Stages are restored when backlog drops below half of the threshold.
+     */
+    public static final ConfigKey<Integer> SERVER_OVERLOAD_BACKLOG = new IntegerConfigKey(
+            "server.overload.backlog",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Record latency histograms for each processing stage, broken down by protocol. Statistics are available through
+     * the API and periodically written to the log.
+     */
+    public static final ConfigKey<Boolean> SERVER_TRACING_ENABLE = new BooleanConfigKey(
+            "server.tracing.enable",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Interval in seconds for logging the slowest processing stages. Default value is 300 seconds. Zero disables
+     * logging.
+     */
+    public static final ConfigKey<Long> SERVER_TRACING_LOG_INTERVAL = new LongConfigKey(
+            "server.tracing.logInterval",
+            List.of(KeyType.CONFIG),
+            300L);
+
     /**
      * Address for uploading aggregated anonymous usage statistics. Uploaded information is the same you can see on the
      * statistics screen in the web app. It does not include any sensitive (e.g. locations).
@@ -466,6 +590,15 @@ public final class Keys {
             "database.maxPoolSize",
             List.of(KeyType.CONFIG));
 
+    /**
+     * Number of prepared statements cached by the JDBC driver per connection. Only applies to MySQL and MariaDB
+     * drivers. Other drivers either cache statements by default or don't support it. Zero disables the cache.
+     */
+    public static final ConfigKey<Integer> DATABASE_STATEMENT_CACHE_SIZE = new IntegerConfigKey(
+            "database.statementCacheSize",
+            List.of(KeyType.CONFIG),
+            250);
+
     /**
      * SQL query to check connection status. Default value is 'SELECT 1'. For Oracle database you can use
      * 'SELECT 1 FROM DUAL'.
@@ -489,6 +622,48 @@ public final class Keys {
             "database.throttleUnknown",
             List.of(KeyType.CONFIG));
 
+    /**
+     * Load device cache for the whole fleet on startup before opening any ports. It avoids a flood of individual
+     * database queries when a large number of devices reconnect at the same time. Preloaded devices stay in cache.
+     */
+    public static final ConfigKey<Boolean> DATABASE_PRELOAD = new BooleanConfigKey(
+            "database.preload",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Only preload devices that reported within the specified period (in seconds). By default, all devices are loaded.
+     */
+    public static final ConfigKey<Long> DATABASE_PRELOAD_PERIOD = new LongConfigKey(
+            "database.preloadPeriod",
+            List.of(KeyType.CONFIG),
+            0L);
+
+    /**
+     * Keep device cache entries for the specified period (in seconds) after the last session is closed. It avoids
+     * reloading the data from the database for devices that frequently reconnect. Disabled by default.
+     */
+    public static final ConfigKey<Long> DATABASE_CACHE_RETENTION = new LongConfigKey(
+            "database.cacheRetention",
+            List.of(KeyType.CONFIG),
+            0L);
+
+    /**
+     * Maximum number of released devices kept in cache. The least recently released devices are evicted first.
+     */
+    public static final ConfigKey<Integer> DATABASE_CACHE_RETENTION_SIZE = new IntegerConfigKey(
+            "database.cacheRetentionSize",
+            List.of(KeyType.CONFIG),
+            10000);
+
+    /**
+     * Approximate memory limit in megabytes for released devices kept in cache. The size of each device is estimated
+     * from its attributes and linked objects that are not shared with other devices.
+     */
+    public static final ConfigKey<Long> DATABASE_CACHE_RETENTION_MEMORY = new LongConfigKey(
+            "database.cacheRetentionMemory",
+            List.of(KeyType.CONFIG),
+            256L);
+
     /**
      * By default, server syncs with the database if it encounters and unknown device. This flag allows to disable that
      * behavior to improve performance in some cases.
@@ -532,6 +707,42 @@ public final class Keys {
             "database.saveEmpty",
             List.of(KeyType.CONFIG));
 
+    /**
+     * Store positions in batches using a background writer instead of inserting each position separately. Positions
+     * continue through the pipeline and devices receive acknowledgements only after the batch is committed. Positions
+     * that could not be stored are not processed further.
+     */
+    public static final ConfigKey<Boolean> DATABASE_BATCH_ENABLE = new BooleanConfigKey(
+            "database.batch.enable",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Maximum number of positions written in a single batch. Default value is 500.
+     */
+    public static final ConfigKey<Integer> DATABASE_BATCH_SIZE = new IntegerConfigKey(
+            "database.batch.size",
+            List.of(KeyType.CONFIG),
+            500);
+
+    /**
+     * Maximum time in milliseconds a position can wait for a batch to fill up before it is written. Default value is
+     * 100 milliseconds.
+     */
+    public static final ConfigKey<Long> DATABASE_BATCH_DELAY = new LongConfigKey(
+            "database.batch.delay",
+            List.of(KeyType.CONFIG),
+            100L);
+
+    /**
+     * Number of rows fetched from the database at a time when reading large results, like positions for reports and
+     * exports. Zero means that the driver default is used. MySQL only honours it with cursor fetch, so
+     * useCursorFetch is enabled automatically unless the connection URL sets it. Default value is 1000.
+     */
+    public static final ConfigKey<Integer> DATABASE_FETCH_SIZE = new IntegerConfigKey(
+            "database.fetchSize",
+            List.of(KeyType.CONFIG),
+            1000);
+
     /**
      * Device limit for self registered users. Default value is -1, which indicates no limit.
      */
@@ -723,6 +934,15 @@ public final class Keys {
             "status.ignoreOffline",
             List.of(KeyType.CONFIG));
 
+    /**
+     * Enable write-behind of device last update time. When set, messages that do not change device status only update
+     * the time in memory and the values are written to the database in bulk at the given interval. Value is in
+     * seconds. By default the time is written for every message.
+     */
+    public static final ConfigKey<Long> STATUS_UPDATE_INTERVAL = new LongConfigKey(
+            "status.updateInterval",
+            List.of(KeyType.CONFIG));
+
     /**
      * Path to the media folder. Server stores audio, video and photo files in that folder. Sub-folders will be
      * automatically created for each device by unique id.
@@ -1553,6 +1773,23 @@ public final class Keys {
             "geocoder.url",
             List.of(KeyType.CONFIG));
 
+    /**
+     * Place data file for the local geocoder. It can be a compiled place index or a CSV file with columns latitude,
+     * longitude, house, street, suburb, settlement, district, state, country and postcode. CSV file is compiled into
+     * an index file next to it on startup.
+     */
+    public static final ConfigKey<String> GEOCODER_FILE = new StringConfigKey(
+            "geocoder.file",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Maximum distance in meters to the nearest place for the local geocoder. By default the nearest place is always
+     * used.
+     */
+    public static final ConfigKey<Double> GEOCODER_MAX_DISTANCE = new DoubleConfigKey(
+            "geocoder.maxDistance",
+            List.of(KeyType.CONFIG));
+
     /**
      * Provider API key. Most providers require API keys.
      */
@@ -1581,6 +1818,50 @@ public final class Keys {
             "geocoder.cacheSize",
             List.of(KeyType.CONFIG));
 
+    /**
+     * Grid size in meters used to match cached geocoding results. Positions that fall into the same grid cell share
+     * the cached address. By default only exactly matching coordinates are reused.
+     */
+    public static final ConfigKey<Double> GEOCODER_CACHE_PRECISION = new DoubleConfigKey(
+            "geocoder.cachePrecision",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Time to keep cached geocoding results in seconds. By default results are kept until evicted.
+     */
+    public static final ConfigKey<Long> GEOCODER_CACHE_EXPIRATION = new LongConfigKey(
+            "geocoder.cacheExpiration",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * File for saving geocoder cache on shutdown, so it can be restored after a restart.
+     */
+    public static final ConfigKey<String> GEOCODER_CACHE_FILE = new StringConfigKey(
+            "geocoder.cacheFile",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Maximum number of concurrent geocoding requests. Identical requests are always combined into one. By default
+     * concurrency is not limited.
+     */
+    public static final ConfigKey<Integer> GEOCODER_CONCURRENCY = new IntegerConfigKey(
+            "geocoder.concurrency",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Maximum number of geocoding requests waiting to be sent. Requests over the limit fail immediately.
+     */
+    public static final ConfigKey<Integer> GEOCODER_QUEUE_SIZE = new IntegerConfigKey(
+            "geocoder.queueSize",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Maximum number of geocoding requests per second. By default the rate is not limited.
+     */
+    public static final ConfigKey<Double> GEOCODER_RATE_LIMIT = new DoubleConfigKey(
+            "geocoder.rateLimit",
+            List.of(KeyType.CONFIG));
+
     /**
      * Disable automatic reverse geocoding requests for all positions.
      */
@@ -1663,6 +1944,28 @@ public final class Keys {
             "geolocation.requireWifi",
             List.of(KeyType.CONFIG));
 
+    /**
+     * Maximum number of concurrent geolocation requests. Identical requests are always combined into one. By default
+     * concurrency is not limited.
+     */
+    public static final ConfigKey<Integer> GEOLOCATION_CONCURRENCY = new IntegerConfigKey(
+            "geolocation.concurrency",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Maximum number of geolocation requests waiting to be sent. Requests over the limit fail immediately.
+     */
+    public static final ConfigKey<Integer> GEOLOCATION_QUEUE_SIZE = new IntegerConfigKey(
+            "geolocation.queueSize",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Maximum number of geolocation requests per second. By default the rate is not limited.
+     */
+    public static final ConfigKey<Double> GEOLOCATION_RATE_LIMIT = new DoubleConfigKey(
+            "geolocation.rateLimit",
+            List.of(KeyType.CONFIG));
+
     /**
      * Default MCC value to use if device doesn't report MCC.
      */
@@ -1706,6 +2009,28 @@ public final class Keys {
             List.of(KeyType.CONFIG),
             100);
 
+    /**
+     * Maximum number of concurrent speed limit requests. Identical requests are always combined into one. By default
+     * concurrency is not limited.
+     */
+    public static final ConfigKey<Integer> SPEED_LIMIT_CONCURRENCY = new IntegerConfigKey(
+            "speedLimit.concurrency",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Maximum number of speed limit requests waiting to be sent. Requests over the limit fail immediately.
+     */
+    public static final ConfigKey<Integer> SPEED_LIMIT_QUEUE_SIZE = new IntegerConfigKey(
+            "speedLimit.queueSize",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Maximum number of speed limit requests per second. By default the rate is not limited.
+     */
+    public static final ConfigKey<Double> SPEED_LIMIT_RATE_LIMIT = new DoubleConfigKey(
+            "speedLimit.rateLimit",
+            List.of(KeyType.CONFIG));
+
     /**
      * Override latitude sign / hemisphere. Useful in cases where value is incorrect because of device bug. Value can be
      * N for North or S for South.
@@ -16,6 +16,8 @@
  */
 package org.traccar.database;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.traccar.BaseProtocol;
 import org.traccar.ServerManager;
 import org.traccar.broadcast.BroadcastInterface;
@@ -39,13 +41,18 @@ import jakarta.annotation.Nullable;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Singleton
 public class CommandsManager implements BroadcastInterface {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommandsManager.class);
+
     private final Storage storage;
     private final ServerManager serverManager;
     private final SmsManager smsManager;
@@ -53,6 +60,9 @@ public class CommandsManager implements BroadcastInterface {
     private final BroadcastService broadcastService;
     private final NotificationManager notificationManager;
 
+    private final Set<Long> queuedDevices = ConcurrentHashMap.newKeySet();
+    private final boolean queuedDevicesLoaded;
+
     @Inject
     public CommandsManager(
             Storage storage, ServerManager serverManager, @Nullable SmsManager smsManager,
@@ -65,6 +75,18 @@ public class CommandsManager implements BroadcastInterface {
         this.broadcastService = broadcastService;
         this.notificationManager = notificationManager;
         broadcastService.registerListener(this);
+        queuedDevicesLoaded = loadQueuedDevices();
+    }
+
+    private boolean loadQueuedDevices() {
+        try (var commands = storage.getObjectsStream(
+                QueuedCommand.class, new Request(new Columns.Include("deviceId")))) {
+            commands.forEach(command -> queuedDevices.add(command.getDeviceId()));
+            return true;
+        } catch (StorageException e) {
+            LOGGER.warn("Failed to load queued commands", e);
+            return false;
+        }
     }
 
     public QueuedCommand sendCommand(Command command) throws Exception {
@@ -92,6 +114,7 @@ public class CommandsManager implements BroadcastInterface {
             } else {
                 QueuedCommand queuedCommand = QueuedCommand.fromCommand(command);
                 queuedCommand.setId(storage.addObject(queuedCommand, new Request(new Columns.Exclude("id"))));
+                queuedDevices.add(deviceId);
                 broadcastService.updateCommand(true, deviceId);
                 return queuedCommand;
             }
@@ -104,16 +127,28 @@ public class CommandsManager implements BroadcastInterface {
     }
 
     public Collection<Command> readQueuedCommands(long deviceId, int count) {
+        if (!queuedDevices.remove(deviceId) && queuedDevicesLoaded) {
+            return Collections.emptyList();
+        }
         try {
             var commands = storage.getObjects(QueuedCommand.class, new Request(
                     new Columns.All(),
                     new Condition.Equals("deviceId", deviceId),
                     new Order("id", false, count)));
+            if (commands.size() >= count) {
+                queuedDevices.add(deviceId);
+            }
+            if (commands.isEmpty()) {
+                return Collections.emptyList();
+            }
+
+            long lastId = commands.get(commands.size() - 1).getId();
+            storage.removeObject(QueuedCommand.class, new Request(new Condition.And(
+                    new Condition.Equals("deviceId", deviceId),
+                    new Condition.Compare("id", "<=", "lastId", lastId))));
+
             Map<Event, Position> events = new HashMap<>();
             for (var command : commands) {
-                storage.removeObject(QueuedCommand.class, new Request(
-                        new Condition.Equals("id", command.getId())));
-
                 Event event = new Event(Event.TYPE_QUEUED_COMMAND_SENT, command.getDeviceId());
                 event.set("id", command.getId());
                 events.put(event, null);
@@ -121,6 +156,7 @@ public class CommandsManager implements BroadcastInterface {
             notificationManager.updateEvents(events);
             return commands.stream().map(QueuedCommand::toCommand).collect(Collectors.toList());
         } catch (StorageException e) {
+            queuedDevices.add(deviceId);
             throw new RuntimeException(e);
         }
     }
@@ -128,6 +164,7 @@ public class CommandsManager implements BroadcastInterface {
     @Override
     public void updateCommand(boolean local, long deviceId) {
         if (!local) {
+            queuedDevices.add(deviceId);
             DeviceSession deviceSession = connectionManager.getDeviceSession(deviceId);
             if (deviceSession != null && deviceSession.supportsLiveCommands()) {
                 for (Command command : readQueuedCommands(deviceId)) {
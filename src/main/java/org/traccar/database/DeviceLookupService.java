@@ -1,5 +1,5 @@
 /*
- * Copyright 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2022 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -23,6 +23,7 @@ import org.slf4j.LoggerFactory;
 import org.traccar.config.Config;
 import org.traccar.config.Keys;
 import org.traccar.model.Device;
+import org.traccar.session.cache.CacheManager;
 import org.traccar.storage.Storage;
 import org.traccar.storage.StorageException;
 import org.traccar.storage.query.Columns;
@@ -45,6 +46,7 @@ public class DeviceLookupService {
     private static final long THROTTLE_MAX_MS = TimeUnit.MINUTES.toMillis(30);
 
     private final Storage storage;
+    private final CacheManager cacheManager;
     private final Timer timer;
 
     private final boolean throttlingEnabled;
@@ -74,8 +76,9 @@ public class DeviceLookupService {
     private final Map<String, IdentifierInfo> identifierMap = new ConcurrentHashMap<>();
 
     @Inject
-    public DeviceLookupService(Config config, Storage storage, Timer timer) {
+    public DeviceLookupService(Config config, Storage storage, CacheManager cacheManager, Timer timer) {
         this.storage = storage;
+        this.cacheManager = cacheManager;
         this.timer = timer;
         throttlingEnabled = config.getBoolean(Keys.DATABASE_THROTTLE_UNKNOWN);
     }
@@ -119,6 +122,10 @@ public class DeviceLookupService {
         Device device = null;
         try {
             for (String uniqueId : uniqueIds) {
+                device = cacheManager.findDeviceByUniqueId(uniqueId);
+                if (device != null) {
+                    break;
+                }
                 if (!isThrottled(uniqueId)) {
                     device = storage.getObject(Device.class, new Request(
                             new Columns.All(), new Condition.Equals("uniqueId", uniqueId)));
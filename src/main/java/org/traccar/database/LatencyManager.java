@@ -0,0 +1,86 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.database;
+
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.helper.LatencyHistogram;
+import org.traccar.model.Position;
+import org.traccar.model.StageLatency;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@Singleton
+public class LatencyManager {
+
+    public static final String STAGE_TOTAL = "total";
+    public static final String STAGE_COMMIT = "commit";
+
+    private final boolean enabled;
+
+    private final Map<String, Map<String, LatencyHistogram>> histograms = new ConcurrentHashMap<>();
+
+    @Inject
+    public LatencyManager(Config config) {
+        enabled = config.getBoolean(Keys.SERVER_TRACING_ENABLE);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public LatencyHistogram getHistogram(String protocol, String stage) {
+        return histograms
+                .computeIfAbsent(protocol, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(stage, key -> new LatencyHistogram());
+    }
+
+    public void registerSinceDecode(Position position, String stage) {
+        if (enabled) {
+            long duration = System.currentTimeMillis() - position.getServerTime().getTime();
+            getHistogram(position.getProtocol(), stage).record(TimeUnit.MILLISECONDS.toNanos(duration));
+        }
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    public List<StageLatency> getStatistics() {
+        List<StageLatency> result = new ArrayList<>();
+        histograms.forEach((protocol, stages) -> stages.forEach((stage, histogram) -> {
+            StageLatency latency = new StageLatency();
+            latency.setProtocol(protocol);
+            latency.setStage(stage);
+            latency.setCount(histogram.getCount());
+            latency.setMean(toMillis(histogram.getMean()));
+            latency.setP50(toMillis(histogram.getPercentile(0.5)));
+            latency.setP99(toMillis(histogram.getPercentile(0.99)));
+            latency.setMax(toMillis(histogram.getMax()));
+            result.add(latency);
+        }));
+        result.sort(Comparator.comparing(StageLatency::getP99).reversed());
+        return result;
+    }
+
+}
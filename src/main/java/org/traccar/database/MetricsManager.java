@@ -0,0 +1,211 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.database;
+
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.traccar.BackpressureManager;
+import org.traccar.OverloadManager;
+import org.traccar.PositionForwardingHandler;
+import org.traccar.ProcessingExecutor;
+import org.traccar.geocoder.Geocoder;
+import org.traccar.geocoder.GeocoderCache;
+import org.traccar.geocoder.LimitedGeocoder;
+import org.traccar.geolocation.GeolocationProvider;
+import org.traccar.geolocation.LimitedGeolocationProvider;
+import org.traccar.helper.LatencyHistogram;
+import org.traccar.helper.RequestLimiter;
+import org.traccar.session.ConnectionManager;
+import org.traccar.session.cache.CacheManager;
+import org.traccar.speedlimit.LimitedSpeedLimitProvider;
+import org.traccar.speedlimit.SpeedLimitProvider;
+
+import jakarta.annotation.Nullable;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Singleton
+public class MetricsManager {
+
+    private static final String PREFIX = "traccar_";
+
+    private final StatisticsManager statisticsManager;
+    private final ConnectionManager connectionManager;
+    private final CacheManager cacheManager;
+    private final NotificationManager notificationManager;
+    private final PositionForwardingHandler positionForwardingHandler;
+    private final BackpressureManager backpressureManager;
+    private final OverloadManager overloadManager;
+    private final ProcessingExecutor processingExecutor;
+    private final PositionBatchWriter positionBatchWriter;
+    private final GeocoderCache geocoderCache;
+    private final Map<String, RequestLimiter<?, ?>> limiters = new LinkedHashMap<>();
+    private final HikariPoolMXBean poolMXBean;
+
+    @Inject
+    public MetricsManager(
+            StatisticsManager statisticsManager, ConnectionManager connectionManager, CacheManager cacheManager,
+            NotificationManager notificationManager, PositionForwardingHandler positionForwardingHandler,
+            BackpressureManager backpressureManager, OverloadManager overloadManager,
+            @Nullable ProcessingExecutor processingExecutor, @Nullable PositionBatchWriter positionBatchWriter,
+            @Nullable GeocoderCache geocoderCache, @Nullable Geocoder geocoder,
+            @Nullable GeolocationProvider geolocationProvider, @Nullable SpeedLimitProvider speedLimitProvider,
+            @Nullable HikariPoolMXBean poolMXBean) {
+        this.statisticsManager = statisticsManager;
+        this.connectionManager = connectionManager;
+        this.cacheManager = cacheManager;
+        this.notificationManager = notificationManager;
+        this.positionForwardingHandler = positionForwardingHandler;
+        this.backpressureManager = backpressureManager;
+        this.overloadManager = overloadManager;
+        this.processingExecutor = processingExecutor;
+        this.positionBatchWriter = positionBatchWriter;
+        this.geocoderCache = geocoderCache;
+        this.poolMXBean = poolMXBean;
+        if (geocoder instanceof LimitedGeocoder) {
+            limiters.put("geocoder", ((LimitedGeocoder) geocoder).getLimiter());
+        }
+        if (geolocationProvider instanceof LimitedGeolocationProvider) {
+            limiters.put("geolocation", ((LimitedGeolocationProvider) geolocationProvider).getLimiter());
+        }
+        if (speedLimitProvider instanceof LimitedSpeedLimitProvider) {
+            limiters.put("speed_limit", ((LimitedSpeedLimitProvider) speedLimitProvider).getLimiter());
+        }
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static void appendHeader(StringBuilder builder, String name, String type, String help) {
+        builder.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+        builder.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+    }
+
+    private static void appendCounter(StringBuilder builder, String name, String help, long value) {
+        appendHeader(builder, name, "counter", help);
+        builder.append(PREFIX).append(name).append("_total ").append(value).append('\n');
+    }
+
+    private static void appendCounter(
+            StringBuilder builder, String name, String help, String label, Map<String, Long> values) {
+        appendHeader(builder, name, "counter", help);
+        new TreeMap<>(values).forEach((key, value) -> builder
+                .append(PREFIX).append(name).append("_total{").append(label).append("=\"")
+                .append(escape(key)).append("\"} ").append(value).append('\n'));
+    }
+
+    private static void appendGauge(StringBuilder builder, String name, String help, double value) {
+        appendHeader(builder, name, "gauge", help);
+        builder.append(PREFIX).append(name).append(' ');
+        if (value == Math.rint(value)) {
+            builder.append((long) value);
+        } else {
+            builder.append(value);
+        }
+        builder.append('\n');
+    }
+
+    public String getMetrics() {
+        StringBuilder builder = new StringBuilder();
+
+        appendCounter(builder, "messages_received", "Messages received by protocol",
+                "protocol", statisticsManager.getMessagesReceived());
+        appendCounter(builder, "messages_stored", "Messages stored by protocol",
+                "protocol", statisticsManager.getMessagesStored());
+        appendCounter(builder, "requests", "API requests", statisticsManager.getRequests());
+        appendCounter(builder, "mail_sent", "Emails sent", statisticsManager.getMailSent());
+        appendCounter(builder, "sms_sent", "SMS messages sent", statisticsManager.getSmsSent());
+        appendCounter(builder, "geolocation_requests", "Geolocation requests",
+                statisticsManager.getGeolocationRequests());
+
+        long geocoderRequests = statisticsManager.getGeocoderRequests();
+        long geocoderCacheHits = statisticsManager.getGeocoderCacheHits();
+        appendCounter(builder, "geocoder_requests", "Geocoder requests", geocoderRequests);
+        appendCounter(builder, "geocoder_cache_hits", "Geocoder cache hits", geocoderCacheHits);
+        long geocoderLookups = geocoderRequests + geocoderCacheHits;
+        appendGauge(builder, "geocoder_cache_hit_ratio", "Geocoder cache hit ratio",
+                geocoderLookups > 0 ? (double) geocoderCacheHits / geocoderLookups : 0);
+        if (geocoderCache != null) {
+            appendGauge(builder, "geocoder_cache_size", "Addresses in geocoder cache", geocoderCache.getSize());
+            appendCounter(builder, "geocoder_cache_misses", "Geocoder cache misses", geocoderCache.getMisses());
+        }
+
+        limiters.forEach((name, limiter) -> {
+            appendGauge(builder, name + "_queue", "Requests waiting to be sent", limiter.getQueueSize());
+            appendGauge(builder, name + "_active", "Requests in progress", limiter.getActiveCount());
+            appendCounter(builder, name + "_coalesced", "Requests combined with an identical request",
+                    limiter.getCoalescedCount());
+            appendCounter(builder, name + "_rejected", "Requests rejected because the queue is full",
+                    limiter.getRejectedCount());
+            LatencyHistogram latency = limiter.getLatency();
+            appendGauge(builder, name + "_latency_mean_seconds", "Mean request latency",
+                    latency.getMean() / 1e9);
+            appendGauge(builder, name + "_latency_p99_seconds", "99th percentile request latency",
+                    latency.getPercentile(0.99) / 1e9);
+        });
+
+        appendGauge(builder, "sessions", "Active device sessions", connectionManager.getSessionCount());
+        appendGauge(builder, "cache_devices", "Devices in cache", cacheManager.getDeviceCount());
+        appendGauge(builder, "cache_objects", "Objects in cache", cacheManager.getObjectCount());
+        appendGauge(builder, "cache_positions", "Latest positions in cache", cacheManager.getPositionCount());
+        appendGauge(builder, "cache_retained", "Released devices kept in cache", cacheManager.getRetainedCount());
+        appendGauge(builder, "cache_retained_bytes", "Estimated memory of released devices kept in cache",
+                cacheManager.getRetainedMemory());
+        appendCounter(builder, "cache_hits", "Device cache hits", cacheManager.getHits());
+        appendCounter(builder, "cache_misses", "Device cache misses", cacheManager.getMisses());
+        appendCounter(builder, "cache_evictions", "Released devices evicted from cache", cacheManager.getEvictions());
+
+        appendGauge(builder, "forward_pending", "Pending position forwarding requests",
+                positionForwardingHandler.getDeliveryPending());
+        appendGauge(builder, "notifications_pending", "Notifications being sent",
+                notificationManager.getNotificationsPending());
+
+        if (processingExecutor != null) {
+            appendGauge(builder, "processing_queue", "Messages waiting for processing threads",
+                    processingExecutor.getQueueSize());
+            appendCounter(builder, "processing_rejected", "Messages rejected by processing threads",
+                    processingExecutor.getRejectedCount());
+            appendCounter(builder, "processing_overflow", "Continuations queued past the processing queue limit",
+                    processingExecutor.getOverflowCount());
+        }
+        if (positionBatchWriter != null) {
+            appendGauge(builder, "batch_pending", "Positions waiting for a database batch",
+                    positionBatchWriter.getPendingCount());
+        }
+        appendGauge(builder, "backpressure_paused", "Whether reading is paused",
+                backpressureManager.isPaused() ? 1 : 0);
+        appendGauge(builder, "overload_shedding", "Whether optional stages are bypassed",
+                overloadManager.getState().getShedding() ? 1 : 0);
+
+        if (poolMXBean != null) {
+            appendGauge(builder, "db_connections_active", "Active database connections",
+                    poolMXBean.getActiveConnections());
+            appendGauge(builder, "db_connections_idle", "Idle database connections",
+                    poolMXBean.getIdleConnections());
+            appendGauge(builder, "db_connections", "Total database connections",
+                    poolMXBean.getTotalConnections());
+            appendGauge(builder, "db_connections_pending", "Threads waiting for a database connection",
+                    poolMXBean.getThreadsAwaitingConnection());
+        }
+
+        builder.append("# EOF\n");
+        return builder.toString();
+    }
+
+}
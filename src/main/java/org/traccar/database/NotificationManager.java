@@ -1,5 +1,5 @@
 /*
- * Copyright 2016 - 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2016 - 2023 Anton Tananaev (anton@traccar.org)
  * Copyright 2016 - 2018 Andrey Kunitsyn (andrey@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
@@ -41,9 +41,12 @@ import org.traccar.storage.query.Request;
 import jakarta.annotation.Nullable;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @Singleton
@@ -59,6 +62,8 @@ public class NotificationManager {
 
     private final boolean geocodeOnRequest;
 
+    private final AtomicInteger notificationsPending = new AtomicInteger();
+
     @Inject
     public NotificationManager(
             Config config, Storage storage, CacheManager cacheManager, @Nullable EventForwarder eventForwarder,
@@ -71,13 +76,30 @@ public class NotificationManager {
         geocodeOnRequest = config.getBoolean(Keys.GEOCODER_ON_REQUEST);
     }
 
-    private void updateEvent(Event event, Position position) {
+    public int getNotificationsPending() {
+        return notificationsPending.get();
+    }
+
+    private void storeEvents(List<Event> events) {
+        Request request = new Request(new Columns.Exclude("id"));
         try {
-            event.setId(storage.addObject(event, new Request(new Columns.Exclude("id"))));
+            long[] ids = storage.addObjects(events, request);
+            for (int i = 0; i < ids.length; i++) {
+                events.get(i).setId(ids[i]);
+            }
         } catch (StorageException error) {
-            LOGGER.warn("Event save error", error);
+            LOGGER.warn("Event batch save error", error);
+            for (Event event : events) {
+                try {
+                    event.setId(storage.addObject(event, request));
+                } catch (StorageException e) {
+                    LOGGER.warn("Event save error", e);
+                }
+            }
         }
+    }
 
+    private void updateEvent(Event event, Position position) {
         var notifications = cacheManager.getDeviceObjects(event.getDeviceId(), Notification.class).stream()
                 .filter(notification -> notification.getType().equals(event.getType()))
                 .filter(notification -> {
@@ -106,10 +128,13 @@ public class NotificationManager {
             notifications.forEach(notification -> {
                 cacheManager.getNotificationUsers(notification.getId(), event.getDeviceId()).forEach(user -> {
                     for (String notificator : notification.getNotificatorsTypes()) {
+                        notificationsPending.incrementAndGet();
                         try {
                             notificatorManager.getNotificator(notificator).send(notification, user, event, position);
                         } catch (MessageException exception) {
                             LOGGER.warn("Notification failed", exception);
+                        } finally {
+                            notificationsPending.decrementAndGet();
                         }
                     }
                 });
@@ -140,6 +165,7 @@ public class NotificationManager {
     }
 
     public void updateEvents(Map<Event, Position> events) {
+        storeEvents(new ArrayList<>(events.keySet()));
         for (Entry<Event, Position> entry : events.entrySet()) {
             Event event = entry.getKey();
             Position position = entry.getValue();
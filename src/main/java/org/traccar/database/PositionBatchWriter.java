@@ -0,0 +1,147 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.database;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.LifecycleObject;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.model.Position;
+import org.traccar.storage.Storage;
+import org.traccar.storage.StorageException;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Request;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+public class PositionBatchWriter implements LifecycleObject {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PositionBatchWriter.class);
+
+    private static final class Entry {
+        private final Position position;
+        private final Consumer<Boolean> callback;
+        private boolean stored;
+
+        private Entry(Position position, Consumer<Boolean> callback) {
+            this.position = position;
+            this.callback = callback;
+        }
+
+        public Position getPosition() {
+            return position;
+        }
+
+        public Consumer<Boolean> getCallback() {
+            return callback;
+        }
+    }
+
+    private final Storage storage;
+    private final int batchSize;
+    private final long batchDelay;
+
+    private final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+
+    private List<Entry> pending = new ArrayList<>();
+
+    public PositionBatchWriter(Config config, Storage storage) {
+        this.storage = storage;
+        batchSize = config.getInteger(Keys.DATABASE_BATCH_SIZE);
+        batchDelay = config.getLong(Keys.DATABASE_BATCH_DELAY);
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Queue position for the next batch. Callback receives whether the position was stored and runs on the writer
+     * thread, so it should only hand processing over to another executor.
+     */
+    public void write(Position position, Consumer<Boolean> callback) {
+        boolean full;
+        boolean first;
+        synchronized (this) {
+            pending.add(new Entry(position, callback));
+            full = pending.size() >= batchSize;
+            first = pending.size() == 1;
+        }
+        if (full) {
+            executor.execute(this::flush);
+        } else if (first) {
+            executor.schedule(this::flush, batchDelay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush() {
+        List<Entry> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new ArrayList<>();
+        }
+
+        List<Position> positions = batch.stream().map(Entry::getPosition).collect(Collectors.toList());
+        Request request = new Request(new Columns.Exclude("id"));
+        try {
+            long[] ids = storage.addObjects(positions, request);
+            for (int i = 0; i < ids.length; i++) {
+                batch.get(i).getPosition().setId(ids[i]);
+                batch.get(i).stored = true;
+            }
+        } catch (StorageException error) {
+            LOGGER.warn("Failed to store position batch", error);
+            for (Entry entry : batch) {
+                try {
+                    entry.getPosition().setId(storage.addObject(entry.getPosition(), request));
+                    entry.stored = true;
+                } catch (StorageException e) {
+                    LOGGER.warn("Failed to store position", e);
+                }
+            }
+        }
+
+        for (Entry entry : batch) {
+            try {
+                entry.getCallback().accept(entry.stored);
+            } catch (RuntimeException error) {
+                LOGGER.warn("Position callback failed", error);
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        executor.execute(this::flush);
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2016 - 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2016 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -37,10 +37,12 @@ import jakarta.ws.rs.core.Form;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 @Singleton
 public class StatisticsManager {
@@ -49,6 +51,26 @@ public class StatisticsManager {
 
     private static final int SPLIT_MODE = Calendar.DAY_OF_MONTH;
 
+    private static final class Counter {
+
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong split = new AtomicLong();
+
+        public void increment() {
+            total.increment();
+        }
+
+        public long getTotal() {
+            return total.sum();
+        }
+
+        public int split() {
+            long current = total.sum();
+            return (int) (current - split.getAndSet(current));
+        }
+
+    }
+
     private final Config config;
     private final Storage storage;
     private final Client client;
@@ -56,17 +78,21 @@ public class StatisticsManager {
 
     private final AtomicInteger lastUpdate = new AtomicInteger(Calendar.getInstance().get(SPLIT_MODE));
 
-    private final Set<Long> users = new HashSet<>();
-    private final Map<Long, String> deviceProtocols = new HashMap<>();
-    private final Map<Long, Integer> deviceMessages = new HashMap<>();
+    private final Set<Long> users = ConcurrentHashMap.newKeySet();
+    private final Map<Long, String> deviceProtocols = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> deviceMessages = new ConcurrentHashMap<>();
 
-    private int requests;
-    private int messagesReceived;
-    private int messagesStored;
-    private int mailSent;
-    private int smsSent;
-    private int geocoderRequests;
-    private int geolocationRequests;
+    private final Map<String, LongAdder> protocolMessagesReceived = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> protocolMessagesStored = new ConcurrentHashMap<>();
+
+    private final Counter requests = new Counter();
+    private final Counter messagesReceived = new Counter();
+    private final Counter messagesStored = new Counter();
+    private final Counter mailSent = new Counter();
+    private final Counter smsSent = new Counter();
+    private final Counter geocoderRequests = new Counter();
+    private final Counter geocoderCacheHits = new Counter();
+    private final Counter geolocationRequests = new Counter();
 
     @Inject
     public StatisticsManager(Config config, Storage storage, Client client, ObjectMapper objectMapper) {
@@ -85,13 +111,13 @@ public class StatisticsManager {
                 statistics.setCaptureTime(new Date());
                 statistics.setActiveUsers(users.size());
                 statistics.setActiveDevices(deviceProtocols.size());
-                statistics.setRequests(requests);
-                statistics.setMessagesReceived(messagesReceived);
-                statistics.setMessagesStored(messagesStored);
-                statistics.setMailSent(mailSent);
-                statistics.setSmsSent(smsSent);
-                statistics.setGeocoderRequests(geocoderRequests);
-                statistics.setGeolocationRequests(geolocationRequests);
+                statistics.setRequests(requests.split());
+                statistics.setMessagesReceived(messagesReceived.split());
+                statistics.setMessagesStored(messagesStored.split());
+                statistics.setMailSent(mailSent.split());
+                statistics.setSmsSent(smsSent.split());
+                statistics.setGeocoderRequests(geocoderRequests.split());
+                statistics.setGeolocationRequests(geolocationRequests.split());
                 if (!deviceProtocols.isEmpty()) {
                     Map<String, Integer> protocols = new HashMap<>();
                     for (String protocol : deviceProtocols.values()) {
@@ -105,13 +131,6 @@ public class StatisticsManager {
                 users.clear();
                 deviceProtocols.clear();
                 deviceMessages.clear();
-                requests = 0;
-                messagesReceived = 0;
-                messagesStored = 0;
-                mailSent = 0;
-                smsSent = 0;
-                geocoderRequests = 0;
-                geolocationRequests = 0;
             }
 
             try {
@@ -156,50 +175,96 @@ public class StatisticsManager {
         }
     }
 
-    public synchronized void registerRequest(long userId) {
+    public void registerRequest(long userId) {
         checkSplit();
-        requests += 1;
+        requests.increment();
         if (userId != 0 && userId != ServiceAccountUser.ID) {
             users.add(userId);
         }
     }
 
-    public synchronized void registerMessageReceived() {
+    public void registerMessageReceived(String protocol) {
         checkSplit();
-        messagesReceived += 1;
+        messagesReceived.increment();
+        protocolMessagesReceived.computeIfAbsent(protocol, key -> new LongAdder()).increment();
     }
 
-    public synchronized void registerMessageStored(long deviceId, String protocol) {
+    public void registerMessageStored(long deviceId, String protocol) {
         checkSplit();
-        messagesStored += 1;
+        messagesStored.increment();
+        if (protocol != null) {
+            protocolMessagesStored.computeIfAbsent(protocol, key -> new LongAdder()).increment();
+        }
         if (deviceId != 0) {
-            deviceProtocols.put(deviceId, protocol);
+            if (protocol != null) {
+                deviceProtocols.put(deviceId, protocol);
+            }
             deviceMessages.merge(deviceId, 1, Integer::sum);
         }
     }
 
-    public synchronized int messageStoredCount(long deviceId) {
+    public int messageStoredCount(long deviceId) {
         return deviceMessages.getOrDefault(deviceId, 0);
     }
 
-    public synchronized void registerMail() {
+    public void registerMail() {
         checkSplit();
-        mailSent += 1;
+        mailSent.increment();
     }
 
-    public synchronized void registerSms() {
+    public void registerSms() {
         checkSplit();
-        smsSent += 1;
+        smsSent.increment();
     }
 
-    public synchronized void registerGeocoderRequest() {
+    public void registerGeocoderRequest() {
         checkSplit();
-        geocoderRequests += 1;
+        geocoderRequests.increment();
+    }
+
+    public void registerGeocoderCacheHit() {
+        geocoderCacheHits.increment();
     }
 
-    public synchronized void registerGeolocationRequest() {
+    public void registerGeolocationRequest() {
         checkSplit();
-        geolocationRequests += 1;
+        geolocationRequests.increment();
+    }
+
+    public Map<String, Long> getMessagesReceived() {
+        Map<String, Long> result = new HashMap<>();
+        protocolMessagesReceived.forEach((protocol, counter) -> result.put(protocol, counter.sum()));
+        return result;
+    }
+
+    public Map<String, Long> getMessagesStored() {
+        Map<String, Long> result = new HashMap<>();
+        protocolMessagesStored.forEach((protocol, counter) -> result.put(protocol, counter.sum()));
+        return result;
+    }
+
+    public long getRequests() {
+        return requests.getTotal();
+    }
+
+    public long getMailSent() {
+        return mailSent.getTotal();
+    }
+
+    public long getSmsSent() {
+        return smsSent.getTotal();
+    }
+
+    public long getGeocoderRequests() {
+        return geocoderRequests.getTotal();
+    }
+
+    public long getGeocoderCacheHits() {
+        return geocoderCacheHits.getTotal();
+    }
+
+    public long getGeolocationRequests() {
+        return geolocationRequests.getTotal();
     }
 
 }
@@ -26,8 +26,8 @@ import jakarta.ws.rs.client.Client;
 
 public class BanGeocoder extends JsonGeocoder {
 
-    public BanGeocoder(Client client, int cacheSize, AddressFormat addressFormat) {
-        super(client, "https://api-adresse.data.gouv.fr/reverse/?lat=%f&lon=%f", cacheSize, addressFormat);
+    public BanGeocoder(Client client, AddressFormat addressFormat) {
+        super(client, "https://api-adresse.data.gouv.fr/reverse/?lat=%f&lon=%f", addressFormat);
     }
 
     @Override
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.geocoder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.LifecycleObject;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class GeocoderCache implements LifecycleObject {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GeocoderCache.class);
+
+    private static final double METERS_PER_DEGREE = 111320.0;
+    private static final double EVICTION_RATIO = 0.9;
+    private static final int SNAPSHOT_VERSION = 2;
+
+    public static final class Key {
+        private final long latitude;
+        private final long longitude;
+
+        private Key(long latitude, long longitude) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return latitude == key.latitude && longitude == key.longitude;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(latitude) * 31 + Long.hashCode(longitude);
+        }
+    }
+
+    private static final class Entry {
+        private final String address;
+        private final long created;
+        private volatile long accessed;
+
+        private Entry(String address, long created) {
+            this.address = address;
+            this.created = created;
+            this.accessed = created;
+        }
+    }
+
+    private final int size;
+    private final double precision;
+    private final long expiration;
+    private final Path file;
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public GeocoderCache(int size) {
+        this(size, 0, 0, null);
+    }
+
+    public GeocoderCache(Config config) {
+        this(config.getInteger(Keys.GEOCODER_CACHE_SIZE),
+                config.getDouble(Keys.GEOCODER_CACHE_PRECISION),
+                TimeUnit.SECONDS.toMillis(config.getLong(Keys.GEOCODER_CACHE_EXPIRATION)),
+                config.getString(Keys.GEOCODER_CACHE_FILE));
+    }
+
+    public GeocoderCache(int size, double precision, long expiration, String file) {
+        this.size = size;
+        this.precision = precision;
+        this.expiration = expiration;
+        this.file = file != null ? Paths.get(file) : null;
+    }
+
+    static Key exactKey(double latitude, double longitude) {
+        return new Key(Double.doubleToLongBits(latitude), Double.doubleToLongBits(longitude));
+    }
+
+    Key createKey(double latitude, double longitude) {
+        if (precision > 0) {
+            long latitudeBand = Math.round(latitude * METERS_PER_DEGREE / precision);
+            // longitude degrees shrink towards the poles, so the step follows the latitude band
+            double scale = Math.max(Math.cos(Math.toRadians(latitudeBand * precision / METERS_PER_DEGREE)), 0);
+            return new Key(latitudeBand, Math.round(longitude * METERS_PER_DEGREE * scale / precision));
+        }
+        return exactKey(latitude, longitude);
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return expiration > 0 && now - entry.created > expiration;
+    }
+
+    public String get(double latitude, double longitude) {
+        Key key = createKey(latitude, longitude);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            long now = System.currentTimeMillis();
+            if (!isExpired(entry, now)) {
+                entry.accessed = now;
+                hits.incrementAndGet();
+                return entry.address;
+            }
+            entries.remove(key, entry);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(double latitude, double longitude, String address) {
+        entries.put(createKey(latitude, longitude), new Entry(address, System.currentTimeMillis()));
+        if (entries.size() > size) {
+            evict();
+        }
+    }
+
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            entries.entrySet().removeIf(e -> isExpired(e.getValue(), now));
+            int excess = entries.size() - (int) (size * EVICTION_RATIO);
+            if (excess > 0) {
+                List<Map.Entry<Key, Entry>> oldest = new ArrayList<>(entries.entrySet());
+                oldest.sort(Comparator.comparingLong(e -> e.getValue().accessed));
+                for (int i = 0; i < excess; i++) {
+                    entries.remove(oldest.get(i).getKey(), oldest.get(i).getValue());
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public int getSize() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public void load() throws IOException {
+        if (file == null || !Files.exists(file)) {
+            return;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (input.readInt() != SNAPSHOT_VERSION || input.readDouble() != precision) {
+                LOGGER.info("Geocoder cache snapshot ignored because settings changed");
+                return;
+            }
+            long now = System.currentTimeMillis();
+            int count = input.readInt();
+            for (int i = 0; i < count && entries.size() < size; i++) {
+                Key key = new Key(input.readLong(), input.readLong());
+                Entry entry = new Entry(input.readUTF(), input.readLong());
+                if (!isExpired(entry, now)) {
+                    entries.putIfAbsent(key, entry);
+                }
+            }
+        }
+    }
+
+    public void save() throws IOException {
+        if (file == null) {
+            return;
+        }
+        List<Map.Entry<Key, Entry>> snapshot = new ArrayList<>(entries.entrySet());
+        snapshot.sort(Comparator.comparingLong(e -> -e.getValue().accessed));
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            output.writeInt(SNAPSHOT_VERSION);
+            output.writeDouble(precision);
+            output.writeInt(snapshot.size());
+            for (Map.Entry<Key, Entry> e : snapshot) {
+                output.writeLong(e.getKey().latitude);
+                output.writeLong(e.getKey().longitude);
+                output.writeUTF(e.getValue().address);
+                output.writeLong(e.getValue().created);
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public void start() {
+        if (file == null) {
+            return;
+        }
+        try {
+            load();
+            LOGGER.info("Geocoder cache loaded {} addresses", entries.size());
+        } catch (IOException e) {
+            LOGGER.warn("Geocoder cache load error", e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        try {
+            save();
+        } catch (IOException e) {
+            LOGGER.warn("Geocoder cache save error", e);
+        }
+    }
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2015 - 2018 Anton Tananaev (anton@traccar.org)
+ * Copyright 2015 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -23,10 +23,6 @@ import jakarta.json.JsonObject;
 import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.client.Client;
 import jakarta.ws.rs.client.InvocationCallback;
-import java.util.AbstractMap;
-import java.util.Collections;
-import java.util.LinkedHashMap;
-import java.util.Map;
 
 public abstract class JsonGeocoder implements Geocoder {
 
@@ -37,20 +33,16 @@ public abstract class JsonGeocoder implements Geocoder {
     private final AddressFormat addressFormat;
     private StatisticsManager statisticsManager;
 
-    private Map<Map.Entry<Double, Double>, String> cache;
+    private GeocoderCache cache;
 
-    public JsonGeocoder(Client client, String url, final int cacheSize, AddressFormat addressFormat) {
+    public JsonGeocoder(Client client, String url, AddressFormat addressFormat) {
         this.client = client;
         this.url = url;
         this.addressFormat = addressFormat;
-        if (cacheSize > 0) {
-            this.cache = Collections.synchronizedMap(new LinkedHashMap<>() {
-                @Override
-                protected boolean removeEldestEntry(Map.Entry eldest) {
-                    return size() > cacheSize;
-                }
-            });
-        }
+    }
+
+    public void setCache(GeocoderCache cache) {
+        this.cache = cache;
     }
 
     @Override
@@ -72,7 +64,7 @@ public abstract class JsonGeocoder implements Geocoder {
         if (address != null) {
             String formattedAddress = addressFormat.format(address);
             if (cache != null) {
-                cache.put(new AbstractMap.SimpleImmutableEntry<>(latitude, longitude), formattedAddress);
+                cache.put(latitude, longitude, formattedAddress);
             }
             if (callback != null) {
                 callback.onSuccess(formattedAddress);
@@ -89,19 +81,37 @@ public abstract class JsonGeocoder implements Geocoder {
         return null;
     }
 
+    GeocoderCache.Key createKey(double latitude, double longitude) {
+        return cache != null ? cache.createKey(latitude, longitude) : GeocoderCache.exactKey(latitude, longitude);
+    }
+
+    public String getCachedAddress(double latitude, double longitude) {
+        if (cache != null) {
+            String cachedAddress = cache.get(latitude, longitude);
+            if (cachedAddress != null && statisticsManager != null) {
+                statisticsManager.registerGeocoderCacheHit();
+            }
+            return cachedAddress;
+        }
+        return null;
+    }
+
     @Override
     public String getAddress(
             final double latitude, final double longitude, final ReverseGeocoderCallback callback) {
 
-        if (cache != null) {
-            String cachedAddress = cache.get(new AbstractMap.SimpleImmutableEntry<>(latitude, longitude));
-            if (cachedAddress != null) {
-                if (callback != null) {
-                    callback.onSuccess(cachedAddress);
-                }
-                return cachedAddress;
+        String cachedAddress = getCachedAddress(latitude, longitude);
+        if (cachedAddress != null) {
+            if (callback != null) {
+                callback.onSuccess(cachedAddress);
             }
+            return cachedAddress;
         }
+        return requestAddress(latitude, longitude, callback);
+    }
+
+    public String requestAddress(
+            final double latitude, final double longitude, final ReverseGeocoderCallback callback) {
 
         if (statisticsManager != null) {
             statisticsManager.registerGeocoderRequest();
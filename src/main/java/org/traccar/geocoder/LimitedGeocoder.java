@@ -0,0 +1,84 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.geocoder;
+
+import org.traccar.database.StatisticsManager;
+import org.traccar.helper.RequestLimiter;
+
+public class LimitedGeocoder implements Geocoder {
+
+    private final JsonGeocoder geocoder;
+    private final RequestLimiter<GeocoderCache.Key, String> limiter;
+
+    public LimitedGeocoder(JsonGeocoder geocoder, RequestLimiter<GeocoderCache.Key, String> limiter) {
+        this.geocoder = geocoder;
+        this.limiter = limiter;
+    }
+
+    public RequestLimiter<GeocoderCache.Key, String> getLimiter() {
+        return limiter;
+    }
+
+    @Override
+    public String getAddress(double latitude, double longitude, ReverseGeocoderCallback callback) {
+        if (callback == null) {
+            return geocoder.getAddress(latitude, longitude, null);
+        }
+        String cachedAddress = geocoder.getCachedAddress(latitude, longitude);
+        if (cachedAddress != null) {
+            callback.onSuccess(cachedAddress);
+            return cachedAddress;
+        }
+        limiter.execute(
+                geocoder.createKey(latitude, longitude),
+                result -> {
+                    String cached = geocoder.getCachedAddress(latitude, longitude);
+                    if (cached != null) {
+                        result.onSuccess(cached);
+                        return;
+                    }
+                    geocoder.requestAddress(latitude, longitude, new ReverseGeocoderCallback() {
+                        @Override
+                        public void onSuccess(String address) {
+                            result.onSuccess(address);
+                        }
+
+                        @Override
+                        public void onFailure(Throwable e) {
+                            result.onFailure(e);
+                        }
+                    });
+                },
+                new RequestLimiter.Callback<>() {
+                    @Override
+                    public void onSuccess(String address) {
+                        callback.onSuccess(address);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable e) {
+                        callback.onFailure(e);
+                    }
+                });
+        return null;
+    }
+
+    @Override
+    public void setStatisticsManager(StatisticsManager statisticsManager) {
+        geocoder.setStatisticsManager(statisticsManager);
+    }
+
+}
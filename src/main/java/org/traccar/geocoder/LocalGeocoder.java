@@ -0,0 +1,93 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.geocoder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.database.StatisticsManager;
+import org.traccar.helper.DistanceCalculator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public class LocalGeocoder implements Geocoder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocalGeocoder.class);
+
+    private final PlaceIndex index;
+    private final double maxDistance;
+    private final AddressFormat addressFormat;
+
+    public LocalGeocoder(String file, double maxDistance, AddressFormat addressFormat) throws IOException {
+        Path path = Paths.get(file);
+        if (file.endsWith(".csv")) {
+            Path compiled = Paths.get(file + ".index");
+            if (!Files.exists(compiled)
+                    || Files.getLastModifiedTime(compiled).compareTo(Files.getLastModifiedTime(path)) < 0) {
+                LOGGER.info("Compiling place index from {}", path);
+                PlaceIndex.compile(path, compiled);
+            }
+            path = compiled;
+        }
+        index = PlaceIndex.open(path);
+        this.maxDistance = maxDistance;
+        this.addressFormat = addressFormat;
+        LOGGER.info("Place index loaded with {} places", index.getCount());
+    }
+
+    @Override
+    public void setStatisticsManager(StatisticsManager statisticsManager) {
+    }
+
+    private Address findAddress(double latitude, double longitude) {
+        int place = index.findNearest(latitude, longitude);
+        if (place < 0 || maxDistance > 0 && DistanceCalculator.distance(
+                latitude, longitude, index.getLatitude(place), index.getLongitude(place)) > maxDistance) {
+            return null;
+        }
+        String[] fields = index.getFields(place);
+        Address address = new Address();
+        address.setHouse(fields[0]);
+        address.setStreet(fields[1]);
+        address.setSuburb(fields[2]);
+        address.setSettlement(fields[3]);
+        address.setDistrict(fields[4]);
+        address.setState(fields[5]);
+        address.setCountry(fields[6]);
+        address.setPostcode(fields[7]);
+        return address;
+    }
+
+    @Override
+    public String getAddress(double latitude, double longitude, ReverseGeocoderCallback callback) {
+        Address address = findAddress(latitude, longitude);
+        if (address == null) {
+            if (callback != null) {
+                callback.onFailure(new GeocoderException("No place found nearby"));
+            }
+            return null;
+        }
+        String formattedAddress = addressFormat.format(address);
+        if (callback != null) {
+            callback.onSuccess(formattedAddress);
+            return null;
+        }
+        return formattedAddress;
+    }
+
+}
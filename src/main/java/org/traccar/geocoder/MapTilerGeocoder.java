@@ -21,8 +21,8 @@ import jakarta.ws.rs.client.Client;
 
 public class MapTilerGeocoder extends JsonGeocoder {
 
-    public MapTilerGeocoder(Client client, String key, int cacheSize, AddressFormat addressFormat) {
-        super(client, "https://api.maptiler.com/geocoding/%2$f,%1$f.json?key=" + key, cacheSize, addressFormat);
+    public MapTilerGeocoder(Client client, String key, AddressFormat addressFormat) {
+        super(client, "https://api.maptiler.com/geocoding/%2$f,%1$f.json?key=" + key, addressFormat);
     }
 
     @Override
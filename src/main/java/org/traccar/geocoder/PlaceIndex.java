@@ -0,0 +1,284 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.geocoder;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read-only index of places stored as a KD-tree laid out in a flat file. Each subtree occupies a contiguous range of
+ * records with its root in the middle, so the tree needs no pointers and can be searched directly from a mapped file.
+ */
+public final class PlaceIndex {
+
+    private static final int MAGIC = 0x54504931;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_SIZE = 12;
+    private static final double SCALE = 1e7;
+    private static final int FIELDS = 8;
+
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final int stringsStart;
+
+    private PlaceIndex(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Invalid place index file");
+        }
+        count = buffer.getInt(4);
+        stringsStart = HEADER_SIZE + count * RECORD_SIZE;
+    }
+
+    public static PlaceIndex open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file)) {
+            return new PlaceIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    private int latitude(int index) {
+        return buffer.getInt(HEADER_SIZE + index * RECORD_SIZE);
+    }
+
+    private int longitude(int index) {
+        return buffer.getInt(HEADER_SIZE + index * RECORD_SIZE + 4);
+    }
+
+    private final class Search {
+        private final double latitude;
+        private final double longitude;
+        private final double cosLatitude;
+        private int best = -1;
+        private double bestDistance = Double.MAX_VALUE;
+
+        private Search(double latitude, double longitude) {
+            this.latitude = latitude * SCALE;
+            this.longitude = longitude * SCALE;
+            this.cosLatitude = Math.cos(Math.toRadians(latitude));
+        }
+
+        private void search(int from, int to, int depth) {
+            if (from >= to) {
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            double deltaLatitude = latitude - latitude(middle);
+            double deltaLongitude = (longitude - longitude(middle)) * cosLatitude;
+            double distance = deltaLatitude * deltaLatitude + deltaLongitude * deltaLongitude;
+            if (distance < bestDistance) {
+                best = middle;
+                bestDistance = distance;
+            }
+            double delta = depth % 2 == 0 ? deltaLatitude : deltaLongitude;
+            if (delta < 0) {
+                search(from, middle, depth + 1);
+                if (delta * delta < bestDistance) {
+                    search(middle + 1, to, depth + 1);
+                }
+            } else {
+                search(middle + 1, to, depth + 1);
+                if (delta * delta < bestDistance) {
+                    search(from, middle, depth + 1);
+                }
+            }
+        }
+    }
+
+    public int findNearest(double latitude, double longitude) {
+        Search search = new Search(latitude, longitude);
+        search.search(0, count, 0);
+        return search.best;
+    }
+
+    public double getLatitude(int index) {
+        return latitude(index) / SCALE;
+    }
+
+    public double getLongitude(int index) {
+        return longitude(index) / SCALE;
+    }
+
+    public String[] getFields(int index) {
+        ByteBuffer strings = buffer.duplicate();
+        strings.position(stringsStart + buffer.getInt(HEADER_SIZE + index * RECORD_SIZE + 8));
+        String[] fields = new String[FIELDS];
+        for (int i = 0; i < FIELDS; i++) {
+            int length = Short.toUnsignedInt(strings.getShort());
+            if (length > 0) {
+                byte[] data = new byte[length];
+                strings.get(data);
+                fields[i] = new String(data, StandardCharsets.UTF_8);
+            }
+        }
+        return fields;
+    }
+
+    private static List<String> parseLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append(c);
+                    i += 1;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString().trim());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString().trim());
+        return values;
+    }
+
+    private static void swap(int[] values, int i, int j) {
+        int value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+
+    private static void select(int[] order, int[] keys, int from, int to, int target) {
+        int left = from;
+        int right = to - 1;
+        while (left < right) {
+            int pivot = keys[order[(left + right) >>> 1]];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (keys[order[i]] < pivot) {
+                    i += 1;
+                }
+                while (keys[order[j]] > pivot) {
+                    j -= 1;
+                }
+                if (i <= j) {
+                    swap(order, i++, j--);
+                }
+            }
+            if (target <= j) {
+                right = j;
+            } else if (target >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static void build(int[] order, int[] latitudes, int[] longitudes, int from, int to, int depth) {
+        if (to - from <= 1) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        select(order, depth % 2 == 0 ? latitudes : longitudes, from, to, middle);
+        build(order, latitudes, longitudes, from, middle, depth + 1);
+        build(order, latitudes, longitudes, middle + 1, to, depth + 1);
+    }
+
+    /**
+     * Compile CSV file with columns: latitude, longitude, house, street, suburb, settlement, district, state, country,
+     * postcode. Lines that don't start with coordinates, like a header, are skipped.
+     */
+    public static void compile(Path source, Path target) throws IOException {
+        int size = 0;
+        int[] latitudes = new int[1024];
+        int[] longitudes = new int[1024];
+        int[] offsets = new int[1024];
+        Path strings = Files.createTempFile(target.toAbsolutePath().getParent(), "places", ".tmp");
+        try {
+            try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8);
+                 DataOutputStream output = new DataOutputStream(
+                         new BufferedOutputStream(Files.newOutputStream(strings)))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    List<String> values = parseLine(line);
+                    double latitude;
+                    double longitude;
+                    try {
+                        latitude = Double.parseDouble(values.get(0));
+                        longitude = Double.parseDouble(values.get(1));
+                    } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                        continue;
+                    }
+                    if (size == latitudes.length) {
+                        latitudes = Arrays.copyOf(latitudes, size * 2);
+                        longitudes = Arrays.copyOf(longitudes, size * 2);
+                        offsets = Arrays.copyOf(offsets, size * 2);
+                    }
+                    latitudes[size] = (int) Math.round(latitude * SCALE);
+                    longitudes[size] = (int) Math.round(longitude * SCALE);
+                    offsets[size] = output.size();
+                    for (int i = 0; i < FIELDS; i++) {
+                        String value = i + 2 < values.size() ? values.get(i + 2) : "";
+                        byte[] data = value.getBytes(StandardCharsets.UTF_8);
+                        output.writeShort(Math.min(data.length, 0xFFFF));
+                        output.write(data, 0, Math.min(data.length, 0xFFFF));
+                    }
+                    size += 1;
+                }
+            }
+
+            int[] order = new int[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            build(order, latitudes, longitudes, 0, size, 0);
+
+            Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+            try (DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                output.writeInt(MAGIC);
+                output.writeInt(size);
+                for (int index : order) {
+                    output.writeInt(latitudes[index]);
+                    output.writeInt(longitudes[index]);
+                    output.writeInt(offsets[index]);
+                }
+                Files.copy(strings, output);
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(strings);
+        }
+    }
+
+}
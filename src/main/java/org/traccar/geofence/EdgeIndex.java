@@ -0,0 +1,75 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.geofence;
+
+final class EdgeIndex {
+
+    private static final int EDGES_PER_BAND = 4;
+    private static final int MAX_BANDS = 4096;
+
+    private final double min;
+    private final double scale;
+    private final int[] starts;
+    private final int[] edges;
+
+    EdgeIndex(double[] from, double[] to) {
+        int count = from.length;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            min = Math.min(min, from[i]);
+            max = Math.max(max, to[i]);
+        }
+        int bands = Math.max(1, Math.min(count / EDGES_PER_BAND, MAX_BANDS));
+        this.min = min;
+        this.scale = max > min ? bands / (max - min) : 0;
+
+        starts = new int[bands + 1];
+        for (int i = 0; i < count; i++) {
+            for (int band = band(from[i]); band <= band(to[i]); band++) {
+                starts[band + 1]++;
+            }
+        }
+        for (int band = 0; band < bands; band++) {
+            starts[band + 1] += starts[band];
+        }
+        edges = new int[starts[bands]];
+        int[] offsets = starts.clone();
+        for (int i = 0; i < count; i++) {
+            for (int band = band(from[i]); band <= band(to[i]); band++) {
+                edges[offsets[band]++] = i;
+            }
+        }
+    }
+
+    public int band(double value) {
+        int band = (int) ((value - min) * scale);
+        return Math.max(0, Math.min(band, starts.length - 2));
+    }
+
+    public int start(int band) {
+        return starts[band];
+    }
+
+    public int end(int band) {
+        return starts[band + 1];
+    }
+
+    public int edge(int index) {
+        return edges[index];
+    }
+
+}
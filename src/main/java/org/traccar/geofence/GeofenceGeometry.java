@@ -1,5 +1,5 @@
 /*
- * Copyright 2016 - 2020 Anton Tananaev (anton@traccar.org)
+ * Copyright 2016 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -26,6 +26,8 @@ public abstract class GeofenceGeometry {
 
     public abstract double calculateArea();
 
+    public abstract Bounds getBounds(Config config, Geofence geofence);
+
     public abstract String toWkt();
 
     public abstract void fromWkt(String wkt) throws ParseException;
@@ -52,4 +54,62 @@ public abstract class GeofenceGeometry {
         }
     }
 
+    public static class Bounds {
+
+        public static final Bounds WORLD = new Bounds(-90, -180, 90, 180);
+
+        private static final double MIN_EARTH_RADIUS = 6356752.3;
+
+        private final double minLat;
+        private final double minLon;
+        private final double maxLat;
+        private final double maxLon;
+
+        public Bounds(double minLat, double minLon, double maxLat, double maxLon) {
+            this.minLat = minLat;
+            this.minLon = minLon;
+            this.maxLat = maxLat;
+            this.maxLon = maxLon;
+        }
+
+        public double getMinLat() {
+            return minLat;
+        }
+
+        public double getMinLon() {
+            return minLon;
+        }
+
+        public double getMaxLat() {
+            return maxLat;
+        }
+
+        public double getMaxLon() {
+            return maxLon;
+        }
+
+        public boolean contains(double latitude, double longitude) {
+            return latitude >= minLat && latitude <= maxLat && longitude >= minLon && longitude <= maxLon;
+        }
+
+        public Bounds expand(double distance) {
+            double angle = distance / MIN_EARTH_RADIUS;
+            double delta = Math.toDegrees(angle);
+            double newMinLat = minLat - delta;
+            double newMaxLat = maxLat + delta;
+            if (newMinLat <= -90 || newMaxLat >= 90) {
+                return new Bounds(Math.max(newMinLat, -90), -180, Math.min(newMaxLat, 90), 180);
+            }
+            double cos = Math.cos(Math.toRadians(Math.max(Math.abs(newMinLat), Math.abs(newMaxLat))));
+            double lonDelta = Math.toDegrees(Math.asin(Math.min(1, Math.sin(Math.min(angle, Math.PI / 2)) / cos)));
+            double newMinLon = minLon - lonDelta;
+            double newMaxLon = maxLon + lonDelta;
+            if (newMinLon < -180 || newMaxLon > 180) {
+                return new Bounds(newMinLat, -180, newMaxLat, 180);
+            }
+            return new Bounds(newMinLat, newMinLon, newMaxLat, newMaxLon);
+        }
+
+    }
+
 }
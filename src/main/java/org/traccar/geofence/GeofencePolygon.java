@@ -1,5 +1,5 @@
 /*
- * Copyright 2016 - 2020 Anton Tananaev (anton@traccar.org)
+ * Copyright 2016 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -38,8 +38,15 @@ public class GeofencePolygon extends GeofenceGeometry {
 
     private ArrayList<Coordinate> coordinates;
 
+    private double[] longitudes;
     private double[] constant;
     private double[] multiple;
+    private EdgeIndex edgeIndex;
+
+    private double minLat;
+    private double maxLat;
+    private double minLon;
+    private double maxLon;
 
     private boolean needNormalize = false;
 
@@ -49,44 +56,53 @@ public class GeofencePolygon extends GeofenceGeometry {
         }
 
         int polyCorners = coordinates.size();
-        int i;
-        int j = polyCorners - 1;
-
-        if (constant != null) {
-            constant = null;
-        }
-        if (multiple != null) {
-            multiple = null;
-        }
-
-        constant = new double[polyCorners];
-        multiple = new double[polyCorners];
 
         boolean hasNegative = false;
         boolean hasPositive = false;
-        for (i = 0; i < polyCorners; i++) {
-            if (coordinates.get(i).getLon() > 90) {
+        for (Coordinate coordinate : coordinates) {
+            if (coordinate.getLon() > 90) {
                 hasPositive = true;
-            } else if (coordinates.get(i).getLon() < -90) {
+            } else if (coordinate.getLon() < -90) {
                 hasNegative = true;
             }
         }
         needNormalize = hasPositive && hasNegative;
 
-        for (i = 0; i < polyCorners; j = i++) {
-            if (normalizeLon(coordinates.get(j).getLon()) == normalizeLon(coordinates.get(i).getLon())) {
-                constant[i] = coordinates.get(i).getLat();
+        double[] latitudes = new double[polyCorners];
+        longitudes = new double[polyCorners];
+        minLat = Double.POSITIVE_INFINITY;
+        maxLat = Double.NEGATIVE_INFINITY;
+        minLon = Double.POSITIVE_INFINITY;
+        maxLon = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < polyCorners; i++) {
+            latitudes[i] = coordinates.get(i).getLat();
+            longitudes[i] = normalizeLon(coordinates.get(i).getLon());
+            minLat = Math.min(minLat, latitudes[i]);
+            maxLat = Math.max(maxLat, latitudes[i]);
+            minLon = Math.min(minLon, longitudes[i]);
+            maxLon = Math.max(maxLon, longitudes[i]);
+        }
+
+        constant = new double[polyCorners];
+        multiple = new double[polyCorners];
+        double[] edgeMin = new double[polyCorners];
+        double[] edgeMax = new double[polyCorners];
+
+        for (int i = 0, j = polyCorners - 1; i < polyCorners; j = i++) {
+            if (longitudes[j] == longitudes[i]) {
+                constant[i] = latitudes[i];
                 multiple[i] = 0;
             } else {
-                constant[i] = coordinates.get(i).getLat()
-                        - (normalizeLon(coordinates.get(i).getLon()) * coordinates.get(j).getLat())
-                        / (normalizeLon(coordinates.get(j).getLon()) - normalizeLon(coordinates.get(i).getLon()))
-                        + (normalizeLon(coordinates.get(i).getLon()) * coordinates.get(i).getLat())
-                        / (normalizeLon(coordinates.get(j).getLon()) - normalizeLon(coordinates.get(i).getLon()));
-                multiple[i] = (coordinates.get(j).getLat() - coordinates.get(i).getLat())
-                        / (normalizeLon(coordinates.get(j).getLon()) - normalizeLon(coordinates.get(i).getLon()));
+                constant[i] = latitudes[i]
+                        - (longitudes[i] * latitudes[j]) / (longitudes[j] - longitudes[i])
+                        + (longitudes[i] * latitudes[i]) / (longitudes[j] - longitudes[i]);
+                multiple[i] = (latitudes[j] - latitudes[i]) / (longitudes[j] - longitudes[i]);
             }
+            edgeMin[i] = Math.min(longitudes[i], longitudes[j]);
+            edgeMax[i] = Math.max(longitudes[i], longitudes[j]);
         }
+
+        edgeIndex = new EdgeIndex(edgeMin, edgeMax);
     }
 
     private double normalizeLon(double lon) {
@@ -99,23 +115,34 @@ public class GeofencePolygon extends GeofenceGeometry {
     @Override
     public boolean containsPoint(Config config, Geofence geofence, double latitude, double longitude) {
 
-        int polyCorners = coordinates.size();
-        int i;
-        int j = polyCorners - 1;
         double longitudeNorm = normalizeLon(longitude);
+        if (latitude < minLat || latitude > maxLat || longitudeNorm < minLon || longitudeNorm > maxLon) {
+            return false;
+        }
+
+        int polyCorners = longitudes.length;
+        int band = edgeIndex.band(longitudeNorm);
         boolean oddNodes = false;
 
-        for (i = 0; i < polyCorners; j = i++) {
-            if (normalizeLon(coordinates.get(i).getLon()) < longitudeNorm
-                    && normalizeLon(coordinates.get(j).getLon()) >= longitudeNorm
-                    || normalizeLon(coordinates.get(j).getLon()) < longitudeNorm
-                    && normalizeLon(coordinates.get(i).getLon()) >= longitudeNorm) {
+        for (int k = edgeIndex.start(band); k < edgeIndex.end(band); k++) {
+            int i = edgeIndex.edge(k);
+            int j = i > 0 ? i - 1 : polyCorners - 1;
+            if (longitudes[i] < longitudeNorm && longitudes[j] >= longitudeNorm
+                    || longitudes[j] < longitudeNorm && longitudes[i] >= longitudeNorm) {
                 oddNodes ^= longitudeNorm * multiple[i] + constant[i] < latitude;
             }
         }
         return oddNodes;
     }
 
+    @Override
+    public Bounds getBounds(Config config, Geofence geofence) {
+        if (needNormalize) {
+            return new Bounds(minLat, -180, maxLat, 180);
+        }
+        return new Bounds(minLat, minLon, maxLat, maxLon);
+    }
+
     @Override
     public double calculateArea() {
         JtsShapeFactory jtsShapeFactory = new JtsSpatialContextFactory().newSpatialContext().getShapeFactory();
@@ -1,5 +1,5 @@
 /*
- * Copyright 2016 - 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2016 - 2023 Anton Tananaev (anton@traccar.org)
  * Copyright 2016 Andrey Kunitsyn (andrey@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
@@ -26,8 +26,25 @@ import org.traccar.model.Geofence;
 
 public class GeofencePolyline extends GeofenceGeometry {
 
+    private static final double MAX_SEGMENT_SPAN = 1.0;
+    private static final double DISTANCE_MARGIN = 1.1;
+    private static final double EARTH_RADIUS = 6378137;
+
     private ArrayList<Coordinate> coordinates;
 
+    private double[] latitudes;
+    private double[] longitudes;
+    private double[] segmentMinLon;
+    private double[] segmentMaxLon;
+    private EdgeIndex segmentIndex;
+    private boolean longSegments;
+    private double bulge;
+
+    private double minLat;
+    private double maxLat;
+    private double minLon;
+    private double maxLon;
+
     public GeofencePolyline() {
     }
 
@@ -35,22 +52,104 @@ public class GeofencePolyline extends GeofenceGeometry {
         fromWkt(wkt);
     }
 
-    @Override
-    public boolean containsPoint(Config config, Geofence geofence, double latitude, double longitude) {
+    private void preCalculate() {
+        int count = coordinates.size();
+        latitudes = new double[count];
+        longitudes = new double[count];
+        minLat = Double.POSITIVE_INFINITY;
+        maxLat = Double.NEGATIVE_INFINITY;
+        minLon = Double.POSITIVE_INFINITY;
+        maxLon = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            latitudes[i] = coordinates.get(i).getLat();
+            longitudes[i] = coordinates.get(i).getLon();
+            minLat = Math.min(minLat, latitudes[i]);
+            maxLat = Math.max(maxLat, latitudes[i]);
+            minLon = Math.min(minLon, longitudes[i]);
+            maxLon = Math.max(maxLon, longitudes[i]);
+        }
+
+        longSegments = false;
+        bulge = 0;
+        segmentMinLon = new double[count - 1];
+        segmentMaxLon = new double[count - 1];
+        for (int i = 1; i < count; i++) {
+            segmentMinLon[i - 1] = Math.min(longitudes[i - 1], longitudes[i]);
+            segmentMaxLon[i - 1] = Math.max(longitudes[i - 1], longitudes[i]);
+            if (Math.abs(latitudes[i] - latitudes[i - 1]) > MAX_SEGMENT_SPAN
+                    || segmentMaxLon[i - 1] - segmentMinLon[i - 1] > MAX_SEGMENT_SPAN) {
+                // long segments deviate from the straight line between their ends
+                longSegments = true;
+            }
+            // great circle drifts poleward from the straight line by up to dLon^2 * sin(2 * lat) / 16 radians
+            double span = Math.toRadians(segmentMaxLon[i - 1] - segmentMinLon[i - 1]);
+            bulge = Math.max(bulge, EARTH_RADIUS * span * span / 16);
+        }
+        segmentIndex = new EdgeIndex(segmentMinLon, segmentMaxLon);
+    }
+
+    private static double getDistance(Config config, Geofence geofence) {
         double distance = geofence.getDouble("polylineDistance");
         if (distance == 0) {
             distance = config.getDouble(Keys.GEOFENCE_POLYLINE_DISTANCE);
         }
-        for (int i = 1; i < coordinates.size(); i++) {
-            if (DistanceCalculator.distanceToLine(
-                    latitude, longitude, coordinates.get(i - 1).getLat(), coordinates.get(i - 1).getLon(),
-                    coordinates.get(i).getLat(), coordinates.get(i).getLon()) <= distance) {
-                return true;
+        return distance;
+    }
+
+    private boolean isNearSegment(int i, double latitude, double longitude, double distance) {
+        return DistanceCalculator.distanceToLine(
+                latitude, longitude, latitudes[i], longitudes[i], latitudes[i + 1], longitudes[i + 1]) <= distance;
+    }
+
+    @Override
+    public boolean containsPoint(Config config, Geofence geofence, double latitude, double longitude) {
+        double distance = getDistance(config, geofence);
+
+        if (longSegments) {
+            for (int i = 0; i < latitudes.length - 1; i++) {
+                if (isNearSegment(i, latitude, longitude, distance)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        Bounds window = new Bounds(latitude, longitude, latitude, longitude).expand(distance * DISTANCE_MARGIN + bulge);
+        if (window.getMaxLat() < minLat || window.getMinLat() > maxLat
+                || window.getMaxLon() < minLon || window.getMinLon() > maxLon) {
+            return false;
+        }
+
+        int firstBand = segmentIndex.band(window.getMinLon());
+        int lastBand = segmentIndex.band(window.getMaxLon());
+        for (int band = firstBand; band <= lastBand; band++) {
+            for (int k = segmentIndex.start(band); k < segmentIndex.end(band); k++) {
+                int i = segmentIndex.edge(k);
+                if (Math.max(segmentIndex.band(segmentMinLon[i]), firstBand) != band) {
+                    continue;
+                }
+                if (segmentMaxLon[i] < window.getMinLon() || segmentMinLon[i] > window.getMaxLon()
+                        || Math.max(latitudes[i], latitudes[i + 1]) < window.getMinLat()
+                        || Math.min(latitudes[i], latitudes[i + 1]) > window.getMaxLat()) {
+                    continue;
+                }
+                if (isNearSegment(i, latitude, longitude, distance)) {
+                    return true;
+                }
             }
         }
         return false;
     }
 
+    @Override
+    public Bounds getBounds(Config config, Geofence geofence) {
+        if (longSegments) {
+            return Bounds.WORLD;
+        }
+        double distance = getDistance(config, geofence);
+        return new Bounds(minLat, minLon, maxLat, maxLon).expand(distance * DISTANCE_MARGIN + bulge);
+    }
+
     @Override
     public double calculateArea() {
         return 0;
@@ -108,6 +207,7 @@ public class GeofencePolyline extends GeofenceGeometry {
             coordinates.add(coordinate);
         }
 
+        preCalculate();
     }
 
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.geolocation;
+
+import org.traccar.helper.RequestLimiter;
+import org.traccar.model.Network;
+
+public class LimitedGeolocationProvider implements GeolocationProvider {
+
+    private final GeolocationProvider geolocationProvider;
+    private final RequestLimiter<Network, double[]> limiter;
+
+    public LimitedGeolocationProvider(
+            GeolocationProvider geolocationProvider, RequestLimiter<Network, double[]> limiter) {
+        this.geolocationProvider = geolocationProvider;
+        this.limiter = limiter;
+    }
+
+    public RequestLimiter<Network, double[]> getLimiter() {
+        return limiter;
+    }
+
+    @Override
+    public void getLocation(Network network, LocationProviderCallback callback) {
+        limiter.execute(
+                network,
+                result -> geolocationProvider.getLocation(network, new LocationProviderCallback() {
+                    @Override
+                    public void onSuccess(double latitude, double longitude, double accuracy) {
+                        result.onSuccess(new double[] {latitude, longitude, accuracy});
+                    }
+
+                    @Override
+                    public void onFailure(Throwable e) {
+                        result.onFailure(e);
+                    }
+                }),
+                new RequestLimiter.Callback<>() {
+                    @Override
+                    public void onSuccess(double[] location) {
+                        callback.onSuccess(location[0], location[1], location[2]);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable e) {
+                        callback.onFailure(e);
+                    }
+                });
+    }
+
+}
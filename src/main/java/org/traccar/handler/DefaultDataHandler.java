@@ -1,5 +1,5 @@
 /*
- * Copyright 2015 - 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2015 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,14 +16,19 @@
 package org.traccar.handler;
 
 import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.traccar.BaseDataHandler;
+import org.traccar.ProcessingExecutor;
+import org.traccar.database.LatencyManager;
+import org.traccar.database.PositionBatchWriter;
 import org.traccar.model.Position;
 import org.traccar.storage.Storage;
 import org.traccar.storage.query.Columns;
 import org.traccar.storage.query.Request;
 
+import jakarta.annotation.Nullable;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 
@@ -34,10 +39,32 @@ public class DefaultDataHandler extends BaseDataHandler {
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultDataHandler.class);
 
     private final Storage storage;
+    private final LatencyManager latencyManager;
+    private final PositionBatchWriter positionBatchWriter;
 
     @Inject
-    public DefaultDataHandler(Storage storage) {
+    public DefaultDataHandler(
+            Storage storage, LatencyManager latencyManager, @Nullable PositionBatchWriter positionBatchWriter) {
         this.storage = storage;
+        this.latencyManager = latencyManager;
+        this.positionBatchWriter = positionBatchWriter;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof Position && positionBatchWriter != null) {
+            Position position = (Position) msg;
+            positionBatchWriter.write(position, stored -> {
+                if (stored) {
+                    latencyManager.registerSinceDecode(position, LatencyManager.STAGE_COMMIT);
+                    ProcessingExecutor.fireChannelRead(ctx, position);
+                } else {
+                    ctx.writeAndFlush(new AcknowledgementHandler.EventHandled(position));
+                }
+            });
+        } else {
+            super.channelRead(ctx, msg);
+        }
     }
 
     @Override
@@ -45,6 +72,7 @@ public class DefaultDataHandler extends BaseDataHandler {
 
         try {
             position.setId(storage.addObject(position, new Request(new Columns.Exclude("id"))));
+            latencyManager.registerSinceDecode(position, LatencyManager.STAGE_COMMIT);
         } catch (Exception error) {
             LOGGER.warn("Failed to store position", error);
         }
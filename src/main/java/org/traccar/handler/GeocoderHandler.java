@@ -20,6 +20,7 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.traccar.ProcessingExecutor;
 import org.traccar.config.Config;
 import org.traccar.config.Keys;
 import org.traccar.geocoder.Geocoder;
@@ -65,13 +66,13 @@ public class GeocoderHandler extends ChannelInboundHandlerAdapter {
                     @Override
                     public void onSuccess(String address) {
                         position.setAddress(address);
-                        ctx.fireChannelRead(position);
+                        ProcessingExecutor.fireChannelRead(ctx, position);
                     }
 
                     @Override
                     public void onFailure(Throwable e) {
                         LOGGER.warn("Geocoding failed", e);
-                        ctx.fireChannelRead(position);
+                        ProcessingExecutor.fireChannelRead(ctx, position);
                     }
                 });
             } else {
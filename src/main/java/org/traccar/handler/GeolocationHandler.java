@@ -20,6 +20,7 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.traccar.ProcessingExecutor;
 import org.traccar.config.Config;
 import org.traccar.config.Keys;
 import org.traccar.database.StatisticsManager;
@@ -77,13 +78,13 @@ public class GeolocationHandler extends ChannelInboundHandlerAdapter {
                     @Override
                     public void onSuccess(double latitude, double longitude, double accuracy) {
                         updatePosition(position, latitude, longitude, accuracy);
-                        ctx.fireChannelRead(position);
+                        ProcessingExecutor.fireChannelRead(ctx, position);
                     }
 
                     @Override
                     public void onFailure(Throwable e) {
                         LOGGER.warn("Geolocation network error", e);
-                        ctx.fireChannelRead(position);
+                        ProcessingExecutor.fireChannelRead(ctx, position);
                     }
                 });
             } else {
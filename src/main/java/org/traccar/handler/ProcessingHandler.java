@@ -0,0 +1,118 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.handler;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.AttributeKey;
+import io.netty.util.ReferenceCountUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.BasePipelineFactory;
+import org.traccar.BaseProtocolDecoder;
+import org.traccar.ProcessingExecutor;
+import org.traccar.helper.NetworkUtil;
+import org.traccar.model.Position;
+
+import java.util.concurrent.RejectedExecutionException;
+
+@ChannelHandler.Sharable
+public class ProcessingHandler extends ChannelInboundHandlerAdapter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProcessingHandler.class);
+
+    private final ProcessingExecutor executor;
+    private BaseProtocolDecoder decoder;
+
+    public ProcessingHandler(ProcessingExecutor executor) {
+        this.executor = executor;
+    }
+
+    private static final AttributeKey<Long> DEVICE_KEY = AttributeKey.valueOf("processingDeviceKey");
+
+    /**
+     * Lifecycle events follow the last device seen on the channel, so they run after positions already queued for
+     * that device.
+     */
+    private static long channelKey(ChannelHandlerContext ctx) {
+        Long deviceKey = ctx.channel().attr(DEVICE_KEY).get();
+        return deviceKey != null ? deviceKey : ctx.channel().id().hashCode();
+    }
+
+    /**
+     * Datagrams are keyed by the device identifier in the packet when the decoder can read it, so messages of a device
+     * are decoded in order even if its address changes.
+     */
+    private long datagramKey(ChannelHandlerContext ctx, DatagramPacket packet) {
+        if (decoder == null) {
+            decoder = BasePipelineFactory.getHandler(ctx.pipeline(), BaseProtocolDecoder.class);
+        }
+        String uniqueId = decoder != null ? decoder.getDatagramUniqueId(packet.content()) : null;
+        return uniqueId != null ? uniqueId.hashCode() : packet.sender().hashCode();
+    }
+
+    private long messageKey(ChannelHandlerContext ctx, Object msg) {
+        if (msg instanceof Position) {
+            long deviceId = ((Position) msg).getDeviceId();
+            ctx.channel().attr(DEVICE_KEY).set(deviceId);
+            return deviceId;
+        } else if (msg instanceof DatagramPacket) {
+            return datagramKey(ctx, (DatagramPacket) msg);
+        }
+        return channelKey(ctx);
+    }
+
+    private boolean dispatch(ChannelHandlerContext ctx, long key, Runnable task) {
+        try {
+            executor.execute(key, task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("[{}] processing queue is full ({} queued, {} rejected)",
+                    NetworkUtil.session(ctx.channel()), executor.getQueueSize(), executor.getRejectedCount());
+            return false;
+        }
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (!dispatch(ctx, messageKey(ctx, msg), () -> ctx.fireChannelRead(msg))) {
+            ReferenceCountUtil.release(msg);
+        }
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) {
+        dispatch(ctx, channelKey(ctx), ctx::fireChannelActive);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) {
+        dispatch(ctx, channelKey(ctx), ctx::fireChannelInactive);
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
+        dispatch(ctx, channelKey(ctx), () -> ctx.fireUserEventTriggered(evt));
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        dispatch(ctx, channelKey(ctx), () -> ctx.fireExceptionCaught(cause));
+    }
+
+}
@@ -20,6 +20,7 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.traccar.ProcessingExecutor;
 import org.traccar.model.Position;
 import org.traccar.speedlimit.SpeedLimitProvider;
 
@@ -48,13 +49,13 @@ public class SpeedLimitHandler extends ChannelInboundHandlerAdapter {
                 @Override
                 public void onSuccess(double speedLimit) {
                     position.set(Position.KEY_SPEED_LIMIT, speedLimit);
-                    ctx.fireChannelRead(position);
+                    ProcessingExecutor.fireChannelRead(ctx, position);
                 }
 
                 @Override
                 public void onFailure(Throwable e) {
                     LOGGER.warn("Speed limit provider failed", e);
-                    ctx.fireChannelRead(position);
+                    ProcessingExecutor.fireChannelRead(ctx, position);
                 }
             });
         } else {
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.helper;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 32;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    private static int bucket(long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(nanos, 0));
+        return Math.min(Long.SIZE - Long.numberOfLeadingZeros(micros), BUCKETS - 1);
+    }
+
+    private static long upperBound(int bucket) {
+        return TimeUnit.MICROSECONDS.toNanos(1L << bucket);
+    }
+
+    public void record(long nanos) {
+        buckets[bucket(nanos)].increment();
+        sum.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    public long getMean() {
+        long count = getCount();
+        return count > 0 ? sum.sum() / count : 0;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public long getPercentile(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            count += counts[i];
+        }
+        long threshold = (long) Math.ceil(count * percentile);
+        long accumulated = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            accumulated += counts[i];
+            if (accumulated >= threshold && accumulated > 0) {
+                return Math.min(upperBound(i), getMax());
+            }
+        }
+        return 0;
+    }
+
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.helper;
+
+import io.netty.util.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RequestLimiter<K, T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestLimiter.class);
+
+    public interface Callback<T> {
+
+        void onSuccess(T result);
+
+        void onFailure(Throwable e);
+
+    }
+
+    public interface Request<T> {
+
+        void execute(Callback<T> callback);
+
+    }
+
+    private final class Pending implements Callback<T> {
+
+        private final K key;
+        private final Request<T> request;
+        private final List<Callback<T>> callbacks = new ArrayList<>();
+        private long started;
+        private boolean completed;
+
+        private Pending(K key, Request<T> request) {
+            this.key = key;
+            this.request = request;
+        }
+
+        private void execute() {
+            started = System.nanoTime();
+            try {
+                request.execute(this);
+            } catch (RuntimeException e) {
+                onFailure(e);
+            }
+        }
+
+        private List<Callback<T>> complete() {
+            List<Callback<T>> result;
+            synchronized (RequestLimiter.this) {
+                if (completed) {
+                    return List.of();
+                }
+                completed = true;
+                active -= 1;
+                pending.remove(key);
+                result = new ArrayList<>(callbacks);
+            }
+            latency.record(System.nanoTime() - started);
+            drain();
+            return result;
+        }
+
+        @Override
+        public void onSuccess(T result) {
+            for (Callback<T> callback : complete()) {
+                try {
+                    callback.onSuccess(result);
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Request callback failed", e);
+                }
+            }
+        }
+
+        @Override
+        public void onFailure(Throwable e) {
+            for (Callback<T> callback : complete()) {
+                try {
+                    callback.onFailure(e);
+                } catch (RuntimeException error) {
+                    LOGGER.warn("Request callback failed", error);
+                }
+            }
+        }
+
+    }
+
+    private final Timer timer;
+    private final int concurrency;
+    private final int queueSize;
+    private final double rate;
+    private final double burst;
+
+    private final Map<K, Pending> pending = new HashMap<>();
+    private final Queue<Pending> queue = new ArrayDeque<>();
+    private int active;
+    private double tokens;
+    private long refillTime;
+    private boolean drainScheduled;
+    private boolean draining;
+
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    public RequestLimiter(Timer timer, int concurrency, int queueSize, double rate) {
+        this.timer = timer;
+        this.concurrency = concurrency > 0 ? concurrency : Integer.MAX_VALUE;
+        this.queueSize = queueSize > 0 ? queueSize : Integer.MAX_VALUE;
+        this.rate = rate;
+        this.burst = Math.max(rate, 1);
+        this.tokens = burst;
+        this.refillTime = System.nanoTime();
+    }
+
+    public void execute(K key, Request<T> request, Callback<T> callback) {
+        boolean accepted = false;
+        synchronized (this) {
+            Pending existing = pending.get(key);
+            if (existing != null) {
+                existing.callbacks.add(callback);
+                coalescedCount.incrementAndGet();
+                return;
+            }
+            if (queue.size() < queueSize) {
+                Pending entry = new Pending(key, request);
+                entry.callbacks.add(callback);
+                pending.put(key, entry);
+                queue.add(entry);
+                accepted = true;
+            }
+        }
+        if (accepted) {
+            drain();
+        } else {
+            rejectedCount.incrementAndGet();
+            callback.onFailure(new RejectedExecutionException("Request queue is full"));
+        }
+    }
+
+    private boolean acquireToken() {
+        if (rate <= 0) {
+            return true;
+        }
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - refillTime) * rate / TimeUnit.SECONDS.toNanos(1));
+        refillTime = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    private void drain() {
+        synchronized (this) {
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+        // requests completing inline only wake up this loop instead of recursing into it
+        List<Pending> ready;
+        do {
+            ready = drainReady();
+            for (Pending entry : ready) {
+                entry.execute();
+            }
+        } while (!ready.isEmpty());
+    }
+
+    private synchronized List<Pending> drainReady() {
+        List<Pending> ready = new ArrayList<>();
+        while (active < concurrency && !queue.isEmpty()) {
+            if (!acquireToken()) {
+                if (!drainScheduled) {
+                    drainScheduled = true;
+                    long delay = (long) Math.ceil((1 - tokens) * TimeUnit.SECONDS.toNanos(1) / rate);
+                    timer.newTimeout(timeout -> {
+                        synchronized (this) {
+                            drainScheduled = false;
+                        }
+                        drain();
+                    }, delay, TimeUnit.NANOSECONDS);
+                }
+                break;
+            }
+            active += 1;
+            ready.add(queue.poll());
+        }
+        if (ready.isEmpty()) {
+            draining = false;
+        }
+        return ready;
+    }
+
+    public synchronized int getQueueSize() {
+        return queue.size();
+    }
+
+    public synchronized int getActiveCount() {
+        return active;
+    }
+
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2022 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -30,6 +30,7 @@ import org.traccar.storage.query.Request;
 import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public final class PositionUtil {
 
@@ -54,14 +55,23 @@ public final class PositionUtil {
         return distance;
     }
 
-    public static List<Position> getPositions(
-            Storage storage, long deviceId, Date from, Date to) throws StorageException {
-        return storage.getObjects(Position.class, new Request(
+    private static Request getPositionsRequest(long deviceId, Date from, Date to) {
+        return new Request(
                 new Columns.All(),
                 new Condition.And(
                         new Condition.Equals("deviceId", deviceId),
                         new Condition.Between("fixTime", "from", from, "to", to)),
-                new Order("fixTime")));
+                new Order("fixTime"));
+    }
+
+    public static List<Position> getPositions(
+            Storage storage, long deviceId, Date from, Date to) throws StorageException {
+        return storage.getObjects(Position.class, getPositionsRequest(deviceId, from, to));
+    }
+
+    public static Stream<Position> getPositionsStream(
+            Storage storage, long deviceId, Date from, Date to) throws StorageException {
+        return storage.getObjectsStream(Position.class, getPositionsRequest(deviceId, from, to));
     }
 
     public static List<Position> getLatestPositions(Storage storage, long userId) throws StorageException {
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.model;
+
+import java.util.Set;
+
+public class OverloadState {
+
+    private boolean shedding;
+
+    public boolean getShedding() {
+        return shedding;
+    }
+
+    public void setShedding(boolean shedding) {
+        this.shedding = shedding;
+    }
+
+    private long latency;
+
+    public long getLatency() {
+        return latency;
+    }
+
+    public void setLatency(long latency) {
+        this.latency = latency;
+    }
+
+    private int backlog;
+
+    public int getBacklog() {
+        return backlog;
+    }
+
+    public void setBacklog(int backlog) {
+        this.backlog = backlog;
+    }
+
+    private Set<String> stages;
+
+    public Set<String> getStages() {
+        return stages;
+    }
+
+    public void setStages(Set<String> stages) {
+        this.stages = stages;
+    }
+
+}
@@ -102,6 +102,7 @@ public class Position extends Message {
 
     public static final String KEY_DRIVER_UNIQUE_ID = "driverUniqueId";
     public static final String KEY_CARD = "card";
+    public static final String KEY_BYPASSED = "bypassed";
 
     // Start with 1 not 0
     public static final String PREFIX_TEMP = "temp";
@@ -215,6 +216,20 @@ public class Position extends Message {
         this.outdated = outdated;
     }
 
+    private long stageTime;
+
+    @JsonIgnore
+    @QueryIgnore
+    public long getStageTime() {
+        return stageTime;
+    }
+
+    @JsonIgnore
+    @QueryIgnore
+    public void setStageTime(long stageTime) {
+        this.stageTime = stageTime;
+    }
+
     private boolean valid;
 
     public boolean getValid() {
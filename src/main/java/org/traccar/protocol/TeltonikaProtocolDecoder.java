@@ -19,6 +19,7 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
 import org.traccar.BaseProtocolDecoder;
 import org.traccar.helper.BufferUtil;
 import org.traccar.model.Device;
@@ -41,8 +42,10 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
 
+@ChannelHandler.Sharable
 public class TeltonikaProtocolDecoder extends BaseProtocolDecoder {
 
     private static final int IMAGE_PACKET_MAX = 2048;
@@ -50,8 +53,8 @@ public class TeltonikaProtocolDecoder extends BaseProtocolDecoder {
     private static final Map<Integer, Map<Set<String>, BiConsumer<Position, ByteBuf>>> PARAMETERS = new HashMap<>();
 
     private final boolean connectionless;
-    private boolean extended;
-    private final Map<Long, ByteBuf> photos = new HashMap<>();
+    private volatile boolean extended;
+    private final Map<Long, ByteBuf> photos = new ConcurrentHashMap<>();
 
     public void setExtended(boolean extended) {
         this.extended = extended;
@@ -722,6 +725,17 @@ public class TeltonikaProtocolDecoder extends BaseProtocolDecoder {
         return null;
     }
 
+    @Override
+    public String getDatagramUniqueId(ByteBuf buf) {
+        if (connectionless && buf.readableBytes() >= 8) {
+            int length = buf.getUnsignedShort(buf.readerIndex() + 6);
+            if (buf.readableBytes() >= 8 + length) {
+                return buf.toString(buf.readerIndex() + 8, length, StandardCharsets.US_ASCII);
+            }
+        }
+        return null;
+    }
+
     private Object decodeUdp(Channel channel, SocketAddress remoteAddress, ByteBuf buf) {
 
         buf.readUnsignedShort(); // length
@@ -23,9 +23,11 @@ import org.traccar.Protocol;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
 
 import java.nio.charset.StandardCharsets;
 
+@ChannelHandler.Sharable
 public class TeltonikaProtocolEncoder extends BaseProtocolEncoder {
 
     public TeltonikaProtocolEncoder(Protocol protocol) {
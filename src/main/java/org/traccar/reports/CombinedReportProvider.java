@@ -19,6 +19,7 @@ import org.traccar.helper.model.DeviceUtil;
 import org.traccar.helper.model.PositionUtil;
 import org.traccar.model.Device;
 import org.traccar.model.Event;
+import org.traccar.model.Position;
 import org.traccar.reports.common.ReportUtils;
 import org.traccar.reports.model.CombinedReportItem;
 import org.traccar.storage.Storage;
@@ -57,10 +58,6 @@ public class CombinedReportProvider {
         for (Device device: DeviceUtil.getAccessibleDevices(storage, userId, deviceIds, groupIds)) {
             CombinedReportItem item = new CombinedReportItem();
             item.setDeviceId(device.getId());
-            var positions = PositionUtil.getPositions(storage, device.getId(), from, to);
-            item.setRoute(positions.stream()
-                    .map(p -> new double[] {p.getLongitude(), p.getLatitude()})
-                    .collect(Collectors.toList()));
             var events = storage.getObjects(Event.class, new Request(
                     new Columns.All(),
                     new Condition.And(
@@ -73,9 +70,18 @@ public class CombinedReportProvider {
             var eventPositions = events.stream()
                     .map(Event::getPositionId)
                     .collect(Collectors.toSet());
-            item.setPositions(positions.stream()
-                    .filter(p -> eventPositions.contains(p.getId()))
-                    .collect(Collectors.toList()));
+            var route = new ArrayList<double[]>();
+            var positions = new ArrayList<Position>();
+            try (var stream = PositionUtil.getPositionsStream(storage, device.getId(), from, to)) {
+                stream.forEach(p -> {
+                    route.add(new double[] {p.getLongitude(), p.getLatitude()});
+                    if (eventPositions.contains(p.getId())) {
+                        positions.add(p);
+                    }
+                });
+            }
+            item.setRoute(route);
+            item.setPositions(positions);
             result.add(item);
         }
         return result;
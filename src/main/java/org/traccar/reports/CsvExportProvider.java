@@ -1,5 +1,5 @@
 /*
- * Copyright 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2022 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -27,6 +27,7 @@ import java.io.PrintWriter;
 import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -42,11 +43,12 @@ public class CsvExportProvider {
     public void generate(
             OutputStream outputStream, long deviceId, Date from, Date to) throws StorageException {
 
-        var positions = PositionUtil.getPositions(storage, deviceId, from, to);
-
-        var attributes = positions.stream()
-                .flatMap((position -> position.getAttributes().keySet().stream()))
-                .collect(Collectors.toUnmodifiableSet());
+        Set<String> attributes;
+        try (var positions = PositionUtil.getPositionsStream(storage, deviceId, from, to)) {
+            attributes = positions
+                    .flatMap((position -> position.getAttributes().keySet().stream()))
+                    .collect(Collectors.toUnmodifiableSet());
+        }
 
         var properties = new LinkedHashMap<String, Function<Position, Object>>();
         properties.put("id", Position::getId);
@@ -65,7 +67,8 @@ public class CsvExportProvider {
         properties.put("accuracy", Position::getAccuracy);
         attributes.forEach(key -> properties.put(key, position -> position.getAttributes().get(key)));
 
-        try (PrintWriter writer = new PrintWriter(outputStream)) {
+        try (PrintWriter writer = new PrintWriter(outputStream);
+             var positions = PositionUtil.getPositionsStream(storage, deviceId, from, to)) {
             writer.println(String.join(",", properties.keySet()));
             positions.forEach(position -> writer.println(properties.values().stream()
                     .map(f -> Objects.toString(f.apply(position), ""))
@@ -1,5 +1,5 @@
 /*
- * Copyright 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2022 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -43,9 +43,9 @@ public class GpxExportProvider {
 
         var device = storage.getObject(Device.class, new Request(
                 new Columns.All(), new Condition.Equals("id", deviceId)));
-        var positions = PositionUtil.getPositions(storage, deviceId, from, to);
 
-        try (PrintWriter writer = new PrintWriter(outputStream)) {
+        try (PrintWriter writer = new PrintWriter(outputStream);
+             var positions = PositionUtil.getPositionsStream(storage, deviceId, from, to)) {
             writer.print("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
             writer.print("<gpx version=\"1.0\">");
             writer.print("<trk>");
@@ -88,15 +88,16 @@ public class SummaryReportProvider {
             first = getEdgePosition(device.getId(), from, to, false);
             last = getEdgePosition(device.getId(), from, to, true);
         } else {
-            var positions = PositionUtil.getPositions(storage, device.getId(), from, to);
-            for (Position position : positions) {
-                if (first == null) {
-                    first = position;
+            try (var positions = PositionUtil.getPositionsStream(storage, device.getId(), from, to)) {
+                for (Position position : (Iterable<Position>) positions::iterator) {
+                    if (first == null) {
+                        first = position;
+                    }
+                    if (position.getSpeed() > result.getMaxSpeed()) {
+                        result.setMaxSpeed(position.getSpeed());
+                    }
+                    last = position;
                 }
-                if (position.getSpeed() > result.getMaxSpeed()) {
-                    result.setMaxSpeed(position.getSpeed());
-                }
-                last = position;
             }
         }
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2016 - 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2016 - 2023 Anton Tananaev (anton@traccar.org)
  * Copyright 2016 - 2017 Andrey Kunitsyn (andrey@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
@@ -62,6 +62,7 @@ import java.math.RoundingMode;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
@@ -275,19 +276,19 @@ public class ReportUtils {
         }
     }
 
-    private boolean isMoving(List<Position> positions, int index, TripsConfig tripsConfig) {
+    private boolean isMoving(Position previous, Position position, Position next, TripsConfig tripsConfig) {
         if (tripsConfig.getMinimalNoDataDuration() > 0) {
-            boolean beforeGap = index < positions.size() - 1
-                    && positions.get(index + 1).getFixTime().getTime() - positions.get(index).getFixTime().getTime()
+            boolean beforeGap = next != null
+                    && next.getFixTime().getTime() - position.getFixTime().getTime()
                     >= tripsConfig.getMinimalNoDataDuration();
-            boolean afterGap = index > 0
-                    && positions.get(index).getFixTime().getTime() - positions.get(index - 1).getFixTime().getTime()
+            boolean afterGap = previous != null
+                    && position.getFixTime().getTime() - previous.getFixTime().getTime()
                     >= tripsConfig.getMinimalNoDataDuration();
             if (beforeGap || afterGap) {
                 return false;
             }
         }
-        return positions.get(index).getBoolean(Position.KEY_MOTION);
+        return position.getBoolean(Position.KEY_MOTION);
     }
 
     public <T extends BaseReportItem> List<T> detectTripsAndStops(
@@ -301,66 +302,90 @@ public class ReportUtils {
         }
     }
 
+    private static final class Interval {
+        private final Position start;
+        private final Position end;
+        private final double maxSpeed;
+
+        private Interval(Position start, Position end, double maxSpeed) {
+            this.start = start;
+            this.end = end;
+            this.maxSpeed = maxSpeed;
+        }
+    }
+
     public <T extends BaseReportItem> List<T> slowTripsAndStops(
             Device device, Date from, Date to, Class<T> reportClass) throws StorageException {
 
-        List<T> result = new ArrayList<>();
+        List<Interval> intervals = new ArrayList<>();
         TripsConfig tripsConfig = new TripsConfig(
                 new AttributeUtil.StorageProvider(config, storage, permissionsService, device));
         boolean ignoreOdometer = config.getBoolean(Keys.REPORT_IGNORE_ODOMETER);
 
-        var positions = PositionUtil.getPositions(storage, device.getId(), from, to);
-        if (!positions.isEmpty()) {
-            boolean trips = reportClass.equals(TripReportItem.class);
-
-            MotionState motionState = new MotionState();
-            boolean initialValue = isMoving(positions, 0, tripsConfig);
-            motionState.setMotionStreak(initialValue);
-            motionState.setMotionState(initialValue);
-
-            boolean detected = trips == motionState.getMotionState();
-            double maxSpeed = 0;
-            int startEventIndex = detected ? 0 : -1;
-            int startNoEventIndex = -1;
-            for (int i = 0; i < positions.size(); i++) {
-                boolean motion = isMoving(positions, i, tripsConfig);
-                if (motionState.getMotionState() != motion) {
-                    if (motion == trips) {
-                        if (!detected) {
-                            startEventIndex = i;
-                            maxSpeed = positions.get(i).getSpeed();
+        try (var positions = PositionUtil.getPositionsStream(storage, device.getId(), from, to)) {
+            Iterator<Position> iterator = positions.iterator();
+            if (iterator.hasNext()) {
+                boolean trips = reportClass.equals(TripReportItem.class);
+
+                Position previous = null;
+                Position position = iterator.next();
+                Position next = iterator.hasNext() ? iterator.next() : null;
+
+                MotionState motionState = new MotionState();
+                boolean initialValue = isMoving(previous, position, next, tripsConfig);
+                motionState.setMotionStreak(initialValue);
+                motionState.setMotionState(initialValue);
+
+                boolean detected = trips == motionState.getMotionState();
+                double maxSpeed = 0;
+                Position startEvent = detected ? position : null;
+                Position startNoEvent = null;
+                while (position != null) {
+                    boolean motion = isMoving(previous, position, next, tripsConfig);
+                    if (motionState.getMotionState() != motion) {
+                        if (motion == trips) {
+                            if (!detected) {
+                                startEvent = position;
+                                maxSpeed = position.getSpeed();
+                            }
+                            startNoEvent = null;
+                        } else {
+                            startNoEvent = position;
                         }
-                        startNoEventIndex = -1;
                     } else {
-                        startNoEventIndex = i;
+                        maxSpeed = Math.max(maxSpeed, position.getSpeed());
                     }
-                } else {
-                    maxSpeed = Math.max(maxSpeed, positions.get(i).getSpeed());
-                }
 
-                MotionProcessor.updateState(motionState, positions.get(i), motion, tripsConfig);
-                if (motionState.getEvent() != null) {
-                    if (motion == trips) {
-                        detected = true;
-                        startNoEventIndex = -1;
-                    } else if (startEventIndex >= 0 && startNoEventIndex >= 0) {
-                        result.add(calculateTripOrStop(
-                                device, positions.get(startEventIndex), positions.get(startNoEventIndex),
-                                maxSpeed, ignoreOdometer, reportClass));
-                        detected = false;
-                        startEventIndex = -1;
-                        startNoEventIndex = -1;
+                    MotionProcessor.updateState(motionState, position, motion, tripsConfig);
+                    if (motionState.getEvent() != null) {
+                        if (motion == trips) {
+                            detected = true;
+                            startNoEvent = null;
+                        } else if (startEvent != null && startNoEvent != null) {
+                            intervals.add(new Interval(startEvent, startNoEvent, maxSpeed));
+                            detected = false;
+                            startEvent = null;
+                            startNoEvent = null;
+                        }
                     }
+
+                    previous = position;
+                    position = next;
+                    next = iterator.hasNext() ? iterator.next() : null;
+                }
+                if (detected && startEvent != null && startEvent != previous) {
+                    Position end = startNoEvent != null ? startNoEvent : previous;
+                    intervals.add(new Interval(startEvent, end, maxSpeed));
                 }
-            }
-            if (detected & startEventIndex >= 0 && startEventIndex < positions.size() - 1) {
-                int endIndex = startNoEventIndex >= 0 ? startNoEventIndex : positions.size() - 1;
-                result.add(calculateTripOrStop(
-                        device, positions.get(startEventIndex), positions.get(endIndex),
-                        maxSpeed, ignoreOdometer, reportClass));
             }
         }
 
+        // resolve drivers and addresses after the positions stream has released its connection
+        List<T> result = new ArrayList<>();
+        for (Interval interval : intervals) {
+            result.add(calculateTripOrStop(
+                    device, interval.start, interval.end, interval.maxSpeed, ignoreOdometer, reportClass));
+        }
         return result;
     }
 
@@ -42,7 +42,11 @@ public class ScheduleManager implements LifecycleObject {
                 TaskReports.class,
                 TaskDeviceInactivityCheck.class,
                 TaskWebSocketKeepalive.class,
-                TaskHealthCheck.class);
+                TaskHealthCheck.class,
+                TaskDeviceUpdateFlush.class,
+                TaskBackpressure.class,
+                TaskLatencyLog.class,
+                TaskCacheExpiration.class);
         tasks.forEach(task -> injector.getInstance(task).schedule(executor));
     }
 
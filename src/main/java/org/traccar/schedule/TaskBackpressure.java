@@ -0,0 +1,49 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.schedule;
+
+import org.traccar.BackpressureManager;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+
+import jakarta.inject.Inject;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class TaskBackpressure implements ScheduleTask {
+
+    private final BackpressureManager backpressureManager;
+    private final long interval;
+
+    @Inject
+    public TaskBackpressure(Config config, BackpressureManager backpressureManager) {
+        this.backpressureManager = backpressureManager;
+        interval = config.getLong(Keys.SERVER_BACKPRESSURE_INTERVAL);
+    }
+
+    @Override
+    public void schedule(ScheduledExecutorService executor) {
+        if (backpressureManager.isEnabled()) {
+            executor.scheduleAtFixedRate(this, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void run() {
+        backpressureManager.check();
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.schedule;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.database.LatencyManager;
+import org.traccar.model.StageLatency;
+
+import jakarta.inject.Inject;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class TaskLatencyLog implements ScheduleTask {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TaskLatencyLog.class);
+
+    private static final int LIMIT = 10;
+
+    private final LatencyManager latencyManager;
+    private final long interval;
+
+    @Inject
+    public TaskLatencyLog(Config config, LatencyManager latencyManager) {
+        this.latencyManager = latencyManager;
+        interval = config.getLong(Keys.SERVER_TRACING_LOG_INTERVAL);
+    }
+
+    @Override
+    public void schedule(ScheduledExecutorService executor) {
+        if (latencyManager.isEnabled() && interval > 0) {
+            executor.scheduleAtFixedRate(this, interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public void run() {
+        List<StageLatency> statistics = latencyManager.getStatistics();
+        StringBuilder builder = new StringBuilder("Slowest processing stages:");
+        for (StageLatency latency : statistics.subList(0, Math.min(LIMIT, statistics.size()))) {
+            builder.append(String.format(
+                    "%n  %s %s: count %d, mean %.1f ms, p50 %.1f ms, p99 %.1f ms, max %.1f ms",
+                    latency.getProtocol(), latency.getStage(), latency.getCount(),
+                    latency.getMean(), latency.getP50(), latency.getP99(), latency.getMax()));
+        }
+        LOGGER.info(builder.toString());
+    }
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2015 - 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2015 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,6 +20,7 @@ import io.netty.util.Timeout;
 import io.netty.util.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.traccar.LifecycleObject;
 import org.traccar.Protocol;
 import org.traccar.broadcast.BroadcastInterface;
 import org.traccar.broadcast.BroadcastService;
@@ -43,6 +44,7 @@ import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
@@ -57,11 +59,12 @@ import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Singleton
-public class ConnectionManager implements BroadcastInterface {
+public class ConnectionManager implements BroadcastInterface, LifecycleObject {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionManager.class);
 
     private final long deviceTimeout;
+    private final boolean updateWriteBehind;
 
     private final Map<Long, DeviceSession> sessionsByDeviceId = new ConcurrentHashMap<>();
     private final Map<Endpoint, Map<String, DeviceSession>> sessionsByEndpoint = new ConcurrentHashMap<>();
@@ -79,6 +82,8 @@ public class ConnectionManager implements BroadcastInterface {
     private final Map<Long, Set<Long>> deviceUsers = new HashMap<>();
 
     private final Map<Long, Timeout> timeouts = new ConcurrentHashMap<>();
+    private final Map<Long, Long> lastActivity = new ConcurrentHashMap<>();
+    private final Map<Long, Date> pendingUpdates = new ConcurrentHashMap<>();
 
     @Inject
     public ConnectionManager(
@@ -93,9 +98,14 @@ public class ConnectionManager implements BroadcastInterface {
         this.broadcastService = broadcastService;
         this.deviceLookupService = deviceLookupService;
         deviceTimeout = config.getLong(Keys.STATUS_TIMEOUT);
+        updateWriteBehind = config.getLong(Keys.STATUS_UPDATE_INTERVAL) > 0;
         broadcastService.registerListener(this);
     }
 
+    public int getSessionCount() {
+        return sessionsByDeviceId.size();
+    }
+
     public DeviceSession getDeviceSession(long deviceId) {
         return sessionsByDeviceId.get(deviceId);
     }
@@ -229,6 +239,19 @@ public class ConnectionManager implements BroadcastInterface {
         String oldStatus = device.getStatus();
         device.setStatus(status);
 
+        if (updateWriteBehind && status.equals(Device.STATUS_ONLINE) && status.equals(oldStatus)) {
+            lastActivity.put(deviceId, System.currentTimeMillis());
+            if (!timeouts.containsKey(deviceId)) {
+                scheduleTimeout(deviceId, TimeUnit.SECONDS.toMillis(deviceTimeout));
+            }
+            if (time != null) {
+                device.setLastUpdate(time);
+                pendingUpdates.put(deviceId, time);
+            }
+            updateDevice(true, device);
+            return;
+        }
+
         if (!status.equals(oldStatus)) {
             String eventType;
             Map<Event, Position> events = new HashMap<>();
@@ -257,13 +280,15 @@ public class ConnectionManager implements BroadcastInterface {
         }
 
         if (status.equals(Device.STATUS_ONLINE)) {
-            timeouts.put(deviceId, timer.newTimeout(timeout1 -> {
-                if (!timeout1.isCancelled()) {
-                    deviceUnknown(deviceId);
-                }
-            }, deviceTimeout, TimeUnit.SECONDS));
+            if (updateWriteBehind) {
+                lastActivity.put(deviceId, System.currentTimeMillis());
+            }
+            scheduleTimeout(deviceId, TimeUnit.SECONDS.toMillis(deviceTimeout));
+        } else {
+            lastActivity.remove(deviceId);
         }
 
+        pendingUpdates.remove(deviceId);
         try {
             storage.updateObject(device, new Request(
                     new Columns.Include("status", "lastUpdate"),
@@ -275,6 +300,56 @@ public class ConnectionManager implements BroadcastInterface {
         updateDevice(true, device);
     }
 
+    private void scheduleTimeout(long deviceId, long delay) {
+        timeouts.put(deviceId, timer.newTimeout(timeout -> {
+            if (!timeout.isCancelled()) {
+                Long activityTime = lastActivity.get(deviceId);
+                long remaining = activityTime != null
+                        ? activityTime + TimeUnit.SECONDS.toMillis(deviceTimeout) - System.currentTimeMillis() : 0;
+                if (remaining > 0) {
+                    if (timeouts.get(deviceId) == timeout) {
+                        scheduleTimeout(deviceId, remaining);
+                    }
+                } else {
+                    deviceUnknown(deviceId);
+                }
+            }
+        }, delay, TimeUnit.MILLISECONDS));
+    }
+
+    public void flushUpdates() {
+        List<Device> devices = new ArrayList<>();
+        for (long deviceId : pendingUpdates.keySet()) {
+            Date time = pendingUpdates.remove(deviceId);
+            if (time != null) {
+                Device device = new Device();
+                device.setId(deviceId);
+                device.setLastUpdate(time);
+                devices.add(device);
+            }
+        }
+        if (!devices.isEmpty()) {
+            try {
+                storage.updateObjects(devices, new Request(new Columns.Include("lastUpdate")));
+            } catch (StorageException e) {
+                LOGGER.warn("Update device last update error", e);
+                for (Device device : devices) {
+                    pendingUpdates.merge(device.getId(), device.getLastUpdate(),
+                            (current, failed) -> current.after(failed) ? current : failed);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() {
+        flushUpdates();
+    }
+
     public synchronized void sendKeepalive() {
         for (Set<UpdateListener> userListeners : listeners.values()) {
             for (UpdateListener listener : userListeners) {
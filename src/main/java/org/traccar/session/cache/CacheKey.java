@@ -33,6 +33,14 @@ class CacheKey {
         this.id = id;
     }
 
+    public Class<? extends BaseModel> getClazz() {
+        return clazz;
+    }
+
+    public long getId() {
+        return id;
+    }
+
     public boolean classIs(Class<? extends BaseModel> clazz) {
         return clazz.equals(this.clazz);
     }
@@ -20,16 +20,19 @@ import org.slf4j.LoggerFactory;
 import org.traccar.broadcast.BroadcastInterface;
 import org.traccar.broadcast.BroadcastService;
 import org.traccar.config.Config;
+import org.traccar.config.Keys;
 import org.traccar.model.Attribute;
 import org.traccar.model.BaseModel;
 import org.traccar.model.Calendar;
 import org.traccar.model.Device;
 import org.traccar.model.Driver;
+import org.traccar.model.ExtendedModel;
 import org.traccar.model.Geofence;
 import org.traccar.model.Group;
 import org.traccar.model.GroupedModel;
 import org.traccar.model.Maintenance;
 import org.traccar.model.Notification;
+import org.traccar.model.Permission;
 import org.traccar.model.Position;
 import org.traccar.model.Schedulable;
 import org.traccar.model.Server;
@@ -42,19 +45,25 @@ import org.traccar.storage.query.Request;
 
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Singleton
@@ -62,28 +71,74 @@ public class CacheManager implements BroadcastInterface {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CacheManager.class);
     private static final int GROUP_DEPTH_LIMIT = 3;
+    private static final int LOAD_ATTEMPTS = 3;
+    private static final int LOCK_STRIPES = 64;
+
+    private static final long DEVICE_SIZE = 2048;
+    private static final long LINK_SIZE = 64;
+    private static final long OBJECT_SIZE = 512;
+    private static final long ATTRIBUTE_SIZE = 128;
     private static final Collection<Class<? extends BaseModel>> CLASSES = Arrays.asList(
             Attribute.class, Driver.class, Geofence.class, Maintenance.class, Notification.class);
 
+    private static final class DeviceData {
+        private final List<BaseModel> objects = new ArrayList<>();
+        private final Map<Class<? extends BaseModel>, Set<Long>> links = new HashMap<>();
+        private Position position;
+    }
+
+    private static final class PendingLoad {
+        private final Set<CacheKey> changes = ConcurrentHashMap.newKeySet();
+    }
+
+    private static final class RetainedDevice {
+        private final long time;
+        private final long size;
+
+        private RetainedDevice(long time, long size) {
+            this.time = time;
+            this.size = size;
+        }
+    }
+
     private final Config config;
     private final Storage storage;
     private final BroadcastService broadcastService;
 
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final Set<PendingLoad> pendingLoads = ConcurrentHashMap.newKeySet();
 
-    private final Map<CacheKey, CacheValue> deviceCache = new HashMap<>();
-    private final Map<Long, Integer> deviceReferences = new HashMap<>();
-    private final Map<Long, Map<Class<? extends BaseModel>, Set<Long>>> deviceLinks = new HashMap<>();
-    private final Map<Long, Position> devicePositions = new HashMap<>();
+    private final Map<CacheKey, CacheValue> deviceCache = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> deviceReferences = new ConcurrentHashMap<>();
+    private final Map<Long, Map<Class<? extends BaseModel>, Set<Long>>> deviceLinks = new ConcurrentHashMap<>();
+    private final Map<Long, Position> devicePositions = new ConcurrentHashMap<>();
+    private final Map<String, Long> deviceUniqueIds = new ConcurrentHashMap<>();
+    private final GeofenceIndex geofenceIndex;
 
-    private Server server;
-    private final Map<Long, List<User>> notificationUsers = new HashMap<>();
+    private final long retention;
+    private final int retentionSize;
+    private final long retentionMemory;
+    private final Map<Long, RetainedDevice> releasedDevices = new LinkedHashMap<>();
+    private long retainedMemory;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private volatile Server server;
+    private volatile Map<Long, List<User>> notificationUsers = Collections.emptyMap();
 
     @Inject
     public CacheManager(Config config, Storage storage, BroadcastService broadcastService) throws StorageException {
         this.config = config;
         this.storage = storage;
         this.broadcastService = broadcastService;
+        geofenceIndex = new GeofenceIndex(config);
+        retention = TimeUnit.SECONDS.toMillis(config.getLong(Keys.DATABASE_CACHE_RETENTION));
+        retentionSize = config.getInteger(Keys.DATABASE_CACHE_RETENTION_SIZE);
+        retentionMemory = config.getLong(Keys.DATABASE_CACHE_RETENTION_MEMORY) * 1024 * 1024;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
         invalidateServer();
         invalidateUsers();
         broadcastService.registerListener(this);
@@ -93,66 +148,117 @@ public class CacheManager implements BroadcastInterface {
         return config;
     }
 
+    private Object getLock(long deviceId) {
+        return locks[Math.floorMod(Long.hashCode(deviceId), locks.length)];
+    }
+
     public <T extends BaseModel> T getObject(Class<T> clazz, long id) {
-        try {
-            lock.readLock().lock();
-            var cacheValue = deviceCache.get(new CacheKey(clazz, id));
-            return cacheValue != null ? cacheValue.getValue() : null;
-        } finally {
-            lock.readLock().unlock();
-        }
+        var cacheValue = deviceCache.get(new CacheKey(clazz, id));
+        return cacheValue != null ? cacheValue.getValue() : null;
     }
 
     public <T extends BaseModel> List<T> getDeviceObjects(long deviceId, Class<T> clazz) {
-        try {
-            lock.readLock().lock();
-            var links = deviceLinks.get(deviceId);
-            if (links != null) {
-                return links.getOrDefault(clazz, new LinkedHashSet<>()).stream()
-                        .map(id -> {
-                            var cacheValue = deviceCache.get(new CacheKey(clazz, id));
-                            return cacheValue != null ? cacheValue.<T>getValue() : null;
-                        })
-                        .filter(Objects::nonNull)
-                        .collect(Collectors.toList());
-            } else {
-                LOGGER.warn("Device {} cache missing", deviceId);
-                return Collections.emptyList();
+        var links = deviceLinks.get(deviceId);
+        if (links != null) {
+            return links.getOrDefault(clazz, Collections.emptySet()).stream()
+                    .map(id -> {
+                        var cacheValue = deviceCache.get(new CacheKey(clazz, id));
+                        return cacheValue != null ? cacheValue.<T>getValue() : null;
+                    })
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+        } else {
+            LOGGER.warn("Device {} cache missing", deviceId);
+            return Collections.emptyList();
+        }
+    }
+
+    public List<Geofence> getDeviceGeofences(long deviceId, double latitude, double longitude) {
+        var links = deviceLinks.get(deviceId);
+        if (links == null) {
+            LOGGER.warn("Device {} cache missing", deviceId);
+            return Collections.emptyList();
+        }
+        Set<Long> linked = links.getOrDefault(Geofence.class, Collections.emptySet());
+        if (linked.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Geofence> result = new ArrayList<>();
+        for (long id : geofenceIndex.find(latitude, longitude)) {
+            if (linked.contains(id)) {
+                var cacheValue = deviceCache.get(new CacheKey(Geofence.class, id));
+                if (cacheValue != null) {
+                    result.add(cacheValue.getValue());
+                }
             }
-        } finally {
-            lock.readLock().unlock();
         }
+        return result;
     }
 
     public Position getPosition(long deviceId) {
-        try {
-            lock.readLock().lock();
-            return devicePositions.get(deviceId);
-        } finally {
-            lock.readLock().unlock();
+        return devicePositions.get(deviceId);
+    }
+
+    public int getDeviceCount() {
+        return deviceReferences.size();
+    }
+
+    public int getObjectCount() {
+        return deviceCache.size();
+    }
+
+    public int getPositionCount() {
+        return devicePositions.size();
+    }
+
+    public int getRetainedCount() {
+        synchronized (releasedDevices) {
+            return releasedDevices.size();
         }
     }
 
-    public Server getServer() {
-        try {
-            lock.readLock().lock();
-            return server;
-        } finally {
-            lock.readLock().unlock();
+    public long getRetainedMemory() {
+        synchronized (releasedDevices) {
+            return retainedMemory;
         }
     }
 
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public Server getServer() {
+        return server;
+    }
+
     public List<User> getNotificationUsers(long notificationId, long deviceId) {
-        try {
-            lock.readLock().lock();
-            var users = deviceLinks.get(deviceId).get(User.class).stream()
-                    .collect(Collectors.toUnmodifiableSet());
-            return notificationUsers.getOrDefault(notificationId, new LinkedList<>()).stream()
-                    .filter(user -> users.contains(user.getId()))
-                    .collect(Collectors.toUnmodifiableList());
-        } finally {
-            lock.readLock().unlock();
+        var links = deviceLinks.get(deviceId);
+        if (links == null) {
+            return Collections.emptyList();
+        }
+        var users = links.getOrDefault(User.class, Collections.emptySet());
+        return notificationUsers.getOrDefault(notificationId, Collections.emptyList()).stream()
+                .filter(user -> users.contains(user.getId()))
+                .collect(Collectors.toUnmodifiableList());
+    }
+
+    public Device findDeviceByUniqueId(String uniqueId) {
+        Long deviceId = deviceUniqueIds.get(uniqueId);
+        if (deviceId != null) {
+            Device device = getObject(Device.class, deviceId);
+            if (device != null && uniqueId.equals(device.getUniqueId())) {
+                return device;
+            }
         }
+        return null;
     }
 
     public Driver findDriverByUniqueId(long deviceId, String driverUniqueId) {
@@ -163,47 +269,217 @@ public class CacheManager implements BroadcastInterface {
     }
 
     public void addDevice(long deviceId) throws StorageException {
+        Object lock = getLock(deviceId);
+        synchronized (lock) {
+            if (deviceReferences.computeIfPresent(deviceId, (key, references) -> references + 1) != null) {
+                return;
+            }
+            if (unretainDevice(deviceId) && deviceLinks.containsKey(deviceId)) {
+                hits.increment();
+                deviceReferences.put(deviceId, 1);
+                return;
+            }
+        }
+        misses.increment();
+        PendingLoad load = startLoad();
         try {
-            lock.writeLock().lock();
-            Integer references = deviceReferences.get(deviceId);
-            if (references != null) {
-                references += 1;
-            } else {
-                unsafeAddDevice(deviceId);
-                references = 1;
+            for (int attempt = 0; attempt < LOAD_ATTEMPTS; attempt++) {
+                load.changes.clear();
+                DeviceData deviceData = unsafeLoadDevice(deviceId);
+                synchronized (lock) {
+                    if (deviceReferences.computeIfPresent(deviceId, (key, references) -> references + 1) != null) {
+                        return;
+                    }
+                    if (!isChanged(load, deviceId, deviceData)) {
+                        publishDevice(deviceId, deviceData, linkedKeys(deviceId, deviceLinks.get(deviceId)), true);
+                        deviceReferences.put(deviceId, 1);
+                        return;
+                    }
+                }
             }
-            deviceReferences.put(deviceId, references);
         } finally {
-            lock.writeLock().unlock();
+            pendingLoads.remove(load);
+        }
+        LOGGER.warn("Device {} kept changing while loading", deviceId);
+        synchronized (lock) {
+            if (deviceReferences.computeIfPresent(deviceId, (key, references) -> references + 1) == null) {
+                DeviceData deviceData = unsafeLoadDevice(deviceId);
+                publishDevice(deviceId, deviceData, linkedKeys(deviceId, deviceLinks.get(deviceId)), true);
+                deviceReferences.put(deviceId, 1);
+            }
         }
     }
 
-    public void removeDevice(long deviceId) {
+    public void preload(long period) throws StorageException {
+        Request request;
+        if (period > 0) {
+            Date from = new Date(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(period));
+            request = new Request(new Columns.All(), new Condition.Compare("lastUpdate", ">=", "from", from));
+        } else {
+            request = new Request(new Columns.All());
+        }
+        long start = System.currentTimeMillis();
+        PendingLoad load = startLoad();
+        int count = 0;
         try {
-            lock.writeLock().lock();
+            var devices = storage.getObjects(Device.class, request);
+            var deviceData = loadDevices(devices);
+            for (var entry : deviceData.entrySet()) {
+                long deviceId = entry.getKey();
+                synchronized (getLock(deviceId)) {
+                    if (isChanged(load, deviceId, entry.getValue())) {
+                        // data changed while loading, device is loaded on demand
+                        continue;
+                    }
+                    if (deviceReferences.computeIfPresent(deviceId, (key, references) -> references + 1) == null) {
+                        unretainDevice(deviceId);
+                        publishDevice(
+                                deviceId, entry.getValue(), linkedKeys(deviceId, deviceLinks.get(deviceId)), true);
+                        deviceReferences.put(deviceId, 1);
+                    }
+                }
+                count += 1;
+            }
+        } finally {
+            pendingLoads.remove(load);
+        }
+        LOGGER.info("Preloaded {} devices in {} ms", count, System.currentTimeMillis() - start);
+    }
+
+    public void removeDevice(long deviceId) {
+        List<Long> evicted = Collections.emptyList();
+        synchronized (getLock(deviceId)) {
             Integer references = deviceReferences.get(deviceId);
             if (references != null) {
                 references -= 1;
                 if (references <= 0) {
-                    unsafeRemoveDevice(deviceId);
                     deviceReferences.remove(deviceId);
+                    if (retention > 0 && deviceLinks.containsKey(deviceId)) {
+                        evicted = retainDevice(deviceId);
+                    } else {
+                        unpublishDevice(deviceId);
+                    }
                 } else {
                     deviceReferences.put(deviceId, references);
                 }
             }
-        } finally {
-            lock.writeLock().unlock();
+        }
+        evictDevices(evicted);
+    }
+
+    public void removeExpired() {
+        List<Long> expired = new ArrayList<>();
+        long threshold = System.currentTimeMillis() - retention;
+        synchronized (releasedDevices) {
+            var iterator = releasedDevices.entrySet().iterator();
+            while (iterator.hasNext()) {
+                var entry = iterator.next();
+                if (entry.getValue().time > threshold) {
+                    break;
+                }
+                expired.add(entry.getKey());
+                retainedMemory -= entry.getValue().size;
+                iterator.remove();
+            }
+        }
+        evictDevices(expired);
+    }
+
+    private long estimateSize(BaseModel object) {
+        long size = OBJECT_SIZE;
+        if (object instanceof ExtendedModel) {
+            size += ((ExtendedModel) object).getAttributes().size() * ATTRIBUTE_SIZE;
+        }
+        if (object instanceof Geofence && ((Geofence) object).getArea() != null) {
+            size += ((Geofence) object).getArea().length() * 2L;
+        }
+        return size;
+    }
+
+    /**
+     * Approximate memory held by the device cache entry. Objects shared with other devices only count as links.
+     */
+    private long estimateDeviceSize(long deviceId) {
+        long size = DEVICE_SIZE;
+        Device device = getObject(Device.class, deviceId);
+        if (device != null) {
+            size += estimateSize(device);
+        }
+        var links = deviceLinks.getOrDefault(deviceId, Collections.emptyMap());
+        for (var entry : links.entrySet()) {
+            for (long id : entry.getValue()) {
+                size += LINK_SIZE;
+                CacheKey key = new CacheKey(entry.getKey(), id);
+                long[] objectSize = new long[1];
+                deviceCache.computeIfPresent(key, (k, value) -> {
+                    if (value.getReferences().size() <= 1) {
+                        objectSize[0] = estimateSize(value.getValue());
+                    }
+                    return value;
+                });
+                size += objectSize[0];
+            }
+        }
+        return size;
+    }
+
+    private List<Long> retainDevice(long deviceId) {
+        List<Long> evicted = new ArrayList<>();
+        long size = estimateDeviceSize(deviceId);
+        synchronized (releasedDevices) {
+            RetainedDevice previous = releasedDevices.remove(deviceId);
+            if (previous != null) {
+                retainedMemory -= previous.size;
+            }
+            releasedDevices.put(deviceId, new RetainedDevice(System.currentTimeMillis(), size));
+            retainedMemory += size;
+            var iterator = releasedDevices.entrySet().iterator();
+            while (retentionSize > 0 && releasedDevices.size() > retentionSize
+                    || retentionMemory > 0 && retainedMemory > retentionMemory) {
+                var entry = iterator.next();
+                evicted.add(entry.getKey());
+                retainedMemory -= entry.getValue().size;
+                iterator.remove();
+            }
+        }
+        return evicted;
+    }
+
+    private boolean unretainDevice(long deviceId) {
+        synchronized (releasedDevices) {
+            RetainedDevice retained = releasedDevices.remove(deviceId);
+            if (retained != null) {
+                retainedMemory -= retained.size;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private boolean isRetained(long deviceId) {
+        synchronized (releasedDevices) {
+            return releasedDevices.containsKey(deviceId);
+        }
+    }
+
+    private void evictDevices(List<Long> deviceIds) {
+        for (long deviceId : deviceIds) {
+            synchronized (getLock(deviceId)) {
+                if (!deviceReferences.containsKey(deviceId) && !isRetained(deviceId)) {
+                    evictions.increment();
+                    unpublishDevice(deviceId);
+                }
+            }
         }
     }
 
     public void updatePosition(Position position) {
-        try {
-            lock.writeLock().lock();
-            if (deviceLinks.containsKey(position.getDeviceId())) {
-                devicePositions.put(position.getDeviceId(), position);
+        long deviceId = position.getDeviceId();
+        if (deviceLinks.containsKey(deviceId)) {
+            devicePositions.put(deviceId, position);
+            if (!deviceLinks.containsKey(deviceId)) {
+                devicePositions.remove(deviceId, position);
             }
-        } finally {
-            lock.writeLock().unlock();
         }
     }
 
@@ -232,37 +508,61 @@ public class CacheManager implements BroadcastInterface {
             return;
         }
         if (object instanceof User) {
-            invalidateUsers();
-            return;
+            updateUser((User) object);
         }
 
-        boolean invalidate = false;
         var before = getObject(object.getClass(), object.getId());
         if (before == null) {
             return;
         } else if (object instanceof GroupedModel) {
             if (((GroupedModel) before).getGroupId() != ((GroupedModel) object).getGroupId()) {
-                invalidate = true;
-            }
-        } else if (object instanceof Schedulable) {
-            if (((Schedulable) before).getCalendarId() != ((Schedulable) object).getCalendarId()) {
-                invalidate = true;
+                reloadDevices(List.of(new CacheKey(object)));
+                return;
             }
         }
-        if (invalidate) {
-            invalidate(object.getClass(), object.getId());
-        } else {
-            try {
-                lock.writeLock().lock();
-                deviceCache.get(new CacheKey(object.getClass(), object.getId())).setValue(object);
-            } finally {
-                lock.writeLock().unlock();
+
+        markChanged(List.of(new CacheKey(object)));
+        var cacheValue = deviceCache.get(new CacheKey(object.getClass(), object.getId()));
+        if (cacheValue != null) {
+            cacheValue.setValue(object);
+            if (object instanceof Device) {
+                indexDevice((Device) object);
+            } else if (object instanceof Geofence) {
+                geofenceIndex.update((Geofence) object);
+            }
+            if (object instanceof Notification
+                    && ((Notification) before).getAlways() != ((Notification) object).getAlways()) {
+                updateLinks(Notification.class, object.getId());
+            }
+            if (object instanceof Schedulable) {
+                long calendarId = ((Schedulable) object).getCalendarId();
+                if (((Schedulable) before).getCalendarId() != calendarId) {
+                    Map<Long, Calendar> calendars = new HashMap<>();
+                    if (calendarId > 0) {
+                        calendars.put(calendarId, findObject(Calendar.class, calendarId));
+                    }
+                    for (long deviceId : getReferences(new CacheKey(object))) {
+                        patchDevice(deviceId, deviceData -> { }, calendars);
+                    }
+                }
             }
         }
     }
 
     public <T extends BaseModel> void invalidate(Class<T> clazz, long id) throws StorageException {
-        invalidate(new CacheKey(clazz, id));
+        if (clazz.equals(Server.class)) {
+            invalidateServer();
+        } else if (CLASSES.contains(clazz) || clazz.equals(Calendar.class)) {
+            if (clazz.equals(Notification.class)) {
+                updateNotificationUsers(id, Collections.emptyList());
+            }
+            removeObject(clazz, id);
+        } else {
+            if (clazz.equals(User.class)) {
+                removeUser(id);
+            }
+            reloadDevices(List.of(new CacheKey(clazz, id)));
+        }
     }
 
     @Override
@@ -270,12 +570,45 @@ public class CacheManager implements BroadcastInterface {
             boolean local,
             Class<? extends BaseModel> clazz1, long id1,
             Class<? extends BaseModel> clazz2, long id2) {
+        invalidatePermissions(local, List.of(new Permission(clazz1, id1, clazz2, id2)));
+    }
+
+    @Override
+    public void invalidatePermissions(boolean local, List<Permission> permissions) {
         if (local) {
-            broadcastService.invalidatePermission(true, clazz1, id1, clazz2, id2);
+            broadcastService.invalidatePermissions(true, permissions);
+        }
+
+        Set<CacheKey> owners = new LinkedHashSet<>();
+        Set<CacheKey> properties = new LinkedHashSet<>();
+        Set<Long> notifications = new LinkedHashSet<>();
+        Set<CacheKey> reloadKeys = new LinkedHashSet<>();
+        for (Permission permission : permissions) {
+            var ownerClass = permission.getOwnerClass();
+            var propertyClass = permission.getPropertyClass();
+            if (GroupedModel.class.isAssignableFrom(ownerClass) && CLASSES.contains(propertyClass)) {
+                owners.add(new CacheKey(ownerClass, permission.getOwnerId()));
+                properties.add(new CacheKey(propertyClass, permission.getPropertyId()));
+            } else if (ownerClass.equals(User.class) && propertyClass.equals(Notification.class)) {
+                notifications.add(permission.getPropertyId());
+            } else if (ownerClass.equals(User.class) && GroupedModel.class.isAssignableFrom(propertyClass)) {
+                reloadKeys.add(new CacheKey(propertyClass, permission.getPropertyId()));
+            }
+        }
+        if (properties.size() > owners.size()) {
+            reloadKeys.addAll(owners);
+            properties.clear();
         }
 
         try {
-            invalidate(new CacheKey(clazz1, id1), new CacheKey(clazz2, id2));
+            for (long notificationId : notifications) {
+                updateNotificationUsers(notificationId);
+                properties.add(new CacheKey(Notification.class, notificationId));
+            }
+            for (CacheKey key : properties) {
+                updateLinks(key.getClazz(), key.getId());
+            }
+            reloadDevices(reloadKeys);
         } catch (StorageException e) {
             throw new RuntimeException(e);
         }
@@ -286,7 +619,7 @@ public class CacheManager implements BroadcastInterface {
     }
 
     private void invalidateUsers() throws StorageException {
-        notificationUsers.clear();
+        Map<Long, List<User>> notificationUsers = new HashMap<>();
         Map<Long, User> users = new HashMap<>();
         storage.getObjects(User.class, new Request(new Columns.All()))
                 .forEach(user -> users.put(user.getId(), user));
@@ -295,133 +628,529 @@ public class CacheManager implements BroadcastInterface {
             var user = users.get(permission.getOwnerId());
             notificationUsers.computeIfAbsent(notificationId, k -> new LinkedList<>()).add(user);
         });
+        this.notificationUsers = notificationUsers;
     }
 
-    private void addObject(long deviceId, BaseModel object) {
-        deviceCache.computeIfAbsent(new CacheKey(object), k -> new CacheValue(object)).retain(deviceId);
+    private synchronized void updateUser(User user) {
+        Map<Long, List<User>> notificationUsers = new HashMap<>();
+        this.notificationUsers.forEach((notificationId, users) -> notificationUsers.put(notificationId, users.stream()
+                .map(item -> item.getId() == user.getId() ? user : item)
+                .collect(Collectors.toCollection(LinkedList::new))));
+        this.notificationUsers = notificationUsers;
     }
 
-    private void unsafeAddDevice(long deviceId) throws StorageException {
-        Map<Class<? extends BaseModel>, Set<Long>> links = new HashMap<>();
+    private synchronized void removeUser(long userId) {
+        Map<Long, List<User>> notificationUsers = new HashMap<>();
+        this.notificationUsers.forEach((notificationId, users) -> {
+            var remaining = users.stream()
+                    .filter(item -> item.getId() != userId)
+                    .collect(Collectors.toCollection(LinkedList::new));
+            if (!remaining.isEmpty()) {
+                notificationUsers.put(notificationId, remaining);
+            }
+        });
+        this.notificationUsers = notificationUsers;
+    }
+
+    private synchronized void updateNotificationUsers(long notificationId, List<User> users) {
+        Map<Long, List<User>> notificationUsers = new HashMap<>(this.notificationUsers);
+        if (users.isEmpty()) {
+            notificationUsers.remove(notificationId);
+        } else {
+            notificationUsers.put(notificationId, users);
+        }
+        this.notificationUsers = notificationUsers;
+    }
+
+    private void updateNotificationUsers(long notificationId) throws StorageException {
+        Map<Long, User> knownUsers = new HashMap<>();
+        notificationUsers.values().forEach(users -> users.forEach(user -> knownUsers.put(user.getId(), user)));
+        List<User> users = new LinkedList<>();
+        for (var permission : storage.getPermissions(User.class, 0, Notification.class, notificationId)) {
+            User user = knownUsers.get(permission.getOwnerId());
+            if (user == null) {
+                user = findObject(User.class, permission.getOwnerId());
+            }
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        updateNotificationUsers(notificationId, users);
+    }
 
+    private DeviceData unsafeLoadDevice(long deviceId) throws StorageException {
         Device device = storage.getObject(Device.class, new Request(
                 new Columns.All(), new Condition.Equals("id", deviceId)));
-        if (device != null) {
-            addObject(deviceId, device);
+        if (device == null) {
+            return null;
+        }
+
+        DeviceData deviceData = new DeviceData();
+        var links = deviceData.links;
+        deviceData.objects.add(device);
+
+        if (device.getCalendarId() > 0) {
+            var calendar = storage.getObject(Calendar.class, new Request(
+                    new Columns.All(), new Condition.Equals("id", device.getCalendarId())));
+            links.computeIfAbsent(Calendar.class, k -> new LinkedHashSet<>()).add(calendar.getId());
+            deviceData.objects.add(calendar);
+        }
+
+        int groupDepth = 0;
+        long groupId = device.getGroupId();
+        while (groupDepth < GROUP_DEPTH_LIMIT && groupId > 0) {
+            Group group = storage.getObject(Group.class, new Request(
+                    new Columns.All(), new Condition.Equals("id", groupId)));
+            links.computeIfAbsent(Group.class, k -> new LinkedHashSet<>()).add(group.getId());
+            deviceData.objects.add(group);
+            groupId = group.getGroupId();
+            groupDepth += 1;
+        }
+
+        for (Class<? extends BaseModel> clazz : CLASSES) {
+            var objects = storage.getObjects(clazz, new Request(
+                    new Columns.All(), new Condition.Permission(Device.class, deviceId, clazz)));
+            links.put(clazz, objects.stream().map(BaseModel::getId).collect(Collectors.toSet()));
+            for (var object : objects) {
+                deviceData.objects.add(object);
+                if (object instanceof Schedulable) {
+                    var scheduled = (Schedulable) object;
+                    if (scheduled.getCalendarId() > 0) {
+                        var calendar = storage.getObject(Calendar.class, new Request(
+                                new Columns.All(), new Condition.Equals("id", scheduled.getCalendarId())));
+                        links.computeIfAbsent(Calendar.class, k -> new LinkedHashSet<>()).add(calendar.getId());
+                        deviceData.objects.add(calendar);
+                    }
+                }
+            }
+        }
+
+        var users = storage.getObjects(User.class, new Request(
+                new Columns.All(), new Condition.Permission(User.class, Device.class, deviceId)));
+        links.put(User.class, users.stream().map(BaseModel::getId).collect(Collectors.toSet()));
+        for (var user : users) {
+            deviceData.objects.add(user);
+            var notifications = storage.getObjects(Notification.class, new Request(
+                    new Columns.All(),
+                    new Condition.Permission(User.class, user.getId(), Notification.class))).stream()
+                    .filter(Notification::getAlways)
+                    .collect(Collectors.toList());
+            for (var notification : notifications) {
+                links.computeIfAbsent(Notification.class, k -> new LinkedHashSet<>()).add(notification.getId());
+                deviceData.objects.add(notification);
+                if (notification.getCalendarId() > 0) {
+                    var calendar = storage.getObject(Calendar.class, new Request(
+                            new Columns.All(), new Condition.Equals("id", notification.getCalendarId())));
+                    links.computeIfAbsent(Calendar.class, k -> new LinkedHashSet<>()).add(calendar.getId());
+                    deviceData.objects.add(calendar);
+                }
+            }
+        }
+
+        if (device.getPositionId() > 0) {
+            deviceData.position = storage.getObject(Position.class, new Request(
+                    new Columns.All(), new Condition.Equals("id", device.getPositionId())));
+        }
+
+        return deviceData;
+    }
+
+    private <T extends BaseModel> Map<Long, T> getObjectMap(Class<T> clazz) throws StorageException {
+        return storage.getObjects(clazz, new Request(new Columns.All())).stream()
+                .collect(Collectors.toMap(BaseModel::getId, Function.identity()));
+    }
+
+    private Map<Long, Set<Long>> getLinkMap(
+            Class<? extends BaseModel> ownerClass, Class<? extends BaseModel> propertyClass, boolean reverse)
+            throws StorageException {
+        Map<Long, Set<Long>> result = new HashMap<>();
+        for (Permission permission : storage.getPermissions(ownerClass, propertyClass)) {
+            long key = reverse ? permission.getPropertyId() : permission.getOwnerId();
+            long value = reverse ? permission.getOwnerId() : permission.getPropertyId();
+            result.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(value);
+        }
+        return result;
+    }
+
+    private static Set<Long> collectLinks(Map<Long, Set<Long>> deviceLinks, Map<Long, Set<Long>> groupLinks,
+            long deviceId, List<Long> groupIds) {
+        Set<Long> result = new HashSet<>(deviceLinks.getOrDefault(deviceId, Collections.emptySet()));
+        for (long groupId : groupIds) {
+            result.addAll(groupLinks.getOrDefault(groupId, Collections.emptySet()));
+        }
+        return result;
+    }
+
+    private static void addCalendar(DeviceData deviceData, Map<Long, Calendar> calendars, long calendarId) {
+        var calendar = calendars.get(calendarId);
+        if (calendar != null) {
+            deviceData.links.computeIfAbsent(Calendar.class, k -> new LinkedHashSet<>()).add(calendar.getId());
+            deviceData.objects.add(calendar);
+        }
+    }
+
+    private Map<Long, DeviceData> loadDevices(Collection<Device> devices) throws StorageException {
+        var groups = getObjectMap(Group.class);
+        var calendars = getObjectMap(Calendar.class);
+        var users = getObjectMap(User.class);
+
+        Map<Class<? extends BaseModel>, Map<Long, ? extends BaseModel>> objects = new HashMap<>();
+        Map<Class<? extends BaseModel>, Map<Long, Set<Long>>> devicePermissions = new HashMap<>();
+        Map<Class<? extends BaseModel>, Map<Long, Set<Long>>> groupPermissions = new HashMap<>();
+        for (Class<? extends BaseModel> clazz : CLASSES) {
+            objects.put(clazz, getObjectMap(clazz));
+            devicePermissions.put(clazz, getLinkMap(Device.class, clazz, false));
+            groupPermissions.put(clazz, getLinkMap(Group.class, clazz, false));
+        }
+        var deviceUsers = getLinkMap(User.class, Device.class, true);
+        var groupUsers = getLinkMap(User.class, Group.class, true);
+        var userNotifications = getLinkMap(User.class, Notification.class, false);
+
+        Map<Long, Position> positions = new HashMap<>();
+        for (Position position : storage.getObjects(Position.class, new Request(
+                new Columns.All(), new Condition.LatestPositions()))) {
+            positions.put(position.getDeviceId(), position);
+        }
+
+        Map<Long, DeviceData> result = new HashMap<>();
+        for (Device device : devices) {
+            long deviceId = device.getId();
+            DeviceData deviceData = new DeviceData();
+            var links = deviceData.links;
+            deviceData.objects.add(device);
+
             if (device.getCalendarId() > 0) {
-                var calendar = storage.getObject(Calendar.class, new Request(
-                        new Columns.All(), new Condition.Equals("id", device.getCalendarId())));
-                links.computeIfAbsent(Calendar.class, k -> new LinkedHashSet<>()).add(calendar.getId());
-                addObject(deviceId, calendar);
+                addCalendar(deviceData, calendars, device.getCalendarId());
             }
 
-            int groupDepth = 0;
+            List<Long> groupIds = new ArrayList<>();
             long groupId = device.getGroupId();
-            while (groupDepth < GROUP_DEPTH_LIMIT && groupId > 0) {
-                Group group = storage.getObject(Group.class, new Request(
-                        new Columns.All(), new Condition.Equals("id", groupId)));
+            while (groupIds.size() < GROUP_DEPTH_LIMIT && groupId > 0) {
+                Group group = groups.get(groupId);
+                if (group == null) {
+                    break;
+                }
                 links.computeIfAbsent(Group.class, k -> new LinkedHashSet<>()).add(group.getId());
-                addObject(deviceId, group);
+                deviceData.objects.add(group);
+                groupIds.add(groupId);
                 groupId = group.getGroupId();
-                groupDepth += 1;
             }
 
             for (Class<? extends BaseModel> clazz : CLASSES) {
-                var objects = storage.getObjects(clazz, new Request(
-                        new Columns.All(), new Condition.Permission(Device.class, deviceId, clazz)));
-                links.put(clazz, objects.stream().map(BaseModel::getId).collect(Collectors.toSet()));
-                for (var object : objects) {
-                    addObject(deviceId, object);
-                    if (object instanceof Schedulable) {
-                        var scheduled = (Schedulable) object;
-                        if (scheduled.getCalendarId() > 0) {
-                            var calendar = storage.getObject(Calendar.class, new Request(
-                                    new Columns.All(), new Condition.Equals("id", scheduled.getCalendarId())));
-                            links.computeIfAbsent(Calendar.class, k -> new LinkedHashSet<>()).add(calendar.getId());
-                            addObject(deviceId, calendar);
+                var ids = collectLinks(devicePermissions.get(clazz), groupPermissions.get(clazz), deviceId, groupIds);
+                Set<Long> linkIds = new HashSet<>();
+                for (long id : ids) {
+                    var object = objects.get(clazz).get(id);
+                    if (object != null) {
+                        linkIds.add(id);
+                        deviceData.objects.add(object);
+                        if (object instanceof Schedulable && ((Schedulable) object).getCalendarId() > 0) {
+                            addCalendar(deviceData, calendars, ((Schedulable) object).getCalendarId());
                         }
                     }
                 }
+                links.put(clazz, linkIds);
             }
 
-            var users = storage.getObjects(User.class, new Request(
-                    new Columns.All(), new Condition.Permission(User.class, Device.class, deviceId)));
-            links.put(User.class, users.stream().map(BaseModel::getId).collect(Collectors.toSet()));
-            for (var user : users) {
-                addObject(deviceId, user);
-                var notifications = storage.getObjects(Notification.class, new Request(
-                        new Columns.All(),
-                        new Condition.Permission(User.class, user.getId(), Notification.class))).stream()
-                        .filter(Notification::getAlways)
-                        .collect(Collectors.toList());
-                for (var notification : notifications) {
-                    links.computeIfAbsent(Notification.class, k -> new LinkedHashSet<>()).add(notification.getId());
-                    addObject(deviceId, notification);
-                    if (notification.getCalendarId() > 0) {
-                        var calendar = storage.getObject(Calendar.class, new Request(
-                                new Columns.All(), new Condition.Equals("id", notification.getCalendarId())));
-                        links.computeIfAbsent(Calendar.class, k -> new LinkedHashSet<>()).add(calendar.getId());
-                        addObject(deviceId, calendar);
+            Set<Long> userIds = new HashSet<>();
+            for (long userId : collectLinks(deviceUsers, groupUsers, deviceId, groupIds)) {
+                var user = users.get(userId);
+                if (user == null) {
+                    continue;
+                }
+                userIds.add(userId);
+                deviceData.objects.add(user);
+                for (long notificationId : userNotifications.getOrDefault(userId, Collections.emptySet())) {
+                    var notification = (Notification) objects.get(Notification.class).get(notificationId);
+                    if (notification != null && notification.getAlways()) {
+                        links.computeIfAbsent(Notification.class, k -> new LinkedHashSet<>()).add(notificationId);
+                        deviceData.objects.add(notification);
+                        if (notification.getCalendarId() > 0) {
+                            addCalendar(deviceData, calendars, notification.getCalendarId());
+                        }
                     }
                 }
             }
+            links.put(User.class, userIds);
 
-            deviceLinks.put(deviceId, links);
+            deviceData.position = positions.get(deviceId);
+            result.put(deviceId, deviceData);
+        }
+        return result;
+    }
 
-            if (device.getPositionId() > 0) {
-                devicePositions.put(deviceId, storage.getObject(Position.class, new Request(
-                        new Columns.All(), new Condition.Equals("id", device.getPositionId()))));
+    private static Set<CacheKey> linkedKeys(long deviceId, Map<Class<? extends BaseModel>, Set<Long>> links) {
+        Set<CacheKey> keys = new HashSet<>();
+        keys.add(new CacheKey(Device.class, deviceId));
+        if (links != null) {
+            links.forEach((clazz, ids) -> ids.forEach(id -> keys.add(new CacheKey(clazz, id))));
+        }
+        return keys;
+    }
+
+    private void publishDevice(long deviceId, DeviceData deviceData, Set<CacheKey> previousKeys, boolean replace) {
+        Set<CacheKey> keys = new HashSet<>();
+        if (deviceData != null) {
+            for (BaseModel object : deviceData.objects) {
+                var key = new CacheKey(object);
+                keys.add(key);
+                if (object instanceof Device) {
+                    indexDevice((Device) object);
+                }
+                deviceCache.compute(key, (k, value) -> {
+                    if (value == null) {
+                        value = new CacheValue(object);
+                        indexObject(object);
+                    } else if (replace) {
+                        value.setValue(object);
+                        indexObject(object);
+                    }
+                    value.retain(deviceId);
+                    return value;
+                });
+            }
+            deviceLinks.put(deviceId, Collections.unmodifiableMap(deviceData.links));
+            if (deviceData.position != null) {
+                devicePositions.putIfAbsent(deviceId, deviceData.position);
             }
+        } else {
+            deviceLinks.remove(deviceId);
+            devicePositions.remove(deviceId);
+        }
+        if (previousKeys != null) {
+            previousKeys.removeAll(keys);
+            releaseObjects(deviceId, previousKeys);
+        }
+    }
+
+    private void indexDevice(Device device) {
+        if (device.getUniqueId() != null) {
+            deviceUniqueIds.put(device.getUniqueId(), device.getId());
+        }
+    }
+
+    private void indexObject(BaseModel object) {
+        if (object instanceof Geofence) {
+            geofenceIndex.update((Geofence) object);
+        }
+    }
+
+    private void unindexObject(CacheKey key) {
+        if (key.getClazz().equals(Geofence.class)) {
+            geofenceIndex.remove(key.getId());
         }
     }
 
-    private void unsafeRemoveDevice(long deviceId) {
-        deviceCache.remove(new CacheKey(Device.class, deviceId));
-        deviceLinks.remove(deviceId).forEach((clazz, ids) -> ids.forEach(id -> {
-            var key = new CacheKey(clazz, id);
+    private void unpublishDevice(long deviceId) {
+        Device device = getObject(Device.class, deviceId);
+        if (device != null && device.getUniqueId() != null) {
+            deviceUniqueIds.remove(device.getUniqueId(), deviceId);
+        }
+        var links = deviceLinks.remove(deviceId);
+        devicePositions.remove(deviceId);
+        releaseObjects(deviceId, linkedKeys(deviceId, links));
+    }
+
+    private void releaseObjects(long deviceId, Set<CacheKey> keys) {
+        for (var key : keys) {
             deviceCache.computeIfPresent(key, (k, value) -> {
                 value.release(deviceId);
-                return value.getReferences().size() > 0 ? value : null;
+                if (value.getReferences().isEmpty()) {
+                    unindexObject(k);
+                    return null;
+                }
+                return value;
             });
-        }));
-        devicePositions.remove(deviceId);
+        }
+    }
+
+    private PendingLoad startLoad() {
+        PendingLoad load = new PendingLoad();
+        pendingLoads.add(load);
+        return load;
+    }
+
+    private void markChanged(Collection<CacheKey> keys) {
+        for (PendingLoad load : pendingLoads) {
+            load.changes.addAll(keys);
+        }
     }
 
-    private void invalidate(CacheKey... keys) throws StorageException {
+    private static boolean isChanged(PendingLoad load, long deviceId, DeviceData deviceData) {
+        return !load.changes.isEmpty() && !Collections.disjoint(
+                load.changes, linkedKeys(deviceId, deviceData != null ? deviceData.links : null));
+    }
+
+    private void reloadDevice(long deviceId) throws StorageException {
+        Object lock = getLock(deviceId);
+        PendingLoad load = startLoad();
         try {
-            lock.writeLock().lock();
-            unsafeInvalidate(keys);
+            for (int attempt = 0; attempt < LOAD_ATTEMPTS; attempt++) {
+                load.changes.clear();
+                DeviceData deviceData = unsafeLoadDevice(deviceId);
+                synchronized (lock) {
+                    if (!deviceReferences.containsKey(deviceId) && !isRetained(deviceId)) {
+                        return;
+                    }
+                    if (!isChanged(load, deviceId, deviceData)) {
+                        publishDevice(deviceId, deviceData, linkedKeys(deviceId, deviceLinks.get(deviceId)), true);
+                        return;
+                    }
+                }
+            }
         } finally {
-            lock.writeLock().unlock();
+            pendingLoads.remove(load);
+        }
+        LOGGER.warn("Device {} kept changing while reloading", deviceId);
+        synchronized (lock) {
+            if (deviceReferences.containsKey(deviceId) || isRetained(deviceId)) {
+                DeviceData deviceData = unsafeLoadDevice(deviceId);
+                publishDevice(deviceId, deviceData, linkedKeys(deviceId, deviceLinks.get(deviceId)), true);
+            }
         }
     }
 
-    private void unsafeInvalidate(CacheKey[] keys) throws StorageException {
-        boolean invalidateServer = false;
-        boolean invalidateUsers = false;
-        Set<Long> linkedDevices = new HashSet<>();
-        for (var key : keys) {
-            if (key.classIs(Server.class)) {
-                invalidateServer = true;
-            } else {
-                if (key.classIs(User.class) || key.classIs(Notification.class)) {
-                    invalidateUsers = true;
+    private <T extends BaseModel> T findObject(Class<T> clazz, long id) throws StorageException {
+        T object = getObject(clazz, id);
+        if (object == null) {
+            object = storage.getObject(clazz, new Request(new Columns.All(), new Condition.Equals("id", id)));
+        }
+        return object;
+    }
+
+    private Set<Long> getReferences(CacheKey key) {
+        Set<Long> references = new HashSet<>();
+        deviceCache.computeIfPresent(key, (k, value) -> {
+            references.addAll(value.getReferences());
+            return value;
+        });
+        return references;
+    }
+
+    private DeviceData copyDevice(long deviceId, Map<Class<? extends BaseModel>, Set<Long>> links) {
+        DeviceData deviceData = new DeviceData();
+        for (var key : linkedKeys(deviceId, links)) {
+            var cacheValue = deviceCache.get(key);
+            if (cacheValue != null) {
+                deviceData.objects.add(cacheValue.getValue());
+            }
+        }
+        links.forEach((clazz, ids) -> deviceData.links.put(clazz, new LinkedHashSet<>(ids)));
+        return deviceData;
+    }
+
+    private void updateCalendars(DeviceData deviceData, Map<Long, Calendar> calendars) {
+        deviceData.objects.removeIf(object -> object instanceof Calendar);
+        deviceData.links.remove(Calendar.class);
+        Set<Long> calendarIds = new LinkedHashSet<>();
+        for (var object : deviceData.objects) {
+            if (object instanceof Schedulable && ((Schedulable) object).getCalendarId() > 0) {
+                calendarIds.add(((Schedulable) object).getCalendarId());
+            }
+        }
+        for (long calendarId : calendarIds) {
+            Calendar calendar = calendars.get(calendarId);
+            if (calendar == null) {
+                calendar = getObject(Calendar.class, calendarId);
+            }
+            if (calendar != null) {
+                deviceData.links.computeIfAbsent(Calendar.class, k -> new LinkedHashSet<>()).add(calendarId);
+                deviceData.objects.add(calendar);
+            }
+        }
+    }
+
+    private void patchDevice(long deviceId, Consumer<DeviceData> patch, Map<Long, Calendar> calendars) {
+        synchronized (getLock(deviceId)) {
+            var links = deviceLinks.get(deviceId);
+            if (links != null && (deviceReferences.containsKey(deviceId) || isRetained(deviceId))) {
+                DeviceData deviceData = copyDevice(deviceId, links);
+                patch.accept(deviceData);
+                updateCalendars(deviceData, calendars);
+                publishDevice(deviceId, deviceData, linkedKeys(deviceId, links), false);
+            }
+        }
+    }
+
+    private static void unlinkObject(DeviceData deviceData, Class<? extends BaseModel> clazz, long id) {
+        var ids = deviceData.links.get(clazz);
+        if (ids != null) {
+            ids.remove(id);
+        }
+        deviceData.objects.removeIf(object -> object.getClass().equals(clazz) && object.getId() == id);
+    }
+
+    private void updateLinks(Class<? extends BaseModel> clazz, long id) throws StorageException {
+        Set<Long> devices = storage.getPermissions(Device.class, 0, clazz, id).stream()
+                .map(Permission::getOwnerId).collect(Collectors.toSet());
+        Set<Long> groups = storage.getPermissions(Group.class, 0, clazz, id).stream()
+                .map(Permission::getOwnerId).collect(Collectors.toSet());
+        Set<Long> users = new HashSet<>();
+        if (clazz.equals(Notification.class)) {
+            notificationUsers.getOrDefault(id, Collections.emptyList()).forEach(user -> users.add(user.getId()));
+        }
+        Set<CacheKey> changed = new HashSet<>();
+        changed.add(new CacheKey(clazz, id));
+        devices.forEach(deviceId -> changed.add(new CacheKey(Device.class, deviceId)));
+        groups.forEach(groupId -> changed.add(new CacheKey(Group.class, groupId)));
+        users.forEach(userId -> changed.add(new CacheKey(User.class, userId)));
+        markChanged(changed);
+
+        BaseModel object = null;
+        boolean loaded = false;
+        Map<Long, Calendar> calendars = new HashMap<>();
+        for (var entry : deviceLinks.entrySet()) {
+            long deviceId = entry.getKey();
+            var links = entry.getValue();
+            boolean linked = devices.contains(deviceId)
+                    || !Collections.disjoint(groups, links.getOrDefault(Group.class, Collections.emptySet()));
+            boolean current = links.getOrDefault(clazz, Collections.emptySet()).contains(id);
+            if (!loaded && (linked != current || !linked && !users.isEmpty())) {
+                object = findObject(clazz, id);
+                if (object instanceof Schedulable && ((Schedulable) object).getCalendarId() > 0) {
+                    long calendarId = ((Schedulable) object).getCalendarId();
+                    calendars.put(calendarId, findObject(Calendar.class, calendarId));
                 }
-                deviceCache.computeIfPresent(key, (k, value) -> {
-                    linkedDevices.addAll(value.getReferences());
-                    return value;
-                });
+                loaded = true;
+            }
+            if (!linked && object instanceof Notification && ((Notification) object).getAlways()) {
+                linked = !Collections.disjoint(users, links.getOrDefault(User.class, Collections.emptySet()));
+            }
+            if (linked && !current) {
+                if (object != null) {
+                    BaseModel linkedObject = object;
+                    patchDevice(deviceId, deviceData -> {
+                        deviceData.links.computeIfAbsent(clazz, k -> new LinkedHashSet<>()).add(id);
+                        deviceData.objects.add(linkedObject);
+                    }, calendars);
+                }
+            } else if (!linked && current) {
+                patchDevice(deviceId, deviceData -> unlinkObject(deviceData, clazz, id), calendars);
             }
         }
-        for (long deviceId : linkedDevices) {
-            unsafeRemoveDevice(deviceId);
-            unsafeAddDevice(deviceId);
+    }
+
+    private void removeObject(Class<? extends BaseModel> clazz, long id) {
+        markChanged(List.of(new CacheKey(clazz, id)));
+        Set<Long> references = new HashSet<>();
+        deviceCache.computeIfPresent(new CacheKey(clazz, id), (k, value) -> {
+            references.addAll(value.getReferences());
+            unindexObject(k);
+            return null;
+        });
+        for (long deviceId : references) {
+            patchDevice(deviceId, deviceData -> unlinkObject(deviceData, clazz, id), Collections.emptyMap());
         }
-        if (invalidateServer) {
-            invalidateServer();
+    }
+
+    private void reloadDevices(Collection<CacheKey> keys) throws StorageException {
+        markChanged(keys);
+        Set<Long> linkedDevices = new HashSet<>();
+        for (CacheKey key : keys) {
+            linkedDevices.addAll(getReferences(key));
         }
-        if (invalidateUsers) {
-            invalidateUsers();
+        for (long deviceId : linkedDevices) {
+            reloadDevice(deviceId);
         }
     }
 
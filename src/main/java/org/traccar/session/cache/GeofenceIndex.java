@@ -0,0 +1,164 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.session.cache;
+
+import org.traccar.config.Config;
+import org.traccar.geofence.GeofenceGeometry;
+import org.traccar.model.Geofence;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+class GeofenceIndex {
+
+    private static final double CELL_SIZE = 0.1;
+    private static final int MAX_CELLS = 400;
+
+    private static final class Entry {
+
+        private final long id;
+        private final GeofenceGeometry.Bounds bounds;
+        private final List<Long> cells = new ArrayList<>();
+
+        private Entry(long id, GeofenceGeometry.Bounds bounds) {
+            this.id = id;
+            this.bounds = bounds;
+        }
+
+    }
+
+    private final Config config;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final Map<Long, List<Entry>> cells = new HashMap<>();
+    private final List<Entry> large = new ArrayList<>();
+
+    GeofenceIndex(Config config) {
+        this.config = config;
+    }
+
+    private static int cell(double value, double offset) {
+        return (int) Math.floor((value + offset) / CELL_SIZE);
+    }
+
+    private static long cellKey(int latCell, int lonCell) {
+        return ((long) latCell << 32) | (lonCell & 0xffffffffL);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void update(Geofence geofence) {
+        GeofenceGeometry.Bounds bounds;
+        try {
+            bounds = geofence.getGeometry().getBounds(config, geofence);
+        } catch (RuntimeException e) {
+            bounds = GeofenceGeometry.Bounds.WORLD;
+        }
+        Entry entry = new Entry(geofence.getId(), bounds);
+
+        lock.writeLock().lock();
+        try {
+            removeEntry(entry.id);
+            addEntry(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addEntry(Entry entry) {
+        GeofenceGeometry.Bounds bounds = entry.bounds;
+        entries.put(entry.id, entry);
+
+        int minLatCell = cell(bounds.getMinLat(), 90);
+        int maxLatCell = cell(bounds.getMaxLat(), 90);
+        int minLonCell = cell(bounds.getMinLon(), 180);
+        int maxLonCell = cell(bounds.getMaxLon(), 180);
+        if ((long) (maxLatCell - minLatCell + 1) * (maxLonCell - minLonCell + 1) > MAX_CELLS) {
+            large.add(entry);
+        } else {
+            for (int latCell = minLatCell; latCell <= maxLatCell; latCell++) {
+                for (int lonCell = minLonCell; lonCell <= maxLonCell; lonCell++) {
+                    long key = cellKey(latCell, lonCell);
+                    cells.computeIfAbsent(key, k -> new ArrayList<>()).add(entry);
+                    entry.cells.add(key);
+                }
+            }
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeEntry(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeEntry(long id) {
+        Entry entry = entries.remove(id);
+        if (entry != null) {
+            if (entry.cells.isEmpty()) {
+                large.remove(entry);
+            }
+            for (long key : entry.cells) {
+                List<Entry> items = cells.get(key);
+                items.remove(entry);
+                if (items.isEmpty()) {
+                    cells.remove(key);
+                }
+            }
+        }
+    }
+
+    public Set<Long> find(double latitude, double longitude) {
+        Set<Long> result = new HashSet<>();
+        lock.readLock().lock();
+        try {
+            List<Entry> items = cells.get(cellKey(cell(latitude, 90), cell(longitude, 180)));
+            if (items != null) {
+                for (Entry entry : items) {
+                    if (entry.bounds.contains(latitude, longitude)) {
+                        result.add(entry.id);
+                    }
+                }
+            }
+            for (Entry entry : large) {
+                if (entry.bounds.contains(latitude, longitude)) {
+                    result.add(entry.id);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.speedlimit;
+
+import org.traccar.helper.RequestLimiter;
+
+import java.util.AbstractMap;
+import java.util.Map;
+
+public class LimitedSpeedLimitProvider implements SpeedLimitProvider {
+
+    private final SpeedLimitProvider speedLimitProvider;
+    private final RequestLimiter<Map.Entry<Double, Double>, Double> limiter;
+
+    public LimitedSpeedLimitProvider(
+            SpeedLimitProvider speedLimitProvider, RequestLimiter<Map.Entry<Double, Double>, Double> limiter) {
+        this.speedLimitProvider = speedLimitProvider;
+        this.limiter = limiter;
+    }
+
+    public RequestLimiter<Map.Entry<Double, Double>, Double> getLimiter() {
+        return limiter;
+    }
+
+    @Override
+    public void getSpeedLimit(double latitude, double longitude, SpeedLimitProviderCallback callback) {
+        limiter.execute(
+                new AbstractMap.SimpleImmutableEntry<>(latitude, longitude),
+                result -> speedLimitProvider.getSpeedLimit(latitude, longitude, new SpeedLimitProviderCallback() {
+                    @Override
+                    public void onSuccess(double speedLimit) {
+                        result.onSuccess(speedLimit);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable e) {
+                        result.onFailure(e);
+                    }
+                }),
+                new RequestLimiter.Callback<>() {
+                    @Override
+                    public void onSuccess(Double speedLimit) {
+                        callback.onSuccess(speedLimit);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable e) {
+                        callback.onFailure(e);
+                    }
+                });
+    }
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2022 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -76,6 +76,20 @@ public class DatabaseModule extends AbstractModule {
             hikariConfig.setMaximumPoolSize(maxPoolSize);
         }
 
+        int statementCacheSize = config.getInteger(Keys.DATABASE_STATEMENT_CACHE_SIZE);
+        String url = hikariConfig.getJdbcUrl();
+        if (statementCacheSize > 0 && url != null
+                && (url.startsWith("jdbc:mysql:") || url.startsWith("jdbc:mariadb:"))) {
+            hikariConfig.addDataSourceProperty("cachePrepStmts", "true");
+            hikariConfig.addDataSourceProperty("prepStmtCacheSize", String.valueOf(statementCacheSize));
+            hikariConfig.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        }
+
+        if (config.getInteger(Keys.DATABASE_FETCH_SIZE) > 0 && url != null
+                && url.startsWith("jdbc:mysql:") && !url.contains("useCursorFetch")) {
+            hikariConfig.addDataSourceProperty("useCursorFetch", "true");
+        }
+
         DataSource dataSource = new HikariDataSource(hikariConfig);
 
         if (config.hasKey(Keys.DATABASE_CHANGELOG)) {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2022 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@ package org.traccar.storage;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.traccar.config.Config;
+import org.traccar.config.Keys;
 import org.traccar.model.BaseModel;
 import org.traccar.model.Device;
 import org.traccar.model.Group;
@@ -30,25 +31,40 @@ import org.traccar.storage.query.Request;
 import jakarta.inject.Inject;
 import javax.sql.DataSource;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class DatabaseStorage extends Storage {
 
+    private static final int QUERY_CACHE_SIZE = 1000;
+
+    private interface QueryFormatter {
+        String format() throws StorageException;
+    }
+
+    private final Map<List<Object>, String> queryCache = new ConcurrentHashMap<>();
+
     private final Config config;
     private final DataSource dataSource;
     private final ObjectMapper objectMapper;
     private final String databaseType;
+    private final int fetchSize;
 
     @Inject
     public DatabaseStorage(Config config, DataSource dataSource, ObjectMapper objectMapper) {
         this.config = config;
         this.dataSource = dataSource;
         this.objectMapper = objectMapper;
+        fetchSize = config.getInteger(Keys.DATABASE_FETCH_SIZE);
 
         try {
             databaseType = dataSource.getConnection().getMetaData().getDatabaseProductName();
@@ -57,23 +73,44 @@ public class DatabaseStorage extends Storage {
         }
     }
 
+    private QueryBuilder createSelect(Class<?> clazz, Request request) throws StorageException, SQLException {
+        boolean all = request.getColumns() instanceof Columns.All;
+        List<String> columns = all ? List.of() : request.getColumns().getColumns(clazz, "set");
+        String query = getQuery(
+                List.of("SELECT", clazz, all, columns, getConditionKey(request.getCondition()),
+                        getOrderKey(request.getOrder())),
+                () -> {
+                    StringBuilder result = new StringBuilder("SELECT ");
+                    if (all) {
+                        result.append('*');
+                    } else {
+                        result.append(formatColumns(columns, c -> c));
+                    }
+                    result.append(" FROM ").append(getStorageName(clazz));
+                    result.append(formatCondition(request.getCondition()));
+                    result.append(formatOrder(request.getOrder()));
+                    return result.toString();
+                });
+        QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query);
+        for (Map.Entry<String, Object> variable : getConditionVariables(request.getCondition()).entrySet()) {
+            builder.setValue(variable.getKey(), variable.getValue());
+        }
+        return builder;
+    }
+
     @Override
     public <T> List<T> getObjects(Class<T> clazz, Request request) throws StorageException {
-        StringBuilder query = new StringBuilder("SELECT ");
-        if (request.getColumns() instanceof Columns.All) {
-            query.append('*');
-        } else {
-            query.append(formatColumns(request.getColumns().getColumns(clazz, "set"), c -> c));
+        try {
+            return createSelect(clazz, request).executeQuery(clazz);
+        } catch (SQLException e) {
+            throw new StorageException(e);
         }
-        query.append(" FROM ").append(getStorageName(clazz));
-        query.append(formatCondition(request.getCondition()));
-        query.append(formatOrder(request.getOrder()));
+    }
+
+    @Override
+    public <T> Stream<T> getObjectsStream(Class<T> clazz, Request request) throws StorageException {
         try {
-            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query.toString());
-            for (Map.Entry<String, Object> variable : getConditionVariables(request.getCondition()).entrySet()) {
-                builder.setValue(variable.getKey(), variable.getValue());
-            }
-            return builder.executeQuery(clazz);
+            return createSelect(clazz, request).executeQueryStreamed(clazz, fetchSize);
         } catch (SQLException e) {
             throw new StorageException(e);
         }
@@ -82,15 +119,10 @@ public class DatabaseStorage extends Storage {
     @Override
     public <T> long addObject(T entity, Request request) throws StorageException {
         List<String> columns = request.getColumns().getColumns(entity.getClass(), "get");
-        StringBuilder query = new StringBuilder("INSERT INTO ");
-        query.append(getStorageName(entity.getClass()));
-        query.append("(");
-        query.append(formatColumns(columns, c -> c));
-        query.append(") VALUES (");
-        query.append(formatColumns(columns, c -> ':' + c));
-        query.append(")");
+        String query = getQuery(
+                List.of("INSERT", entity.getClass(), columns), () -> formatInsert(entity.getClass(), columns));
         try {
-            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query.toString(), true);
+            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query, true);
             builder.setObject(entity, columns);
             return builder.executeUpdate();
         } catch (SQLException e) {
@@ -98,16 +130,34 @@ public class DatabaseStorage extends Storage {
         }
     }
 
+    @Override
+    public <T> long[] addObjects(List<T> entities, Request request) throws StorageException {
+        if (entities.isEmpty()) {
+            return new long[0];
+        }
+        Class<?> clazz = entities.get(0).getClass();
+        List<String> columns = request.getColumns().getColumns(clazz, "get");
+        String query = getQuery(List.of("INSERT", clazz, columns), () -> formatInsert(clazz, columns));
+        try {
+            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query, true);
+            for (T entity : entities) {
+                builder.setObject(entity, columns);
+                builder.addBatch();
+            }
+            return builder.executeBatch();
+        } catch (SQLException e) {
+            throw new StorageException(e);
+        }
+    }
+
     @Override
     public <T> void updateObject(T entity, Request request) throws StorageException {
         List<String> columns = request.getColumns().getColumns(entity.getClass(), "get");
-        StringBuilder query = new StringBuilder("UPDATE ");
-        query.append(getStorageName(entity.getClass()));
-        query.append(" SET ");
-        query.append(formatColumns(columns, c -> c + " = :" + c));
-        query.append(formatCondition(request.getCondition()));
+        String query = getQuery(
+                List.of("UPDATE", entity.getClass(), columns, getConditionKey(request.getCondition())),
+                () -> formatUpdate(entity.getClass(), columns, formatCondition(request.getCondition())));
         try {
-            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query.toString());
+            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query);
             builder.setObject(entity, columns);
             for (Map.Entry<String, Object> variable : getConditionVariables(request.getCondition()).entrySet()) {
                 builder.setValue(variable.getKey(), variable.getValue());
@@ -118,13 +168,35 @@ public class DatabaseStorage extends Storage {
         }
     }
 
+    @Override
+    public <T extends BaseModel> void updateObjects(List<T> entities, Request request) throws StorageException {
+        if (entities.isEmpty()) {
+            return;
+        }
+        Class<?> clazz = entities.get(0).getClass();
+        List<String> columns = request.getColumns().getColumns(clazz, "get");
+        String query = getQuery(
+                List.of("UPDATE", clazz, columns, "id"), () -> formatUpdate(clazz, columns, " WHERE id = :id"));
+        try {
+            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query);
+            for (T entity : entities) {
+                builder.setObject(entity, columns);
+                builder.setLong("id", entity.getId());
+                builder.addBatch();
+            }
+            builder.executeBatch();
+        } catch (SQLException e) {
+            throw new StorageException(e);
+        }
+    }
+
     @Override
     public void removeObject(Class<?> clazz, Request request) throws StorageException {
-        StringBuilder query = new StringBuilder("DELETE FROM ");
-        query.append(getStorageName(clazz));
-        query.append(formatCondition(request.getCondition()));
+        String query = getQuery(
+                List.of("DELETE", clazz, getConditionKey(request.getCondition())),
+                () -> "DELETE FROM " + getStorageName(clazz) + formatCondition(request.getCondition()));
         try {
-            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query.toString());
+            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query);
             for (Map.Entry<String, Object> variable : getConditionVariables(request.getCondition()).entrySet()) {
                 builder.setValue(variable.getKey(), variable.getValue());
             }
@@ -196,6 +268,55 @@ public class DatabaseStorage extends Storage {
         }
     }
 
+    @Override
+    public void addPermissions(List<Permission> permissions) throws StorageException {
+        for (var group : groupPermissions(permissions)) {
+            Permission first = group.get(0);
+            StringBuilder query = new StringBuilder("INSERT INTO ");
+            query.append(first.getStorageName());
+            query.append(" VALUES (");
+            query.append(first.get().keySet().stream().map(key -> ':' + key).collect(Collectors.joining(", ")));
+            query.append(")");
+            executePermissionBatch(query.toString(), group);
+        }
+    }
+
+    @Override
+    public void removePermissions(List<Permission> permissions) throws StorageException {
+        for (var group : groupPermissions(permissions)) {
+            Permission first = group.get(0);
+            StringBuilder query = new StringBuilder("DELETE FROM ");
+            query.append(first.getStorageName());
+            query.append(" WHERE ");
+            query.append(first
+                    .get().keySet().stream().map(key -> key + " = :" + key).collect(Collectors.joining(" AND ")));
+            executePermissionBatch(query.toString(), group);
+        }
+    }
+
+    private Collection<List<Permission>> groupPermissions(List<Permission> permissions) {
+        Map<String, List<Permission>> groups = new LinkedHashMap<>();
+        for (Permission permission : permissions) {
+            groups.computeIfAbsent(permission.getStorageName(), k -> new ArrayList<>()).add(permission);
+        }
+        return groups.values();
+    }
+
+    private void executePermissionBatch(String query, List<Permission> permissions) throws StorageException {
+        try {
+            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query);
+            for (Permission permission : permissions) {
+                for (var entry : permission.get().entrySet()) {
+                    builder.setLong(entry.getKey(), entry.getValue());
+                }
+                builder.addBatch();
+            }
+            builder.executeBatch();
+        } catch (SQLException e) {
+            throw new StorageException(e);
+        }
+    }
+
     private String getStorageName(Class<?> clazz) throws StorageException {
         StorageName storageName = clazz.getAnnotation(StorageName.class);
         if (storageName == null) {
@@ -204,6 +325,52 @@ public class DatabaseStorage extends Storage {
         return storageName.value();
     }
 
+    private String getQuery(List<Object> key, QueryFormatter formatter) throws StorageException {
+        String query = queryCache.get(key);
+        if (query == null) {
+            query = formatter.format();
+            if (queryCache.size() >= QUERY_CACHE_SIZE) {
+                queryCache.clear();
+            }
+            queryCache.put(key, query);
+        }
+        return query;
+    }
+
+    private List<Object> getConditionKey(Condition genericCondition) {
+        if (genericCondition instanceof Condition.Compare) {
+            var condition = (Condition.Compare) genericCondition;
+            return List.of(
+                    Condition.Compare.class, condition.getColumn(), condition.getOperator(), condition.getVariable());
+        } else if (genericCondition instanceof Condition.Between) {
+            var condition = (Condition.Between) genericCondition;
+            return List.of(
+                    Condition.Between.class, condition.getColumn(),
+                    condition.getFromVariable(), condition.getToVariable());
+        } else if (genericCondition instanceof Condition.Binary) {
+            var condition = (Condition.Binary) genericCondition;
+            return List.of(
+                    condition.getOperator(),
+                    getConditionKey(condition.getFirst()), getConditionKey(condition.getSecond()));
+        } else if (genericCondition instanceof Condition.Permission) {
+            var condition = (Condition.Permission) genericCondition;
+            return List.of(
+                    condition.getOwnerClass(), condition.getPropertyClass(),
+                    condition.getOwnerId() > 0, condition.getIncludeGroups());
+        } else if (genericCondition instanceof Condition.LatestPositions) {
+            var condition = (Condition.LatestPositions) genericCondition;
+            return List.of(Condition.LatestPositions.class, condition.getDeviceId() > 0);
+        }
+        return List.of();
+    }
+
+    private List<Object> getOrderKey(Order order) {
+        if (order != null) {
+            return List.of(order.getColumn(), order.getDescending(), order.getLimit());
+        }
+        return List.of();
+    }
+
     private Map<String, Object> getConditionVariables(Condition genericCondition) {
         Map<String, Object> results = new HashMap<>();
         if (genericCondition instanceof Condition.Compare) {
@@ -235,6 +402,26 @@ public class DatabaseStorage extends Storage {
         return results;
     }
 
+    private String formatInsert(Class<?> clazz, List<String> columns) throws StorageException {
+        StringBuilder query = new StringBuilder("INSERT INTO ");
+        query.append(getStorageName(clazz));
+        query.append("(");
+        query.append(formatColumns(columns, c -> c));
+        query.append(") VALUES (");
+        query.append(formatColumns(columns, c -> ':' + c));
+        query.append(")");
+        return query.toString();
+    }
+
+    private String formatUpdate(Class<?> clazz, List<String> columns, String condition) throws StorageException {
+        StringBuilder query = new StringBuilder("UPDATE ");
+        query.append(getStorageName(clazz));
+        query.append(" SET ");
+        query.append(formatColumns(columns, c -> c + " = :" + c));
+        query.append(condition);
+        return query.toString();
+    }
+
     private String formatColumns(List<String> columns, Function<String, String> mapper) {
         return columns.stream().map(mapper).collect(Collectors.joining(", "));
     }
@@ -16,27 +16,51 @@
 package org.traccar.storage;
 
 import org.traccar.model.BaseModel;
+import org.traccar.model.Device;
+import org.traccar.model.Event;
+import org.traccar.model.Group;
+import org.traccar.model.GroupedModel;
+import org.traccar.model.Message;
 import org.traccar.model.Pair;
 import org.traccar.model.Permission;
+import org.traccar.model.Position;
 import org.traccar.model.Server;
 import org.traccar.storage.query.Condition;
+import org.traccar.storage.query.Order;
 import org.traccar.storage.query.Request;
 
 import java.beans.Introspector;
-import java.lang.reflect.Method;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class MemoryStorage extends Storage {
 
+    private static final Map<Class<?>, String> TIME_COLUMNS = Map.of(
+            Position.class, "fixTime",
+            Event.class, "eventTime");
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
     private final Map<Class<?>, Map<Long, Object>> objects = new HashMap<>();
-    private final Map<Pair<Class<?>, Class<?>>, Set<Pair<Long, Long>>> permissions = new HashMap<>();
+    private final Map<String, Long> deviceUniqueIds = new HashMap<>();
+    private final Map<Class<?>, Map<Long, NavigableMap<Long, Map<Long, Object>>>> timeIndexes = new HashMap<>();
+    private final Map<Pair<Class<?>, Class<?>>, Map<Long, Set<Long>>> permissions = new HashMap<>();
+    private final Map<Pair<Class<?>, Class<?>>, Map<Long, Set<Long>>> reversePermissions = new HashMap<>();
 
     private final AtomicLong increment = new AtomicLong();
 
@@ -44,18 +68,130 @@ public class MemoryStorage extends Storage {
         Server server = new Server();
         server.setId(1);
         server.setRegistration(true);
-        objects.put(Server.class, Map.of(server.getId(), server));
+        objects.computeIfAbsent(Server.class, key -> new HashMap<>()).put(server.getId(), server);
+    }
+
+    private Map<Long, Object> getTable(Class<?> clazz) {
+        return objects.getOrDefault(clazz, Map.of());
     }
 
     @Override
     public <T> List<T> getObjects(Class<T> clazz, Request request) {
-        return objects.computeIfAbsent(clazz, key -> new HashMap<>()).values().stream()
-                .filter(object -> checkCondition(request.getCondition(), object))
-                .map(object -> (T) object)
-                .collect(Collectors.toList());
+        lock.readLock().lock();
+        try {
+            List<T> result = new ArrayList<>();
+            for (Map.Entry<Long, Object> entry : selectObjects(clazz, request.getCondition())) {
+                result.add(clazz.cast(entry.getValue()));
+            }
+            return applyOrder(result, request.getOrder());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Map.Entry<Long, Object>> selectObjects(Class<?> clazz, Condition condition) {
+        Map<Condition, Set<Long>> cache = new HashMap<>();
+        List<Map.Entry<Long, Object>> result = new ArrayList<>();
+        for (Map.Entry<Long, Object> entry : selectCandidates(clazz, condition)) {
+            if (checkCondition(condition, entry.getKey(), entry.getValue(), cache)) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    private Collection<Map.Entry<Long, Object>> selectCandidates(Class<?> clazz, Condition condition) {
+        Map<Long, Object> table = getTable(clazz);
+
+        Object id = getEqualsValue(condition, "id");
+        if (id instanceof Number) {
+            return selectIds(table, Set.of(((Number) id).longValue()));
+        }
+
+        if (clazz.equals(Device.class)) {
+            Object uniqueId = getEqualsValue(condition, "uniqueId");
+            if (uniqueId != null) {
+                Long deviceId = deviceUniqueIds.get(uniqueId.toString());
+                return deviceId != null ? selectIds(table, Set.of(deviceId)) : List.of();
+            }
+        }
+
+        String timeColumn = TIME_COLUMNS.get(clazz);
+        Object deviceId = getEqualsValue(condition, "deviceId");
+        if (timeColumn != null && deviceId instanceof Number) {
+            var index = timeIndexes.getOrDefault(clazz, Map.of()).get(((Number) deviceId).longValue());
+            if (index == null) {
+                return List.of();
+            }
+            Condition.Between between = getBetween(condition, timeColumn);
+            if (between != null
+                    && between.getFromValue() instanceof Date && between.getToValue() instanceof Date) {
+                long from = ((Date) between.getFromValue()).getTime();
+                long to = ((Date) between.getToValue()).getTime();
+                if (from > to) {
+                    return List.of();
+                }
+                index = index.subMap(from, true, to, true);
+            }
+            List<Map.Entry<Long, Object>> result = new ArrayList<>();
+            index.values().forEach(items -> result.addAll(items.entrySet()));
+            return result;
+        }
+
+        if (condition instanceof Condition.Permission) {
+            return selectIds(table, getPermissionIds((Condition.Permission) condition));
+        } else if (condition instanceof Condition.LatestPositions) {
+            return selectIds(table, getLatestPositionIds((Condition.LatestPositions) condition));
+        }
+
+        return table.entrySet();
+    }
+
+    private List<Map.Entry<Long, Object>> selectIds(Map<Long, Object> table, Set<Long> ids) {
+        List<Map.Entry<Long, Object>> result = new ArrayList<>();
+        for (long id : ids) {
+            Object object = table.get(id);
+            if (object != null) {
+                result.add(Map.entry(id, object));
+            }
+        }
+        return result;
+    }
+
+    private Object getEqualsValue(Condition genericCondition, String column) {
+        if (genericCondition instanceof Condition.Compare) {
+            var condition = (Condition.Compare) genericCondition;
+            if (condition.getColumn().equals(column) && condition.getOperator().equals("=")) {
+                return condition.getValue();
+            }
+        } else if (genericCondition instanceof Condition.Binary) {
+            var condition = (Condition.Binary) genericCondition;
+            if (condition.getOperator().equals("AND")) {
+                Object value = getEqualsValue(condition.getFirst(), column);
+                return value != null ? value : getEqualsValue(condition.getSecond(), column);
+            }
+        }
+        return null;
+    }
+
+    private Condition.Between getBetween(Condition genericCondition, String column) {
+        if (genericCondition instanceof Condition.Between) {
+            var condition = (Condition.Between) genericCondition;
+            if (condition.getColumn().equals(column)) {
+                return condition;
+            }
+        } else if (genericCondition instanceof Condition.Binary) {
+            var condition = (Condition.Binary) genericCondition;
+            if (condition.getOperator().equals("AND")) {
+                Condition.Between between = getBetween(condition.getFirst(), column);
+                return between != null ? between : getBetween(condition.getSecond(), column);
+            }
+        }
+        return null;
     }
 
-    private boolean checkCondition(Condition genericCondition, Object object) {
+    private boolean checkCondition(
+            Condition genericCondition, long id, Object object, Map<Condition, Set<Long>> cache) {
         if (genericCondition == null) {
             return true;
         }
@@ -63,8 +199,11 @@ public class MemoryStorage extends Storage {
         if (genericCondition instanceof Condition.Compare) {
 
             var condition = (Condition.Compare) genericCondition;
-            Object value = retrieveValue(object, condition.getVariable());
-            int result = ((Comparable) value).compareTo(condition.getValue());
+            Object value = condition.getColumn().equals("id") ? id : retrieveValue(object, condition.getColumn());
+            if (value == null || condition.getValue() == null) {
+                return false;
+            }
+            int result = compareValues(value, condition.getValue());
             switch (condition.getOperator()) {
                 case "<":
                     return result < 0;
@@ -83,117 +222,371 @@ public class MemoryStorage extends Storage {
         } else if (genericCondition instanceof Condition.Between) {
 
             var condition = (Condition.Between) genericCondition;
-            Object fromValue = retrieveValue(object, condition.getFromVariable());
-            int fromResult = ((Comparable) fromValue).compareTo(condition.getFromValue());
-            Object toValue = retrieveValue(object, condition.getToVariable());
-            int toResult = ((Comparable) toValue).compareTo(condition.getToValue());
-            return fromResult >= 0 && toResult <= 0;
+            Object value = retrieveValue(object, condition.getColumn());
+            return value != null
+                    && compareValues(value, condition.getFromValue()) >= 0
+                    && compareValues(value, condition.getToValue()) <= 0;
 
         } else if (genericCondition instanceof Condition.Binary) {
 
             var condition = (Condition.Binary) genericCondition;
             if (condition.getOperator().equals("AND")) {
-                return checkCondition(condition.getFirst(), object) && checkCondition(condition.getSecond(), object);
+                return checkCondition(condition.getFirst(), id, object, cache)
+                        && checkCondition(condition.getSecond(), id, object, cache);
             } else if (condition.getOperator().equals("OR")) {
-                return checkCondition(condition.getFirst(), object) || checkCondition(condition.getSecond(), object);
+                return checkCondition(condition.getFirst(), id, object, cache)
+                        || checkCondition(condition.getSecond(), id, object, cache);
             }
 
         } else if (genericCondition instanceof Condition.Permission) {
 
             var condition = (Condition.Permission) genericCondition;
-            long id = (Long) retrieveValue(object, "id");
-            return getPermissionsSet(condition.getOwnerClass(), condition.getPropertyClass()).stream()
-                    .anyMatch(pair -> {
-                        if (condition.getOwnerId() > 0) {
-                            return pair.getFirst() == condition.getOwnerId() && pair.getSecond() == id;
-                        } else {
-                            return pair.getFirst() == id && pair.getSecond() == condition.getPropertyId();
-                        }
-                    });
+            return cache.computeIfAbsent(condition, key -> getPermissionIds(condition)).contains(id);
 
         } else if (genericCondition instanceof Condition.LatestPositions) {
 
-            return false;
+            var condition = (Condition.LatestPositions) genericCondition;
+            return cache.computeIfAbsent(condition, key -> getLatestPositionIds(condition)).contains(id);
 
         }
 
         return false;
     }
 
-    private Object retrieveValue(Object object, String key) {
+    private static Object retrieveValue(Object object, String key) {
+        ModelMetadata.Property getter = ModelMetadata.of(object.getClass()).getGetter(key);
+        if (getter == null) {
+            throw new RuntimeException("Unknown column " + key);
+        }
         try {
-            Method method = object.getClass().getMethod(
-                    "get" + Character.toUpperCase(key.charAt(0)) + key.substring(1));
-            return method.invoke(object);
-        } catch (ReflectiveOperationException e) {
+            return getter.get(object);
+        } catch (InvocationTargetException e) {
             throw new RuntimeException(e);
         }
     }
 
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareValues(Object first, Object second) {
+        if (first instanceof Number && second instanceof Number) {
+            if (first instanceof Double || first instanceof Float
+                    || second instanceof Double || second instanceof Float) {
+                return Double.compare(((Number) first).doubleValue(), ((Number) second).doubleValue());
+            }
+            return Long.compare(((Number) first).longValue(), ((Number) second).longValue());
+        }
+        return ((Comparable) first).compareTo(second);
+    }
+
+    private <T> List<T> applyOrder(List<T> items, Order order) {
+        if (order != null) {
+            Comparator<T> comparator = Comparator.comparing(
+                    item -> retrieveValue(item, order.getColumn()),
+                    Comparator.nullsFirst(MemoryStorage::compareValues));
+            items.sort(order.getDescending() ? comparator.reversed() : comparator);
+            if (order.getLimit() > 0 && items.size() > order.getLimit()) {
+                return new ArrayList<>(items.subList(0, order.getLimit()));
+            }
+        }
+        return items;
+    }
+
+    private void indexObject(Class<?> clazz, long id, Object object) {
+        if (object instanceof Device) {
+            String uniqueId = ((Device) object).getUniqueId();
+            if (uniqueId != null) {
+                deviceUniqueIds.put(uniqueId, id);
+            }
+        }
+        if (TIME_COLUMNS.containsKey(clazz)) {
+            timeIndexes.computeIfAbsent(clazz, key -> new HashMap<>())
+                    .computeIfAbsent(getDeviceId(object), key -> new TreeMap<>())
+                    .computeIfAbsent(getTime(object), key -> new LinkedHashMap<>())
+                    .put(id, object);
+        }
+    }
+
+    private void unindexObject(Class<?> clazz, long id, Object object) {
+        if (object instanceof Device) {
+            String uniqueId = ((Device) object).getUniqueId();
+            if (uniqueId != null) {
+                deviceUniqueIds.remove(uniqueId, id);
+            }
+        }
+        if (TIME_COLUMNS.containsKey(clazz)) {
+            var devices = timeIndexes.get(clazz);
+            var index = devices != null ? devices.get(getDeviceId(object)) : null;
+            if (index != null) {
+                long time = getTime(object);
+                var items = index.get(time);
+                if (items != null) {
+                    items.remove(id);
+                    if (items.isEmpty()) {
+                        index.remove(time);
+                    }
+                }
+                if (index.isEmpty()) {
+                    devices.remove(getDeviceId(object));
+                }
+            }
+        }
+    }
+
+    private static long getDeviceId(Object object) {
+        return ((Message) object).getDeviceId();
+    }
+
+    private static long getTime(Object object) {
+        Date time = object instanceof Position ? ((Position) object).getFixTime() : ((Event) object).getEventTime();
+        return time != null ? time.getTime() : 0;
+    }
+
     @Override
     public <T> long addObject(T entity, Request request) {
         long id = increment.incrementAndGet();
-        objects.computeIfAbsent(entity.getClass(), key -> new HashMap<>()).put(id, entity);
+        if (entity instanceof BaseModel) {
+            ((BaseModel) entity).setId(id);
+        }
+        lock.writeLock().lock();
+        try {
+            objects.computeIfAbsent(entity.getClass(), key -> new HashMap<>()).put(id, entity);
+            indexObject(entity.getClass(), id, entity);
+        } finally {
+            lock.writeLock().unlock();
+        }
         return id;
     }
 
     @Override
     public <T> void updateObject(T entity, Request request) {
-        Set<String> columns = new HashSet<>(request.getColumns().getColumns(entity.getClass(), "get"));
-        Collection<Object> items;
-        if (request.getCondition() != null) {
-            long id = (Long) ((Condition.Equals) request.getCondition()).getValue();
-            items = List.of(objects.computeIfAbsent(entity.getClass(), key -> new HashMap<>()).get(id));
-        } else {
-            items = objects.computeIfAbsent(entity.getClass(), key -> new HashMap<>()).values();
-        }
-        for (Method setter : entity.getClass().getMethods()) {
-            if (setter.getName().startsWith("set") && setter.getParameterCount() == 1
-                    && columns.contains(Introspector.decapitalize(setter.getName()))) {
-                try {
-                    Method getter = entity.getClass().getMethod(setter.getName().replaceFirst("set", "get"));
-                    Object value = getter.invoke(entity);
-                    for (Object object : items) {
-                        setter.invoke(object, value);
+        Class<?> clazz = entity.getClass();
+        Set<String> columns = new HashSet<>(request.getColumns().getColumns(clazz, "get"));
+        ModelMetadata metadata = ModelMetadata.of(clazz);
+        lock.writeLock().lock();
+        try {
+            var items = selectObjects(clazz, request.getCondition());
+            for (Map.Entry<Long, Object> item : items) {
+                unindexObject(clazz, item.getKey(), item.getValue());
+            }
+            for (ModelMetadata.Property setter : metadata.getSetters()) {
+                String column = Introspector.decapitalize(setter.getName());
+                ModelMetadata.Property getter = metadata.getGetter(column);
+                if (columns.contains(column) && getter != null) {
+                    try {
+                        Object value = getter.get(entity);
+                        for (Map.Entry<Long, Object> item : items) {
+                            setter.set(item.getValue(), value);
+                        }
+                    } catch (InvocationTargetException e) {
+                        throw new RuntimeException(e);
                     }
-                } catch (ReflectiveOperationException e) {
-                    throw new RuntimeException(e);
                 }
             }
+            for (Map.Entry<Long, Object> item : items) {
+                indexObject(clazz, item.getKey(), item.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
     @Override
     public void removeObject(Class<?> clazz, Request request) {
-        long id = (Long) ((Condition.Equals) request.getCondition()).getValue();
-        objects.computeIfAbsent(clazz, key -> new HashMap<>()).remove(id);
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Long, Object> item : selectObjects(clazz, request.getCondition())) {
+                removeObject(clazz, item.getKey());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeObject(Class<?> clazz, long id) {
+        Map<Long, Object> table = objects.get(clazz);
+        Object object = table != null ? table.remove(id) : null;
+        if (object != null) {
+            unindexObject(clazz, id, object);
+            for (var entry : permissions.entrySet()) {
+                if (entry.getKey().getFirst().equals(clazz)) {
+                    for (long propertyId : entry.getValue().getOrDefault(id, Set.of())) {
+                        unlink(reversePermissions, entry.getKey(), propertyId, id);
+                    }
+                    entry.getValue().remove(id);
+                }
+            }
+            for (var entry : reversePermissions.entrySet()) {
+                if (entry.getKey().getSecond().equals(clazz)) {
+                    for (long ownerId : entry.getValue().getOrDefault(id, Set.of())) {
+                        unlink(permissions, entry.getKey(), ownerId, id);
+                    }
+                    entry.getValue().remove(id);
+                }
+            }
+        }
+    }
+
+    private Set<Long> getLinks(Class<?> ownerClass, Class<?> propertyClass, boolean forward, long id) {
+        var links = (forward ? permissions : reversePermissions).get(new Pair<>(ownerClass, propertyClass));
+        return links != null ? links.getOrDefault(id, Set.of()) : Set.of();
+    }
+
+    private static void link(
+            Map<Pair<Class<?>, Class<?>>, Map<Long, Set<Long>>> links, Pair<Class<?>, Class<?>> key,
+            long first, long second) {
+        links.computeIfAbsent(key, k -> new HashMap<>()).computeIfAbsent(first, k -> new HashSet<>()).add(second);
+    }
+
+    private static void unlink(
+            Map<Pair<Class<?>, Class<?>>, Map<Long, Set<Long>>> links, Pair<Class<?>, Class<?>> key,
+            long first, long second) {
+        var map = links.get(key);
+        var set = map != null ? map.get(first) : null;
+        if (set != null) {
+            set.remove(second);
+            if (set.isEmpty()) {
+                map.remove(first);
+            }
+        }
+    }
+
+    private long getGroupId(Class<?> clazz, long id) {
+        Object object = getTable(clazz).get(id);
+        return object instanceof GroupedModel ? ((GroupedModel) object).getGroupId() : 0;
     }
 
-    private Set<Pair<Long, Long>> getPermissionsSet(Class<?> ownerClass, Class<?> propertyClass) {
-        return permissions.computeIfAbsent(new Pair<>(ownerClass, propertyClass), k -> new HashSet<>());
+    private Set<Long> getAncestorGroups(long groupId) {
+        Set<Long> result = new LinkedHashSet<>();
+        while (groupId > 0 && result.add(groupId)) {
+            groupId = getGroupId(Group.class, groupId);
+        }
+        return result;
+    }
+
+    private Set<Long> expandGroups(Class<?> clazz, Set<Long> groupIds) {
+        Set<Long> groups = new HashSet<>(groupIds);
+        boolean changed = !groups.isEmpty();
+        while (changed) {
+            changed = false;
+            for (Map.Entry<Long, Object> entry : getTable(Group.class).entrySet()) {
+                if (groups.contains(((Group) entry.getValue()).getGroupId()) && groups.add(entry.getKey())) {
+                    changed = true;
+                }
+            }
+        }
+        if (clazz.equals(Group.class)) {
+            return groups;
+        }
+        Set<Long> result = new HashSet<>();
+        for (Map.Entry<Long, Object> entry : getTable(clazz).entrySet()) {
+            if (groups.contains(((GroupedModel) entry.getValue()).getGroupId())) {
+                result.add(entry.getKey());
+            }
+        }
+        return result;
+    }
+
+    private Set<Long> getPermissionIds(Condition.Permission condition) {
+        Class<?> ownerClass = condition.getOwnerClass();
+        Class<?> propertyClass = condition.getPropertyClass();
+        long ownerId = condition.getOwnerId();
+        long propertyId = condition.getPropertyId();
+        boolean forward = ownerId > 0;
+
+        Set<Long> result = new HashSet<>(getLinks(ownerClass, propertyClass, forward, forward ? ownerId : propertyId));
+        if (condition.getIncludeGroups()) {
+            if (GroupedModel.class.isAssignableFrom(ownerClass)) {
+                if (forward) {
+                    long groupId = ownerClass.equals(Group.class) ? ownerId : getGroupId(ownerClass, ownerId);
+                    for (long ancestorId : getAncestorGroups(groupId)) {
+                        result.addAll(getLinks(Group.class, propertyClass, true, ancestorId));
+                    }
+                } else {
+                    result.addAll(expandGroups(ownerClass, getLinks(Group.class, propertyClass, false, propertyId)));
+                }
+            } else {
+                if (forward) {
+                    result.addAll(expandGroups(propertyClass, getLinks(ownerClass, Group.class, true, ownerId)));
+                } else {
+                    long groupId = propertyClass.equals(Group.class)
+                            ? propertyId : getGroupId(propertyClass, propertyId);
+                    for (long ancestorId : getAncestorGroups(groupId)) {
+                        result.addAll(getLinks(ownerClass, Group.class, false, ancestorId));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private Set<Long> getLatestPositionIds(Condition.LatestPositions condition) {
+        Set<Long> result = new HashSet<>();
+        Map<Long, Object> devices = getTable(Device.class);
+        if (condition.getDeviceId() > 0) {
+            Object device = devices.get(condition.getDeviceId());
+            if (device != null) {
+                result.add(((Device) device).getPositionId());
+            }
+        } else {
+            for (Object device : devices.values()) {
+                result.add(((Device) device).getPositionId());
+            }
+        }
+        return result;
     }
 
     @Override
     public List<Permission> getPermissions(
             Class<? extends BaseModel> ownerClass, long ownerId,
             Class<? extends BaseModel> propertyClass, long propertyId) {
-        return getPermissionsSet(ownerClass, propertyClass).stream()
-                .filter(pair -> ownerId == 0 || pair.getFirst().equals(ownerId))
-                .filter(pair -> propertyId == 0 || pair.getSecond().equals(propertyId))
-                .map(pair -> new Permission(ownerClass, pair.getFirst(), propertyClass, pair.getSecond()))
-                .collect(Collectors.toList());
+        lock.readLock().lock();
+        try {
+            List<Permission> result = new ArrayList<>();
+            if (ownerId > 0) {
+                for (long id : getLinks(ownerClass, propertyClass, true, ownerId)) {
+                    if (propertyId == 0 || id == propertyId) {
+                        result.add(new Permission(ownerClass, ownerId, propertyClass, id));
+                    }
+                }
+            } else if (propertyId > 0) {
+                for (long id : getLinks(ownerClass, propertyClass, false, propertyId)) {
+                    result.add(new Permission(ownerClass, id, propertyClass, propertyId));
+                }
+            } else {
+                var links = permissions.getOrDefault(new Pair<>(ownerClass, propertyClass), Map.of());
+                for (Map.Entry<Long, Set<Long>> entry : links.entrySet()) {
+                    for (long id : entry.getValue()) {
+                        result.add(new Permission(ownerClass, entry.getKey(), propertyClass, id));
+                    }
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     @Override
     public void addPermission(Permission permission) {
-        getPermissionsSet(permission.getOwnerClass(), permission.getPropertyClass())
-                .add(new Pair<>(permission.getOwnerId(), permission.getPropertyId()));
+        Pair<Class<?>, Class<?>> key = new Pair<>(permission.getOwnerClass(), permission.getPropertyClass());
+        lock.writeLock().lock();
+        try {
+            link(permissions, key, permission.getOwnerId(), permission.getPropertyId());
+            link(reversePermissions, key, permission.getPropertyId(), permission.getOwnerId());
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     @Override
     public void removePermission(Permission permission) {
-        getPermissionsSet(permission.getOwnerClass(), permission.getPropertyClass())
-                .remove(new Pair<>(permission.getOwnerId(), permission.getPropertyId()));
+        Pair<Class<?>, Class<?>> key = new Pair<>(permission.getOwnerClass(), permission.getPropertyClass());
+        lock.writeLock().lock();
+        try {
+            unlink(permissions, key, permission.getOwnerId(), permission.getPropertyId());
+            unlink(reversePermissions, key, permission.getPropertyId(), permission.getOwnerId());
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
 }
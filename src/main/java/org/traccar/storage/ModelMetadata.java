@@ -0,0 +1,156 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.storage;
+
+import java.beans.Introspector;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class ModelMetadata {
+
+    public static final class Property {
+
+        private final String name;
+        private final Class<?> type;
+        private final MethodHandle handle;
+
+        private Property(String name, Class<?> type, MethodHandle handle) {
+            this.name = name;
+            this.type = type;
+            this.handle = handle;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Class<?> getType() {
+            return type;
+        }
+
+        public Object get(Object object) throws InvocationTargetException {
+            try {
+                return handle.invokeExact(object);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new InvocationTargetException(e);
+            }
+        }
+
+        public void set(Object object, Object value) throws InvocationTargetException {
+            try {
+                handle.invokeExact(object, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new InvocationTargetException(e);
+            }
+        }
+
+    }
+
+    private static final ClassValue<ModelMetadata> CACHE = new ClassValue<>() {
+        @Override
+        protected ModelMetadata computeValue(Class<?> type) {
+            return new ModelMetadata(type);
+        }
+    };
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+    private final MethodHandle constructor;
+    private final Map<String, Property> getters = new HashMap<>();
+    private final List<Property> setters = new ArrayList<>();
+    private final List<String> getterColumns = new ArrayList<>();
+    private final List<String> setterColumns = new ArrayList<>();
+
+    private ModelMetadata(Class<?> clazz) {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        MethodHandle constructor;
+        try {
+            constructor = lookup.findConstructor(clazz, MethodType.methodType(void.class)).asType(CONSTRUCTOR_TYPE);
+        } catch (ReflectiveOperationException e) {
+            constructor = null;
+        }
+        this.constructor = constructor;
+
+        for (Method method : clazz.getMethods()) {
+            String methodName = method.getName();
+            boolean ignore = method.isAnnotationPresent(QueryIgnore.class);
+            try {
+                if (methodName.startsWith("get") && method.getParameterCount() == 0
+                        && !methodName.equals("getClass")) {
+                    String column = Introspector.decapitalize(methodName.substring(3));
+                    MethodHandle handle = lookup.unreflect(method).asType(GETTER_TYPE);
+                    if (!ignore) {
+                        getterColumns.add(column);
+                    }
+                    getters.put(column, new Property(column, method.getReturnType(), handle));
+                } else if (methodName.startsWith("set") && method.getParameterCount() == 1) {
+                    String column = Introspector.decapitalize(methodName.substring(3));
+                    MethodHandle handle = lookup.unreflect(method).asType(SETTER_TYPE);
+                    if (!ignore) {
+                        setterColumns.add(column);
+                    }
+                    setters.add(new Property(methodName.substring(3), method.getParameterTypes()[0], handle));
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+    }
+
+    public static ModelMetadata of(Class<?> clazz) {
+        return CACHE.get(clazz);
+    }
+
+    public List<String> getColumns(String type) {
+        return Collections.unmodifiableList(type.equals("set") ? setterColumns : getterColumns);
+    }
+
+    public Property getGetter(String column) {
+        return getters.get(column);
+    }
+
+    public List<Property> getSetters() {
+        return Collections.unmodifiableList(setters);
+    }
+
+    public Object newInstance() throws ReflectiveOperationException {
+        if (constructor == null) {
+            throw new NoSuchMethodException("Default constructor is missing");
+        }
+        try {
+            return constructor.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2015 - 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2015 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -26,7 +26,6 @@ import org.traccar.model.Permission;
 import javax.sql.DataSource;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -35,22 +34,43 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.sql.Types;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @SuppressWarnings("UnusedReturnValue")
 public final class QueryBuilder {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(QueryBuilder.class);
 
+    private static final int PARSE_CACHE_SIZE = 1000;
+
+    private static final class ParsedQuery {
+        private final String query;
+        private final Map<String, List<Integer>> indexMap;
+
+        private ParsedQuery(String query, Map<String, List<Integer>> indexMap) {
+            this.query = query;
+            this.indexMap = indexMap;
+        }
+    }
+
+    private static final Map<String, ParsedQuery> PARSE_CACHE = new ConcurrentHashMap<>();
+
     private final Config config;
     private final ObjectMapper objectMapper;
 
-    private final Map<String, List<Integer>> indexMap = new HashMap<>();
+    private final Map<String, List<Integer>> indexMap;
     private Connection connection;
     private PreparedStatement statement;
     private final String query;
@@ -64,13 +84,14 @@ public final class QueryBuilder {
         this.query = query;
         this.returnGeneratedKeys = returnGeneratedKeys;
         if (query != null) {
+            ParsedQuery parsedQuery = parse(query);
+            indexMap = parsedQuery.indexMap;
             connection = dataSource.getConnection();
-            String parsedQuery = parse(query.trim(), indexMap);
             try {
                 if (returnGeneratedKeys) {
-                    statement = connection.prepareStatement(parsedQuery, Statement.RETURN_GENERATED_KEYS);
+                    statement = connection.prepareStatement(parsedQuery.query, Statement.RETURN_GENERATED_KEYS);
                 } else {
-                    statement = connection.prepareStatement(parsedQuery);
+                    statement = connection.prepareStatement(parsedQuery.query);
                 }
             } catch (SQLException error) {
                 connection.close();
@@ -79,6 +100,19 @@ public final class QueryBuilder {
         }
     }
 
+    private static ParsedQuery parse(String query) {
+        ParsedQuery parsedQuery = PARSE_CACHE.get(query);
+        if (parsedQuery == null) {
+            Map<String, List<Integer>> indexMap = new HashMap<>();
+            parsedQuery = new ParsedQuery(parse(query.trim(), indexMap), indexMap);
+            if (PARSE_CACHE.size() >= PARSE_CACHE_SIZE) {
+                PARSE_CACHE.clear();
+            }
+            PARSE_CACHE.put(query, parsedQuery);
+        }
+        return parsedQuery;
+    }
+
     private static String parse(String query, Map<String, List<Integer>> paramMap) {
 
         int length = query.length();
@@ -285,26 +319,30 @@ public final class QueryBuilder {
 
     public QueryBuilder setObject(Object object, List<String> columns) throws SQLException {
 
+        ModelMetadata metadata = ModelMetadata.of(object.getClass());
         try {
             for (String column : columns) {
-                Method method = object.getClass().getMethod(
-                        "get" + Character.toUpperCase(column.charAt(0)) + column.substring(1));
-                if (method.getReturnType().equals(boolean.class)) {
-                    setBoolean(column, (Boolean) method.invoke(object));
-                } else if (method.getReturnType().equals(int.class)) {
-                    setInteger(column, (Integer) method.invoke(object));
-                } else if (method.getReturnType().equals(long.class)) {
-                    setLong(column, (Long) method.invoke(object), column.endsWith("Id"));
-                } else if (method.getReturnType().equals(double.class)) {
-                    setDouble(column, (Double) method.invoke(object));
-                } else if (method.getReturnType().equals(String.class)) {
-                    setString(column, (String) method.invoke(object));
-                } else if (method.getReturnType().equals(Date.class)) {
-                    setDate(column, (Date) method.invoke(object));
-                } else if (method.getReturnType().equals(byte[].class)) {
-                    setBlob(column, (byte[]) method.invoke(object));
+                ModelMetadata.Property property = metadata.getGetter(column);
+                if (property == null) {
+                    throw new NoSuchMethodException(column);
+                }
+                Class<?> type = property.getType();
+                if (type.equals(boolean.class)) {
+                    setBoolean(column, (Boolean) property.get(object));
+                } else if (type.equals(int.class)) {
+                    setInteger(column, (Integer) property.get(object));
+                } else if (type.equals(long.class)) {
+                    setLong(column, (Long) property.get(object), column.endsWith("Id"));
+                } else if (type.equals(double.class)) {
+                    setDouble(column, (Double) property.get(object));
+                } else if (type.equals(String.class)) {
+                    setString(column, (String) property.get(object));
+                } else if (type.equals(Date.class)) {
+                    setDate(column, (Date) property.get(object));
+                } else if (type.equals(byte[].class)) {
+                    setBlob(column, (byte[]) property.get(object));
                 } else {
-                    setString(column, objectMapper.writeValueAsString(method.invoke(object)));
+                    setString(column, objectMapper.writeValueAsString(property.get(object)));
                 }
             }
         } catch (ReflectiveOperationException | JsonProcessingException e) {
@@ -314,84 +352,69 @@ public final class QueryBuilder {
         return this;
     }
 
-    private interface ResultSetProcessor<T> {
-        void process(T object, ResultSet resultSet) throws SQLException;
+    private interface ResultSetReader {
+        Object read(ResultSet resultSet, int index) throws SQLException;
     }
 
-    private <T> void addProcessors(
-            List<ResultSetProcessor<T>> processors,
-            final Class<?> parameterType, final Method method, final String name) {
+    private static final class ResultSetProcessor {
 
-        if (parameterType.equals(boolean.class)) {
-            processors.add((object, resultSet) -> {
+        private final ModelMetadata.Property property;
+        private final int index;
+        private final ResultSetReader reader;
+        private final boolean skipNull;
+
+        private ResultSetProcessor(
+                ModelMetadata.Property property, int index, ResultSetReader reader, boolean skipNull) {
+            this.property = property;
+            this.index = index;
+            this.reader = reader;
+            this.skipNull = skipNull;
+        }
+
+        private void process(Object object, ResultSet resultSet) throws SQLException {
+            Object value = reader.read(resultSet, index);
+            if (value != null || !skipNull) {
                 try {
-                    method.invoke(object, resultSet.getBoolean(name));
-                } catch (IllegalAccessException | InvocationTargetException error) {
+                    property.set(object, value);
+                } catch (InvocationTargetException | ClassCastException error) {
                     LOGGER.warn("Set property error", error);
                 }
-            });
+            }
+        }
+
+    }
+
+    private ResultSetProcessor createProcessor(ModelMetadata.Property property, int index) {
+        Class<?> parameterType = property.getType();
+        if (parameterType.equals(boolean.class)) {
+            return new ResultSetProcessor(property, index, ResultSet::getBoolean, false);
         } else if (parameterType.equals(int.class)) {
-            processors.add((object, resultSet) -> {
-                try {
-                    method.invoke(object, resultSet.getInt(name));
-                } catch (IllegalAccessException | InvocationTargetException error) {
-                    LOGGER.warn("Set property error", error);
-                }
-            });
+            return new ResultSetProcessor(property, index, ResultSet::getInt, false);
         } else if (parameterType.equals(long.class)) {
-            processors.add((object, resultSet) -> {
-                try {
-                    method.invoke(object, resultSet.getLong(name));
-                } catch (IllegalAccessException | InvocationTargetException error) {
-                    LOGGER.warn("Set property error", error);
-                }
-            });
+            return new ResultSetProcessor(property, index, ResultSet::getLong, false);
         } else if (parameterType.equals(double.class)) {
-            processors.add((object, resultSet) -> {
-                try {
-                    method.invoke(object, resultSet.getDouble(name));
-                } catch (IllegalAccessException | InvocationTargetException error) {
-                    LOGGER.warn("Set property error", error);
-                }
-            });
+            return new ResultSetProcessor(property, index, ResultSet::getDouble, false);
         } else if (parameterType.equals(String.class)) {
-            processors.add((object, resultSet) -> {
-                try {
-                    method.invoke(object, resultSet.getString(name));
-                } catch (IllegalAccessException | InvocationTargetException error) {
-                    LOGGER.warn("Set property error", error);
-                }
-            });
+            return new ResultSetProcessor(property, index, ResultSet::getString, false);
         } else if (parameterType.equals(Date.class)) {
-            processors.add((object, resultSet) -> {
-                try {
-                    Timestamp timestamp = resultSet.getTimestamp(name);
-                    if (timestamp != null) {
-                        method.invoke(object, new Date(timestamp.getTime()));
-                    }
-                } catch (IllegalAccessException | InvocationTargetException error) {
-                    LOGGER.warn("Set property error", error);
-                }
-            });
+            return new ResultSetProcessor(property, index, (resultSet, i) -> {
+                Timestamp timestamp = resultSet.getTimestamp(i);
+                return timestamp != null ? new Date(timestamp.getTime()) : null;
+            }, true);
         } else if (parameterType.equals(byte[].class)) {
-            processors.add((object, resultSet) -> {
-                try {
-                    method.invoke(object, resultSet.getBytes(name));
-                } catch (IllegalAccessException | InvocationTargetException error) {
-                    LOGGER.warn("Set property error", error);
-                }
-            });
+            return new ResultSetProcessor(property, index, ResultSet::getBytes, false);
         } else {
-            processors.add((object, resultSet) -> {
-                String value = resultSet.getString(name);
+            return new ResultSetProcessor(property, index, (resultSet, i) -> {
+                String value = resultSet.getString(i);
                 if (value != null && !value.isEmpty()) {
                     try {
-                        method.invoke(object, objectMapper.readValue(value, parameterType));
-                    } catch (InvocationTargetException | IllegalAccessException | IOException error) {
+                        return objectMapper.readValue(value, parameterType);
+                    } catch (IOException error) {
                         LOGGER.warn("Set property error", error);
                     }
                 }
-            });
+                return null;
+            }, true);
         }
     }
 
@@ -401,6 +424,38 @@ public final class QueryBuilder {
         }
     }
 
+    private List<ResultSetProcessor> createProcessors(
+            ModelMetadata metadata, ResultSet resultSet) throws SQLException {
+        ResultSetMetaData resultMetaData = resultSet.getMetaData();
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = resultMetaData.getColumnCount(); i >= 1; i--) {
+            columns.put(resultMetaData.getColumnLabel(i).toLowerCase(), i);
+        }
+
+        List<ResultSetProcessor> processors = new ArrayList<>();
+        for (ModelMetadata.Property property : metadata.getSetters()) {
+            Integer index = columns.get(property.getName().toLowerCase());
+            if (index != null) {
+                processors.add(createProcessor(property, index));
+            }
+        }
+        return processors;
+    }
+
+    private static <T> T readObject(
+            Class<T> clazz, ModelMetadata metadata, List<ResultSetProcessor> processors,
+            ResultSet resultSet) throws SQLException {
+        try {
+            T object = clazz.cast(metadata.newInstance());
+            for (ResultSetProcessor processor : processors) {
+                processor.process(object, resultSet);
+            }
+            return object;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException();
+        }
+    }
+
     public <T> List<T> executeQuery(Class<T> clazz) throws SQLException {
         List<T> result = new LinkedList<>();
 
@@ -411,54 +466,79 @@ public final class QueryBuilder {
                 logQuery();
 
                 try (ResultSet resultSet = statement.executeQuery()) {
+                    ModelMetadata metadata = ModelMetadata.of(clazz);
+                    List<ResultSetProcessor> processors = createProcessors(metadata, resultSet);
+                    while (resultSet.next()) {
+                        result.add(readObject(clazz, metadata, processors, resultSet));
+                    }
+                }
 
-                    ResultSetMetaData resultMetaData = resultSet.getMetaData();
-
-                    List<ResultSetProcessor<T>> processors = new LinkedList<>();
-
-                    Method[] methods = clazz.getMethods();
-
-                    for (final Method method : methods) {
-                        if (method.getName().startsWith("set") && method.getParameterTypes().length == 1) {
+            } finally {
+                statement.close();
+                connection.close();
+            }
+        }
 
-                            final String name = method.getName().substring(3);
+        return result;
+    }
 
-                            // Check if column exists
-                            boolean column = false;
-                            for (int i = 1; i <= resultMetaData.getColumnCount(); i++) {
-                                if (name.equalsIgnoreCase(resultMetaData.getColumnLabel(i))) {
-                                    column = true;
-                                    break;
-                                }
-                            }
-                            if (!column) {
-                                continue;
-                            }
+    public <T> Stream<T> executeQueryStreamed(Class<T> clazz, int fetchSize) throws SQLException {
 
-                            addProcessors(processors, method.getParameterTypes()[0], method, name);
-                        }
-                    }
+        if (query == null) {
+            return Stream.empty();
+        }
 
-                    while (resultSet.next()) {
-                        try {
-                            T object = clazz.getDeclaredConstructor().newInstance();
-                            for (ResultSetProcessor<T> processor : processors) {
-                                processor.process(object, resultSet);
-                            }
-                            result.add(object);
-                        } catch (ReflectiveOperationException e) {
-                            throw new IllegalArgumentException();
+        boolean cursor = fetchSize > 0;
+        ResultSet resultSet = null;
+        try {
+            logQuery();
+            if (cursor) {
+                connection.setAutoCommit(false);
+                statement.setFetchSize(fetchSize);
+            }
+            resultSet = statement.executeQuery();
+
+            ModelMetadata metadata = ModelMetadata.of(clazz);
+            List<ResultSetProcessor> processors = createProcessors(metadata, resultSet);
+            ResultSet rows = resultSet;
+            var spliterator = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED) {
+                @Override
+                public boolean tryAdvance(Consumer<? super T> action) {
+                    try {
+                        if (rows.next()) {
+                            action.accept(readObject(clazz, metadata, processors, rows));
+                            return true;
                         }
+                        return false;
+                    } catch (SQLException e) {
+                        throw new RuntimeException(e);
                     }
                 }
+            };
+            return StreamSupport.stream(spliterator, false).onClose(() -> closeStreamed(rows, cursor));
+        } catch (SQLException | RuntimeException e) {
+            closeStreamed(resultSet, cursor);
+            throw e;
+        }
+    }
 
-            } finally {
+    private void closeStreamed(ResultSet resultSet, boolean cursor) {
+        try {
+            try {
+                if (resultSet != null) {
+                    resultSet.close();
+                }
                 statement.close();
+                if (cursor) {
+                    connection.commit();
+                    connection.setAutoCommit(true);
+                }
+            } finally {
                 connection.close();
             }
+        } catch (SQLException e) {
+            LOGGER.warn("Close streamed query error", e);
         }
-
-        return result;
     }
 
     public long executeUpdate() throws SQLException {
@@ -481,6 +561,55 @@ public final class QueryBuilder {
         return 0;
     }
 
+    public QueryBuilder addBatch() throws SQLException {
+        if (query != null) {
+            try {
+                statement.addBatch();
+            } catch (SQLException error) {
+                statement.close();
+                connection.close();
+                throw error;
+            }
+        }
+        return this;
+    }
+
+    public long[] executeBatch() throws SQLException {
+
+        if (query != null) {
+            try {
+                logQuery();
+                connection.setAutoCommit(false);
+                try {
+                    int[] counts = statement.executeBatch();
+                    long[] result = new long[counts.length];
+                    if (returnGeneratedKeys) {
+                        try (ResultSet resultSet = statement.getGeneratedKeys()) {
+                            int index = 0;
+                            while (index < result.length && resultSet.next()) {
+                                result[index++] = resultSet.getLong(1);
+                            }
+                            if (index < result.length) {
+                                throw new SQLException("Generated keys are not available for all batch rows");
+                            }
+                        }
+                    }
+                    connection.commit();
+                    return result;
+                } catch (SQLException error) {
+                    connection.rollback();
+                    throw error;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            } finally {
+                statement.close();
+                connection.close();
+            }
+        }
+        return new long[0];
+    }
+
     public List<Permission> executePermissionsQuery() throws SQLException {
         List<Permission> result = new LinkedList<>();
         if (query != null) {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2022 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,14 +17,20 @@ package org.traccar.storage;
 
 import org.traccar.model.BaseModel;
 import org.traccar.model.Permission;
+import org.traccar.storage.query.Condition;
 import org.traccar.storage.query.Request;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public abstract class Storage {
 
     public abstract <T> List<T> getObjects(Class<T> clazz, Request request) throws StorageException;
 
+    public <T> Stream<T> getObjectsStream(Class<T> clazz, Request request) throws StorageException {
+        return getObjects(clazz, request).stream();
+    }
+
     public abstract <T> long addObject(T entity, Request request) throws StorageException;
 
     public abstract <T> void updateObject(T entity, Request request) throws StorageException;
@@ -45,9 +51,36 @@ public abstract class Storage {
         return getPermissions(ownerClass, 0, propertyClass, 0);
     }
 
+    public void addPermissions(List<Permission> permissions) throws StorageException {
+        for (Permission permission : permissions) {
+            addPermission(permission);
+        }
+    }
+
+    public void removePermissions(List<Permission> permissions) throws StorageException {
+        for (Permission permission : permissions) {
+            removePermission(permission);
+        }
+    }
+
     public <T> T getObject(Class<T> clazz, Request request) throws StorageException {
         var objects = getObjects(clazz, request);
         return objects.isEmpty() ? null : objects.get(0);
     }
 
+    public <T extends BaseModel> void updateObjects(List<T> entities, Request request) throws StorageException {
+        for (T entity : entities) {
+            updateObject(entity, new Request(request.getColumns(), new Condition.Equals("id", entity.getId())));
+        }
+    }
+
+    public <T> long[] addObjects(List<T> entities, Request request) throws StorageException {
+        long[] result = new long[entities.size()];
+        int index = 0;
+        for (T entity : entities) {
+            result[index++] = addObject(entity, request);
+        }
+        return result;
+    }
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2022 Anton Tananaev (anton@traccar.org)
+ * Copyright 2022 - 2023 Anton Tananaev (anton@traccar.org)
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,12 +15,9 @@
  */
 package org.traccar.storage.query;
 
-import org.traccar.storage.QueryIgnore;
+import org.traccar.storage.ModelMetadata;
 
-import java.beans.Introspector;
-import java.lang.reflect.Method;
 import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -30,17 +27,7 @@ public abstract class Columns {
     public abstract List<String> getColumns(Class<?> clazz, String type);
 
     protected List<String> getAllColumns(Class<?> clazz, String type) {
-        List<String> columns = new LinkedList<>();
-        Method[] methods = clazz.getMethods();
-        for (Method method : methods) {
-            int parameterCount = type.equals("set") ? 1 : 0;
-            if (method.getName().startsWith(type) && method.getParameterTypes().length == parameterCount
-                    && !method.isAnnotationPresent(QueryIgnore.class)
-                    && !method.getName().equals("getClass")) {
-                columns.add(Introspector.decapitalize(method.getName().substring(3)));
-            }
-        }
-        return columns;
+        return ModelMetadata.of(clazz).getColumns(type);
     }
 
     public static class All extends Columns {
@@ -0,0 +1,185 @@
+package org.traccar;
+
+import io.netty.channel.ChannelHandlerContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.traccar.helper.Checksum;
+import org.traccar.model.Position;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ProcessingExecutorTest {
+
+    @Test
+    public void testKeyOrder() throws Exception {
+        ProcessingExecutor executor = new ProcessingExecutor(4, 1000);
+        int devices = 8;
+        int messages = 100;
+        List<List<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < devices; i++) {
+            results.add(Collections.synchronizedList(new ArrayList<>()));
+        }
+        CountDownLatch latch = new CountDownLatch(devices * messages);
+        for (int i = 0; i < messages; i++) {
+            for (int device = 0; device < devices; device++) {
+                int index = i;
+                List<Integer> result = results.get(device);
+                executor.execute(device, () -> {
+                    result.add(index);
+                    latch.countDown();
+                });
+            }
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        for (List<Integer> result : results) {
+            for (int i = 0; i < messages; i++) {
+                assertEquals(i, result.get(i));
+            }
+        }
+        executor.shutdownGracefully().await(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testDifferentKeysRunConcurrently() throws Exception {
+        ProcessingExecutor executor = new ProcessingExecutor(2, 10);
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        AtomicInteger passed = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(2);
+        for (long key = 0; key < 2; key++) {
+            executor.execute(key, () -> {
+                try {
+                    barrier.await(5, TimeUnit.SECONDS);
+                    passed.incrementAndGet();
+                } catch (Exception e) {
+                    Thread.currentThread().interrupt();
+                }
+                latch.countDown();
+            });
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(2, passed.get());
+        executor.shutdownGracefully().await(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testAsyncResumeKeepsDeviceOrder() throws Exception {
+        ProcessingExecutor executor = new ProcessingExecutor(4, 100);
+        List<String> result = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(11);
+        ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
+        when(ctx.executor()).thenReturn(executor);
+        when(ctx.fireChannelRead(any())).thenAnswer(invocation -> {
+            result.add("resumed " + Thread.currentThread().getName());
+            latch.countDown();
+            return ctx;
+        });
+
+        Position position = new Position();
+        position.setDeviceId(1);
+        for (int i = 0; i < 10; i++) {
+            ProcessingExecutor.fireChannelRead(ctx, position);
+        }
+        executor.execute(1, () -> {
+            result.add("next " + Thread.currentThread().getName());
+            latch.countDown();
+        });
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        String worker = result.get(0).substring(result.get(0).indexOf(' ') + 1);
+        for (String entry : result) {
+            assertTrue(entry.endsWith(worker));
+        }
+        assertTrue(result.get(result.size() - 1).startsWith("next"));
+        executor.shutdownGracefully().await(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testResumeIsNotRejected() throws Exception {
+        ProcessingExecutor executor = new ProcessingExecutor(1, 1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(1, () -> {
+            blocked.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        executor.execute(1, () -> { });
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(1, () -> { }));
+
+        CountDownLatch resumed = new CountDownLatch(1);
+        ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
+        when(ctx.executor()).thenReturn(executor);
+        when(ctx.fireChannelRead(any())).thenAnswer(invocation -> {
+            resumed.countDown();
+            return ctx;
+        });
+        Position position = new Position();
+        position.setDeviceId(1);
+        ProcessingExecutor.fireChannelRead(ctx, position);
+
+        release.countDown();
+        assertTrue(resumed.await(10, TimeUnit.SECONDS));
+        assertEquals(1, executor.getRejectedCount());
+        assertEquals(1, executor.getOverflowCount());
+        executor.shutdownGracefully().await(10, TimeUnit.SECONDS);
+    }
+
+    private static long measureCpuBound(int threads, int tasks) throws Exception {
+        ProcessingExecutor executor = new ProcessingExecutor(threads, tasks);
+        ByteBuffer data = ByteBuffer.allocate(4096);
+        CountDownLatch latch = new CountDownLatch(tasks);
+        long start = System.nanoTime();
+        for (int i = 0; i < tasks; i++) {
+            executor.execute(i % 1000, () -> {
+                for (int j = 0; j < 20; j++) {
+                    Checksum.crc16(Checksum.CRC16_IBM, data.duplicate());
+                }
+                latch.countDown();
+            });
+        }
+        assertTrue(latch.await(60, TimeUnit.SECONDS));
+        long elapsed = System.nanoTime() - start;
+        executor.shutdownGracefully().await(10, TimeUnit.SECONDS);
+        return elapsed;
+    }
+
+    /**
+     * Benchmark for CPU bound processing, enabled with BENCHMARK=true. Timing assertions are not reliable on shared
+     * build machines, so it does not run by default.
+     */
+    @Test
+    @EnabledIfEnvironmentVariable(named = "BENCHMARK", matches = "true")
+    public void benchmarkCpuScaling() throws Exception {
+        int threads = Math.min(Runtime.getRuntime().availableProcessors(), 8);
+        assumeTrue(threads >= 2);
+        int tasks = 20000;
+        measureCpuBound(threads, tasks);
+        long single = measureCpuBound(1, tasks);
+        long parallel = measureCpuBound(threads, tasks);
+        double speedup = (double) single / parallel;
+        System.out.printf("%d tasks: 1 thread %d ms, %d threads %d ms, speedup %.2f%n",
+                tasks, TimeUnit.NANOSECONDS.toMillis(single), threads, TimeUnit.NANOSECONDS.toMillis(parallel), speedup);
+        assertTrue(speedup > threads * 0.5);
+    }
+
+}
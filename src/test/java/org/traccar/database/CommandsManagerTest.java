@@ -18,6 +18,8 @@ import org.traccar.storage.query.Request;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -130,4 +132,25 @@ public class CommandsManagerTest {
         assertNotNull(commandsManager.sendCommand(command));
     }
 
+    @Test
+    public void readQueuedCommands_skipsDevicesWithoutCommands() throws Exception {
+        assertTrue(commandsManager.readQueuedCommands(1).isEmpty());
+        verify(storage, times(1)).getObjectsStream(eq(QueuedCommand.class), any(Request.class));
+        verify(storage, never()).getObjects(eq(QueuedCommand.class), any(Request.class));
+    }
+
+    @Test
+    public void readQueuedCommands_drainsQueuedCommands() throws Exception {
+        Command command = createCommand(1, false);
+        Mockito.when(connectionManager.getDeviceSession(1)).thenReturn(null);
+        commandsManager.sendCommand(command);
+        QueuedCommand queued = QueuedCommand.fromCommand(command);
+        queued.setId(1);
+        Mockito.when(storage.getObjects(eq(QueuedCommand.class), any(Request.class))).thenReturn(List.of(queued));
+        assertEquals(1, commandsManager.readQueuedCommands(1).size());
+        verify(storage, times(1)).removeObject(eq(QueuedCommand.class), any(Request.class));
+        assertTrue(commandsManager.readQueuedCommands(1).isEmpty());
+        verify(storage, times(1)).getObjects(eq(QueuedCommand.class), any(Request.class));
+    }
+
 }
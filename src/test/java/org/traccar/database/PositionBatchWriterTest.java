@@ -0,0 +1,133 @@
+package org.traccar.database;
+
+import org.junit.jupiter.api.Test;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.model.Position;
+import org.traccar.storage.Storage;
+import org.traccar.storage.StorageException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PositionBatchWriterTest {
+
+    private static PositionBatchWriter createWriter(Storage storage, int size, long delay) {
+        Config config = mock(Config.class);
+        when(config.getInteger(Keys.DATABASE_BATCH_SIZE)).thenReturn(size);
+        when(config.getLong(Keys.DATABASE_BATCH_DELAY)).thenReturn(delay);
+        return new PositionBatchWriter(config, storage);
+    }
+
+    private static Position createPosition(long deviceId) {
+        Position position = new Position();
+        position.setDeviceId(deviceId);
+        return position;
+    }
+
+    @Test
+    public void testSizeFlush() throws Exception {
+        Storage storage = mock(Storage.class);
+        when(storage.addObjects(anyList(), any())).thenReturn(new long[] {10, 11, 12});
+        PositionBatchWriter writer = createWriter(storage, 3, TimeUnit.MINUTES.toMillis(1));
+
+        List<Position> positions = new ArrayList<>();
+        List<Boolean> results = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(3);
+        for (int i = 1; i <= 3; i++) {
+            Position position = createPosition(i);
+            positions.add(position);
+            writer.write(position, stored -> {
+                results.add(stored);
+                latch.countDown();
+            });
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        verify(storage, times(1)).addObjects(anyList(), any());
+        assertEquals(List.of(true, true, true), results);
+        for (int i = 0; i < positions.size(); i++) {
+            assertEquals(10 + i, positions.get(i).getId());
+        }
+        writer.stop();
+    }
+
+    @Test
+    public void testDelayFlush() throws Exception {
+        Storage storage = mock(Storage.class);
+        when(storage.addObjects(anyList(), any())).thenReturn(new long[] {1});
+        PositionBatchWriter writer = createWriter(storage, 100, 50);
+
+        Position position = createPosition(1);
+        CountDownLatch latch = new CountDownLatch(1);
+        writer.write(position, stored -> latch.countDown());
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, position.getId());
+        assertEquals(0, writer.getPendingCount());
+        writer.stop();
+    }
+
+    @Test
+    public void testBatchFailure() throws Exception {
+        Storage storage = mock(Storage.class);
+        when(storage.addObjects(anyList(), any())).thenThrow(new StorageException("batch"));
+        Position first = createPosition(1);
+        Position second = createPosition(2);
+        when(storage.addObject(any(), any())).thenAnswer(invocation -> {
+            if (invocation.getArgument(0) == second) {
+                throw new StorageException("single");
+            }
+            return 5L;
+        });
+        PositionBatchWriter writer = createWriter(storage, 2, TimeUnit.MINUTES.toMillis(1));
+
+        List<Boolean> results = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(2);
+        writer.write(first, stored -> {
+            results.add(stored);
+            latch.countDown();
+        });
+        writer.write(second, stored -> {
+            results.add(stored);
+            latch.countDown();
+        });
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(true, false), results);
+        assertEquals(5, first.getId());
+        assertEquals(0, second.getId());
+        writer.stop();
+    }
+
+    @Test
+    public void testStopFlush() throws Exception {
+        Storage storage = mock(Storage.class);
+        when(storage.addObjects(anyList(), any())).thenReturn(new long[] {1, 2});
+        PositionBatchWriter writer = createWriter(storage, 100, TimeUnit.MINUTES.toMillis(1));
+
+        List<Boolean> results = Collections.synchronizedList(new ArrayList<>());
+        writer.write(createPosition(1), results::add);
+        writer.write(createPosition(2), results::add);
+        verify(storage, never()).addObjects(anyList(), any());
+
+        long start = System.nanoTime();
+        writer.stop();
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(30));
+        assertEquals(List.of(true, true), results);
+    }
+
+}
@@ -0,0 +1,75 @@
+package org.traccar.geocoder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GeocoderCacheTest {
+
+    @Test
+    public void testPrecision() {
+        GeocoderCache cache = new GeocoderCache(100, 10, 0, null);
+        cache.put(48.8530000, 2.3400000, "Paris");
+        assertEquals("Paris", cache.get(48.8530004, 2.3400003));
+        assertNull(cache.get(48.8540000, 2.3400000));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testLongitudePrecision() {
+        GeocoderCache cache = new GeocoderCache(100, 10, 0, null);
+        cache.put(60.0, 30.0, "Saint Petersburg");
+        assertEquals("Saint Petersburg", cache.get(60.0, 30.00007));
+        assertEquals("Saint Petersburg", cache.get(60.0, 29.99993));
+        assertNull(cache.get(60.0, 30.00014));
+    }
+
+    @Test
+    public void testRequestKey() {
+        GeocoderCache cache = new GeocoderCache(100, 10, 0, null);
+        assertEquals(cache.createKey(48.8530000, 2.3400000), cache.createKey(48.8530004, 2.3400003));
+        assertNotEquals(cache.createKey(48.8530000, 2.3400000), cache.createKey(48.8540000, 2.3400000));
+    }
+
+    @Test
+    public void testExactMatch() {
+        GeocoderCache cache = new GeocoderCache(100);
+        cache.put(48.8530000, 2.3400000, "Paris");
+        assertEquals("Paris", cache.get(48.8530000, 2.3400000));
+        assertNull(cache.get(48.8530001, 2.3400000));
+    }
+
+    @Test
+    public void testEviction() {
+        GeocoderCache cache = new GeocoderCache(100);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, 0, "Address " + i);
+        }
+        assertTrue(cache.getSize() <= 100);
+        assertEquals("Address 999", cache.get(999, 0));
+    }
+
+    @Test
+    public void testSnapshot(@TempDir Path directory) throws Exception {
+        String file = directory.resolve("geocoder.cache").toString();
+        GeocoderCache cache = new GeocoderCache(100, 10, 0, file);
+        cache.put(48.8530000, 2.3400000, "Paris");
+        cache.save();
+
+        GeocoderCache restored = new GeocoderCache(100, 10, 0, file);
+        restored.load();
+        assertEquals("Paris", restored.get(48.8530000, 2.3400000));
+
+        GeocoderCache changed = new GeocoderCache(100, 20, 0, file);
+        changed.load();
+        assertEquals(0, changed.getSize());
+    }
+
+}
@@ -0,0 +1,67 @@
+package org.traccar.geocoder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class LocalGeocoderTest {
+
+    @Test
+    public void testAddress(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("places.csv");
+        Files.write(file, List.of(
+                "latitude,longitude,house,street,suburb,settlement,district,state,country,postcode",
+                "48.8530,2.3400,1,\"Rue de Rivoli, Est\",,Paris,,Ile-de-France,FR,75001",
+                "51.5007,-0.1246,,Westminster Bridge Road,,London,,England,GB,SE1 7PB"));
+
+        Geocoder geocoder = new LocalGeocoder(file.toString(), 10000, new AddressFormat());
+        assertEquals("1 Rue de Rivoli, Est, Paris, Ile-de-France, FR", geocoder.getAddress(48.8531, 2.3401, null));
+        assertEquals("Westminster Bridge Road, London, England, GB", geocoder.getAddress(51.5, -0.12, null));
+        assertNull(geocoder.getAddress(45.0, 10.0, null));
+    }
+
+    @Test
+    public void testNearest(@TempDir Path directory) throws Exception {
+        Random random = new Random(1);
+        double[][] places = new double[5000][];
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < places.length; i++) {
+            places[i] = new double[] {40 + random.nextInt(100000) / 10000.0, random.nextInt(100000) / 10000.0};
+            lines.add(places[i][0] + "," + places[i][1] + ",,Street " + i);
+        }
+        Path source = directory.resolve("places.csv");
+        Path target = directory.resolve("places.index");
+        Files.write(source, lines);
+        PlaceIndex.compile(source, target);
+        PlaceIndex index = PlaceIndex.open(target);
+        assertEquals(places.length, index.getCount());
+
+        for (int i = 0; i < 1000; i++) {
+            double latitude = 40 + random.nextDouble() * 10;
+            double longitude = random.nextDouble() * 10;
+            double cos = Math.cos(Math.toRadians(latitude));
+            double expected = Double.MAX_VALUE;
+            for (double[] place : places) {
+                expected = Math.min(expected, distance(latitude, longitude, place[0], place[1], cos));
+            }
+            int found = index.findNearest(latitude, longitude);
+            double actual = distance(latitude, longitude, index.getLatitude(found), index.getLongitude(found), cos);
+            assertEquals(expected, actual, 1e-9);
+        }
+    }
+
+    private static double distance(double lat1, double lon1, double lat2, double lon2, double cos) {
+        double deltaLatitude = lat1 - lat2;
+        double deltaLongitude = (lon1 - lon2) * cos;
+        return deltaLatitude * deltaLatitude + deltaLongitude * deltaLongitude;
+    }
+
+}
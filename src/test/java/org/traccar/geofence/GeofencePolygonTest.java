@@ -49,4 +49,25 @@ public class GeofencePolygonTest {
         assertFalse(geofenceGeometry.containsPoint(null, null, 50.9477, 0.5836));
     }
 
+    @Test
+    public void testContainsLargePolygon() throws ParseException {
+        StringBuilder wkt = new StringBuilder("POLYGON ((");
+        int count = 10000;
+        for (int i = 0; i < count; i++) {
+            double angle = 2 * Math.PI * i / count;
+            double radius = i % 2 == 0 ? 1.0 : 0.9;
+            if (i > 0) {
+                wkt.append(", ");
+            }
+            wkt.append(10 + radius * Math.sin(angle)).append(' ').append(20 + radius * Math.cos(angle));
+        }
+        wkt.append("))");
+        GeofenceGeometry geofenceGeometry = new GeofencePolygon(wkt.toString());
+        for (int i = 0; i < 360; i++) {
+            double angle = Math.toRadians(i + 0.5);
+            assertTrue(geofenceGeometry.containsPoint(null, null, 10 + 0.8 * Math.sin(angle), 20 + 0.8 * Math.cos(angle)));
+            assertFalse(geofenceGeometry.containsPoint(null, null, 10 + 1.1 * Math.sin(angle), 20 + 1.1 * Math.cos(angle)));
+        }
+    }
+
 }
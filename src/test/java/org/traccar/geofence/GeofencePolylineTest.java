@@ -56,4 +56,13 @@ public class GeofencePolylineTest {
         assertFalse(geofenceGeometry.containsPoint(config, mock(Geofence.class), 66.9509, -179.83));
     }
 
+    @Test
+    public void testContainsPolylineGreatCircle() throws ParseException {
+        GeofenceGeometry geofenceGeometry = new GeofencePolyline("LINESTRING (45 10, 45 11)");
+        Config config = mock(Config.class);
+        when(config.getDouble(Keys.GEOFENCE_POLYLINE_DISTANCE)).thenReturn(20.0);
+        assertTrue(geofenceGeometry.containsPoint(config, mock(Geofence.class), 45.00109, 10.5));
+        assertTrue(geofenceGeometry.getBounds(config, mock(Geofence.class)).getMaxLat() > 45.00109);
+    }
+
 }
@@ -0,0 +1,36 @@
+package org.traccar.helper;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(500));
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), histogram.getMax());
+
+        long p50 = histogram.getPercentile(0.5);
+        assertTrue(p50 >= TimeUnit.MILLISECONDS.toNanos(1) && p50 <= TimeUnit.MILLISECONDS.toNanos(2));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), histogram.getPercentile(1.0));
+    }
+
+    @Test
+    public void testEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMean());
+        assertEquals(0, histogram.getPercentile(0.99));
+    }
+
+}
@@ -0,0 +1,108 @@
+package org.traccar.helper;
+
+import io.netty.util.HashedWheelTimer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RequestLimiterTest {
+
+    private static final class Result implements RequestLimiter.Callback<String> {
+        private final List<String> values;
+        private final AtomicInteger failures;
+
+        private Result(List<String> values, AtomicInteger failures) {
+            this.values = values;
+            this.failures = failures;
+        }
+
+        @Override
+        public void onSuccess(String result) {
+            values.add(result);
+        }
+
+        @Override
+        public void onFailure(Throwable e) {
+            failures.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void testCoalescing() {
+        RequestLimiter<String, String> limiter = new RequestLimiter<>(new HashedWheelTimer(), 1, 10, 0);
+        List<RequestLimiter.Callback<String>> requests = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        AtomicInteger failures = new AtomicInteger();
+
+        limiter.execute("a", requests::add, new Result(values, failures));
+        limiter.execute("a", requests::add, new Result(values, failures));
+        limiter.execute("b", requests::add, new Result(values, failures));
+        assertEquals(1, requests.size());
+        assertEquals(1, limiter.getQueueSize());
+        assertEquals(1, limiter.getCoalescedCount());
+
+        requests.get(0).onSuccess("first");
+        assertEquals(List.of("first", "first"), values);
+        assertEquals(2, requests.size());
+
+        requests.get(1).onFailure(new Exception());
+        assertEquals(1, failures.get());
+        assertEquals(0, limiter.getActiveCount());
+    }
+
+    @Test
+    public void testQueueLimit() {
+        RequestLimiter<Integer, String> limiter = new RequestLimiter<>(new HashedWheelTimer(), 1, 1, 0);
+        List<String> values = new ArrayList<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            limiter.execute(i, callback -> { }, new Result(values, failures));
+        }
+        assertEquals(1, failures.get());
+        assertEquals(1, limiter.getRejectedCount());
+    }
+
+    @Test
+    public void testInlineCompletion() {
+        RequestLimiter<Integer, String> limiter = new RequestLimiter<>(new HashedWheelTimer(), 1, 0, 0);
+        List<RequestLimiter.Callback<String>> requests = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        AtomicInteger failures = new AtomicInteger();
+
+        limiter.execute(0, requests::add, new Result(values, failures));
+        int count = 100000;
+        for (int i = 1; i <= count; i++) {
+            limiter.execute(i, callback -> callback.onSuccess("inline"), new Result(values, failures));
+        }
+        assertEquals(count, limiter.getQueueSize());
+
+        requests.get(0).onSuccess("first");
+        assertEquals(count + 1, values.size());
+        assertEquals(0, failures.get());
+        assertEquals(0, limiter.getActiveCount());
+    }
+
+    @Test
+    public void testRateLimit() throws Exception {
+        RequestLimiter<Integer, String> limiter = new RequestLimiter<>(new HashedWheelTimer(), 0, 0, 20);
+        int count = 30;
+        CountDownLatch latch = new CountDownLatch(count);
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            limiter.execute(i, callback -> {
+                latch.countDown();
+                callback.onSuccess("done");
+            }, new Result(new ArrayList<>(), new AtomicInteger()));
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(400));
+    }
+
+}
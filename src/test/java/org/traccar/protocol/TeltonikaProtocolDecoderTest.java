@@ -5,6 +5,8 @@ import org.junit.jupiter.api.Test;
 import org.traccar.ProtocolTest;
 import org.traccar.model.Position;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 public class TeltonikaProtocolDecoderTest extends ProtocolTest {
 
     @Test
@@ -176,6 +178,9 @@ public class TeltonikaProtocolDecoderTest extends ProtocolTest {
 
         var decoder = inject(new TeltonikaProtocolDecoder(null, true));
 
+        assertEquals("357454072713975", decoder.getDatagramUniqueId(binary(
+                "0049cafe0122000f33353734353430373237313339373508010000015d3766f6a800003eef961ec6215e0063006d09003100070401000200f001c8000242381c18003201c7000000e10001")));
+
         verifyPositions(decoder, false, binary(
                 "0049cafe0122000f33353734353430373237313339373508010000015d3766f6a800003eef961ec6215e0063006d09003100070401000200f001c8000242381c18003201c7000000e10001"));
 
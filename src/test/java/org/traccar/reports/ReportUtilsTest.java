@@ -43,6 +43,7 @@ public class ReportUtilsTest extends BaseTest {
     public void init() throws StorageException {
         storage = mock(Storage.class);
         when(storage.getObject(eq(Device.class), any())).thenReturn(mock(Device.class));
+        when(storage.getObjectsStream(any(), any())).thenCallRealMethod();
     }
 
     private Date date(String time) throws ParseException {
@@ -0,0 +1,306 @@
+package org.traccar.session.cache;
+
+import org.junit.jupiter.api.Test;
+import org.traccar.broadcast.BroadcastService;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.model.Calendar;
+import org.traccar.model.Device;
+import org.traccar.model.Geofence;
+import org.traccar.model.Permission;
+import org.traccar.storage.Storage;
+import org.traccar.storage.query.Condition;
+import org.traccar.storage.query.Request;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CacheManagerTest {
+
+    private static Device createDevice(long id) {
+        Device device = new Device();
+        device.setId(id);
+        device.setUniqueId(String.valueOf(id));
+        return device;
+    }
+
+    @Test
+    public void testLoadDoesNotBlockOtherDevices() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Storage storage = mock(Storage.class);
+        when(storage.getObject(eq(Device.class), any())).thenAnswer(invocation -> {
+            Request request = invocation.getArgument(1);
+            long id = (Long) ((Condition.Equals) request.getCondition()).getValue();
+            if (id == 1) {
+                loading.countDown();
+                assertTrue(release.await(10, TimeUnit.SECONDS));
+            }
+            return createDevice(id);
+        });
+
+        CacheManager cacheManager = new CacheManager(mock(Config.class), storage, mock(BroadcastService.class));
+
+        var slowLoad = CompletableFuture.runAsync(() -> {
+            try {
+                cacheManager.addDevice(1);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue(loading.await(10, TimeUnit.SECONDS));
+
+        var fastLoad = CompletableFuture.runAsync(() -> {
+            try {
+                cacheManager.addDevice(2);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        fastLoad.get(5, TimeUnit.SECONDS);
+        assertNotNull(cacheManager.getObject(Device.class, 2));
+        assertNull(cacheManager.getObject(Device.class, 1));
+        assertFalse(slowLoad.isDone());
+
+        release.countDown();
+        slowLoad.get(10, TimeUnit.SECONDS);
+        assertNotNull(cacheManager.getObject(Device.class, 1));
+        assertEquals(2, cacheManager.getDeviceCount());
+    }
+
+    private static CacheManager createLoadingManager(Storage storage, AtomicInteger loads, int invalidations)
+            throws Exception {
+        Geofence geofence = new Geofence();
+        geofence.setId(10);
+        when(storage.getObjects(eq(Geofence.class), any())).thenReturn(List.of(geofence));
+        CacheManager cacheManager = new CacheManager(mock(Config.class), storage, mock(BroadcastService.class));
+        when(storage.getObject(eq(Device.class), any())).thenAnswer(invocation -> {
+            Device device = createDevice(1);
+            device.setName("load " + loads.incrementAndGet());
+            if (loads.get() <= invalidations) {
+                cacheManager.invalidate(Geofence.class, 10);
+            }
+            return device;
+        });
+        return cacheManager;
+    }
+
+    @Test
+    public void testInvalidationDuringLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CacheManager cacheManager = createLoadingManager(mock(Storage.class), loads, 1);
+
+        cacheManager.addDevice(1);
+        assertEquals("load 2", cacheManager.getObject(Device.class, 1).getName());
+    }
+
+    @Test
+    public void testUnrelatedInvalidationDuringLoad() throws Exception {
+        Storage storage = mock(Storage.class);
+        CacheManager cacheManager = new CacheManager(mock(Config.class), storage, mock(BroadcastService.class));
+        AtomicInteger loads = new AtomicInteger();
+        when(storage.getObject(eq(Device.class), any())).thenAnswer(invocation -> {
+            Device device = createDevice(1);
+            device.setName("load " + loads.incrementAndGet());
+            cacheManager.invalidate(Geofence.class, 20);
+            return device;
+        });
+
+        cacheManager.addDevice(1);
+        assertEquals("load 1", cacheManager.getObject(Device.class, 1).getName());
+    }
+
+    @Test
+    public void testContinuousInvalidationDuringLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CacheManager cacheManager = createLoadingManager(mock(Storage.class), loads, Integer.MAX_VALUE);
+
+        cacheManager.addDevice(1);
+        assertEquals("load 4", cacheManager.getObject(Device.class, 1).getName());
+        assertEquals(1, cacheManager.getDeviceCount());
+    }
+
+    @Test
+    public void testReferenceCounting() throws Exception {
+        Storage storage = mock(Storage.class);
+        when(storage.getObject(eq(Device.class), any())).thenReturn(createDevice(1));
+
+        CacheManager cacheManager = new CacheManager(mock(Config.class), storage, mock(BroadcastService.class));
+
+        cacheManager.addDevice(1);
+        cacheManager.addDevice(1);
+        cacheManager.removeDevice(1);
+        assertNotNull(cacheManager.getObject(Device.class, 1));
+        cacheManager.removeDevice(1);
+        assertNull(cacheManager.getObject(Device.class, 1));
+        assertEquals(0, cacheManager.getObjectCount());
+    }
+
+    @Test
+    public void testPreloadQueryCount() throws Exception {
+        int count = 1000;
+        List<Device> devices = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            devices.add(createDevice(id));
+        }
+
+        Storage storage = mock(Storage.class);
+        when(storage.getObjects(eq(Device.class), any())).thenReturn(devices);
+        when(storage.getObject(eq(Device.class), any())).thenAnswer(invocation -> {
+            Request request = invocation.getArgument(1);
+            return createDevice((Long) ((Condition.Equals) request.getCondition()).getValue());
+        });
+
+        CacheManager individual = new CacheManager(mock(Config.class), storage, mock(BroadcastService.class));
+        clearInvocations(storage);
+        for (Device device : devices) {
+            individual.addDevice(device.getId());
+        }
+        int individualQueries = mockingDetails(storage).getInvocations().size();
+
+        CacheManager bulk = new CacheManager(mock(Config.class), storage, mock(BroadcastService.class));
+        clearInvocations(storage);
+        bulk.preload(0);
+        int bulkQueries = mockingDetails(storage).getInvocations().size();
+
+        assertEquals(count, bulk.getDeviceCount());
+        assertNotNull(bulk.findDeviceByUniqueId("500"));
+        assertTrue(individualQueries >= count * 2, "individual " + individualQueries);
+        assertTrue(bulkQueries < 50, "bulk " + bulkQueries);
+    }
+
+    @Test
+    public void testSharedObjectUpdate() throws Exception {
+        int count = 100;
+        Geofence geofence = new Geofence();
+        geofence.setId(10);
+
+        Storage storage = mock(Storage.class);
+        when(storage.getObject(eq(Device.class), any())).thenAnswer(invocation -> {
+            Request request = invocation.getArgument(1);
+            return createDevice((Long) ((Condition.Equals) request.getCondition()).getValue());
+        });
+        when(storage.getObjects(eq(Geofence.class), any())).thenReturn(List.of(geofence));
+
+        CacheManager cacheManager = new CacheManager(mock(Config.class), storage, mock(BroadcastService.class));
+        for (long id = 1; id <= count; id++) {
+            cacheManager.addDevice(id);
+        }
+
+        Calendar calendar = new Calendar();
+        calendar.setId(20);
+        when(storage.getObject(eq(Calendar.class), any())).thenReturn(calendar);
+
+        Geofence updated = new Geofence();
+        updated.setId(10);
+        updated.setCalendarId(20);
+        clearInvocations(storage);
+        cacheManager.updateOrInvalidate(false, updated);
+
+        assertTrue(mockingDetails(storage).getInvocations().size() <= 1);
+        for (long id = 1; id <= count; id++) {
+            assertEquals(20, cacheManager.getDeviceObjects(id, Calendar.class).get(0).getId());
+        }
+
+        List<Permission> permissions = new ArrayList<>();
+        for (long id = 2; id <= count; id++) {
+            permissions.add(new Permission(Device.class, id, Geofence.class, 10));
+        }
+        when(storage.getPermissions(Device.class, 0, Geofence.class, 10)).thenReturn(permissions);
+        clearInvocations(storage);
+        cacheManager.invalidatePermission(false, Device.class, 1, Geofence.class, 10);
+
+        assertTrue(mockingDetails(storage).getInvocations().size() <= 2);
+        assertTrue(cacheManager.getDeviceObjects(1, Geofence.class).isEmpty());
+        assertTrue(cacheManager.getDeviceObjects(1, Calendar.class).isEmpty());
+        assertEquals(1, cacheManager.getDeviceObjects(2, Geofence.class).size());
+    }
+
+    @Test
+    public void testBulkPermissions() throws Exception {
+        int count = 100;
+        Geofence geofence = new Geofence();
+        geofence.setId(10);
+
+        Storage storage = mock(Storage.class);
+        when(storage.getObject(eq(Device.class), any())).thenAnswer(invocation -> {
+            Request request = invocation.getArgument(1);
+            return createDevice((Long) ((Condition.Equals) request.getCondition()).getValue());
+        });
+        when(storage.getObject(eq(Geofence.class), any())).thenReturn(geofence);
+
+        BroadcastService broadcastService = mock(BroadcastService.class);
+        CacheManager cacheManager = new CacheManager(mock(Config.class), storage, broadcastService);
+        for (long id = 1; id <= count; id++) {
+            cacheManager.addDevice(id);
+        }
+
+        List<Permission> permissions = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            permissions.add(new Permission(Device.class, id, Geofence.class, 10));
+        }
+        when(storage.getPermissions(Device.class, 0, Geofence.class, 10)).thenReturn(permissions);
+        clearInvocations(storage);
+        cacheManager.invalidatePermissions(true, permissions);
+
+        verify(broadcastService, times(1)).invalidatePermissions(true, permissions);
+        assertTrue(mockingDetails(storage).getInvocations().size() <= 3);
+        for (long id = 1; id <= count; id++) {
+            assertEquals(1, cacheManager.getDeviceObjects(id, Geofence.class).size());
+        }
+    }
+
+    @Test
+    public void testRetention() throws Exception {
+        Storage storage = mock(Storage.class);
+        when(storage.getObject(eq(Device.class), any())).thenAnswer(invocation -> {
+            Request request = invocation.getArgument(1);
+            return createDevice((Long) ((Condition.Equals) request.getCondition()).getValue());
+        });
+
+        Config config = mock(Config.class);
+        when(config.getLong(Keys.DATABASE_CACHE_RETENTION)).thenReturn(60L);
+        when(config.getInteger(Keys.DATABASE_CACHE_RETENTION_SIZE)).thenReturn(1);
+        CacheManager cacheManager = new CacheManager(config, storage, mock(BroadcastService.class));
+
+        cacheManager.addDevice(1);
+        cacheManager.removeDevice(1);
+        assertNotNull(cacheManager.getObject(Device.class, 1));
+        assertEquals(1, cacheManager.getRetainedCount());
+        assertTrue(cacheManager.getRetainedMemory() > 0);
+
+        clearInvocations(storage);
+        cacheManager.addDevice(1);
+        assertEquals(0, mockingDetails(storage).getInvocations().size());
+        assertEquals(0, cacheManager.getRetainedMemory());
+        assertEquals(1, cacheManager.getHits());
+        assertEquals(1, cacheManager.getMisses());
+
+        cacheManager.removeDevice(1);
+        cacheManager.addDevice(2);
+        cacheManager.removeDevice(2);
+        assertNull(cacheManager.getObject(Device.class, 1));
+        assertNotNull(cacheManager.getObject(Device.class, 2));
+        assertEquals(1, cacheManager.getEvictions());
+    }
+
+}
@@ -0,0 +1,95 @@
+package org.traccar.session.cache;
+
+import org.junit.jupiter.api.Test;
+import org.traccar.config.Config;
+import org.traccar.model.Geofence;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class GeofenceIndexTest {
+
+    private static String coordinate(double latitude, double longitude) {
+        return latitude + " " + longitude;
+    }
+
+    private static Geofence createGeofence(Random random, long id) throws ParseException {
+        double latitude = 48 + random.nextDouble() * 4;
+        double longitude = 10 + random.nextDouble() * 4;
+        double size = 0.001 + random.nextDouble() * (random.nextInt(20) == 0 ? 1.0 : 0.05);
+        Geofence geofence = new Geofence();
+        geofence.setId(id);
+        switch (random.nextInt(3)) {
+            case 0:
+                geofence.setArea("CIRCLE (" + coordinate(latitude, longitude) + ", " + size * 100000 + ")");
+                break;
+            case 1:
+                geofence.setArea("POLYGON ((" + coordinate(latitude, longitude) + ", "
+                        + coordinate(latitude + size, longitude + size / 2) + ", "
+                        + coordinate(latitude, longitude + size) + ", "
+                        + coordinate(latitude - size / 3, longitude + size / 2) + "))");
+                break;
+            default:
+                geofence.setArea("LINESTRING (" + coordinate(latitude, longitude) + ", "
+                        + coordinate(latitude + size, longitude + size) + ", "
+                        + coordinate(latitude + size, longitude + 2 * size) + ")");
+                geofence.set("polylineDistance", 50 + random.nextInt(500));
+                break;
+        }
+        return geofence;
+    }
+
+    @Test
+    public void testSameResults() throws ParseException {
+        Config config = mock(Config.class);
+        Random random = new Random(1);
+        GeofenceIndex index = new GeofenceIndex(config);
+
+        List<Geofence> geofences = new ArrayList<>();
+        for (long id = 1; id <= 10000; id++) {
+            Geofence geofence = createGeofence(random, id);
+            geofences.add(geofence);
+            index.update(geofence);
+        }
+        for (int i = 0; i < 500; i++) {
+            index.remove(geofences.remove(random.nextInt(geofences.size())).getId());
+        }
+        assertEquals(geofences.size(), index.size());
+
+        int matches = 0;
+        for (int i = 0; i < 2000; i++) {
+            double latitude = 48 + random.nextDouble() * 4;
+            double longitude = 10 + random.nextDouble() * 4;
+
+            Set<Long> expected = new HashSet<>();
+            for (Geofence geofence : geofences) {
+                if (geofence.getGeometry().containsPoint(config, geofence, latitude, longitude)) {
+                    expected.add(geofence.getId());
+                }
+            }
+
+            Set<Long> candidates = index.find(latitude, longitude);
+            Set<Long> actual = new HashSet<>();
+            for (Geofence geofence : geofences) {
+                if (candidates.contains(geofence.getId())
+                        && geofence.getGeometry().containsPoint(config, geofence, latitude, longitude)) {
+                    actual.add(geofence.getId());
+                }
+            }
+
+            assertEquals(expected, actual);
+            assertTrue(candidates.size() < geofences.size() / 10);
+            matches += expected.size();
+        }
+        assertTrue(matches > 0);
+    }
+
+}
@@ -0,0 +1,82 @@
+package org.traccar.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.model.Event;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Condition;
+import org.traccar.storage.query.Order;
+import org.traccar.storage.query.Request;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DatabaseStorageTest {
+
+    private final Config config = mock(Config.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private JdbcDataSource dataSource;
+    private Storage storage;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        QueryBuilder.create(config, dataSource, objectMapper,
+                "CREATE TABLE tc_events (id INT AUTO_INCREMENT PRIMARY KEY, type VARCHAR(128), eventTime TIMESTAMP, "
+                + "deviceId INT, positionId INT, geofenceId INT, maintenanceId INT, "
+                + "attributes VARCHAR(4000))").executeUpdate();
+        storage = new DatabaseStorage(config, dataSource, objectMapper);
+    }
+
+    @Test
+    public void testBatchWrite() throws Exception {
+        List<Event> events = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            events.add(new Event(Event.TYPE_ALARM, i));
+        }
+
+        long[] ids = storage.addObjects(events, new Request(new Columns.Exclude("id")));
+        assertEquals(5, ids.length);
+        for (int i = 1; i < ids.length; i++) {
+            assertEquals(ids[i - 1] + 1, ids[i]);
+        }
+
+        List<Event> stored = storage.getObjects(Event.class, new Request(new Columns.All(), new Order("id")));
+        assertEquals(5, stored.size());
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(ids[i], stored.get(i).getId());
+            assertEquals(i + 1, stored.get(i).getDeviceId());
+        }
+    }
+
+    @Test
+    public void testStreamedQuery() throws Exception {
+        when(config.getInteger(Keys.DATABASE_FETCH_SIZE)).thenReturn(2);
+        storage = new DatabaseStorage(config, dataSource, objectMapper);
+
+        List<Event> events = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            events.add(new Event(Event.TYPE_ALARM, i));
+        }
+        storage.addObjects(events, new Request(new Columns.Exclude("id")));
+
+        try (Stream<Event> stream = storage.getObjectsStream(Event.class, new Request(
+                new Columns.All(), new Condition.Compare("deviceId", ">", "deviceId", 1L), new Order("deviceId")))) {
+            assertEquals(List.of(2L, 3L, 4L, 5L), stream.map(Event::getDeviceId).collect(Collectors.toList()));
+        }
+
+        assertEquals(5, storage.getObjects(Event.class, new Request(new Columns.All())).size());
+    }
+
+}
@@ -0,0 +1,128 @@
+package org.traccar.storage;
+
+import org.junit.jupiter.api.Test;
+import org.traccar.model.Device;
+import org.traccar.model.Group;
+import org.traccar.model.Permission;
+import org.traccar.model.Position;
+import org.traccar.model.User;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Condition;
+import org.traccar.storage.query.Order;
+import org.traccar.storage.query.Request;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MemoryStorageTest {
+
+    private static <T> long add(Storage storage, T object) throws StorageException {
+        return storage.addObject(object, new Request(new Columns.Exclude("id")));
+    }
+
+    private static Device createDevice(String uniqueId, long groupId) {
+        Device device = new Device();
+        device.setUniqueId(uniqueId);
+        device.setGroupId(groupId);
+        return device;
+    }
+
+    @Test
+    public void testUniqueIdIndex() throws StorageException {
+        Storage storage = new MemoryStorage();
+        Device device = createDevice("123", 0);
+        device.setId(add(storage, device));
+
+        Request request = new Request(new Columns.All(), new Condition.Equals("uniqueId", "123"));
+        assertEquals(device.getId(), storage.getObject(Device.class, request).getId());
+
+        Device update = new Device();
+        update.setUniqueId("456");
+        storage.updateObject(update, new Request(
+                new Columns.Include("uniqueId"), new Condition.Equals("id", device.getId())));
+
+        assertNull(storage.getObject(Device.class, request));
+        assertEquals(device.getId(), storage.getObject(Device.class, new Request(
+                new Columns.All(), new Condition.Equals("uniqueId", "456"))).getId());
+    }
+
+    @Test
+    public void testPositionRange() throws StorageException {
+        Storage storage = new MemoryStorage();
+        for (int i = 9; i >= 0; i--) {
+            for (long deviceId = 1; deviceId <= 2; deviceId++) {
+                Position position = new Position();
+                position.setDeviceId(deviceId);
+                position.setTime(new Date(i * 1000L));
+                position.setSpeed(i);
+                add(storage, position);
+            }
+        }
+
+        var positions = storage.getObjects(Position.class, new Request(
+                new Columns.All(),
+                new Condition.And(
+                        new Condition.Equals("deviceId", 1L),
+                        new Condition.Between("fixTime", "from", new Date(2000), "to", new Date(5000))),
+                new Order("fixTime")));
+        assertEquals(List.of(2.0, 3.0, 4.0, 5.0), positions.stream().map(Position::getSpeed).collect(Collectors.toList()));
+        assertTrue(positions.stream().allMatch(position -> position.getDeviceId() == 1));
+
+        var inverted = storage.getObjects(Position.class, new Request(
+                new Columns.All(),
+                new Condition.And(
+                        new Condition.Equals("deviceId", 1L),
+                        new Condition.Between("fixTime", "from", new Date(5000), "to", new Date(2000)))));
+        assertTrue(inverted.isEmpty());
+
+        var latest = storage.getObjects(Position.class, new Request(
+                new Columns.All(), new Condition.Equals("deviceId", 2L), new Order("fixTime", true, 2)));
+        assertEquals(List.of(9.0, 8.0), latest.stream().map(Position::getSpeed).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testGroupPermissions() throws StorageException {
+        Storage storage = new MemoryStorage();
+        long userId = add(storage, new User());
+
+        Group parent = new Group();
+        long parentId = add(storage, parent);
+        Group child = new Group();
+        child.setGroupId(parentId);
+        long childId = add(storage, child);
+
+        Device direct = createDevice("1", 0);
+        long directId = add(storage, direct);
+        assertEquals(directId, direct.getId());
+        long nestedId = add(storage, createDevice("2", childId));
+        add(storage, createDevice("3", 0));
+
+        storage.addPermission(new Permission(User.class, userId, Device.class, directId));
+        storage.addPermission(new Permission(User.class, userId, Group.class, parentId));
+
+        var devices = storage.getObjects(Device.class, new Request(
+                new Columns.All(), new Condition.Permission(User.class, userId, Device.class)));
+        assertEquals(Set.of("1", "2"), devices.stream().map(Device::getUniqueId).collect(Collectors.toSet()));
+
+        var users = storage.getObjects(User.class, new Request(
+                new Columns.All(), new Condition.Permission(User.class, Device.class, nestedId)));
+        assertEquals(1, users.size());
+
+        var excluded = storage.getObjects(Device.class, new Request(
+                new Columns.All(), new Condition.Permission(User.class, userId, Device.class).excludeGroups()));
+        assertEquals(1, excluded.size());
+
+        storage.removeObject(Device.class, new Request(new Condition.Equals("id", directId)));
+        assertNull(storage.getObject(Device.class, new Request(
+                new Columns.All(), new Condition.Equals("id", directId))));
+        assertTrue(storage.getPermissions(User.class, Device.class).isEmpty());
+        assertEquals(1, storage.getPermissions(User.class, userId, Group.class, 0).size());
+    }
+
+}
@@ -0,0 +1,76 @@
+package org.traccar.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.traccar.config.Config;
+import org.traccar.model.Device;
+import org.traccar.storage.query.Columns;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class QueryBuilderTest {
+
+    private final Config config = mock(Config.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private JdbcDataSource dataSource;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        QueryBuilder.create(config, dataSource, objectMapper,
+                "CREATE TABLE tc_devices (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(128), "
+                + "uniqueId VARCHAR(128), lastUpdate TIMESTAMP, disabled BOOLEAN, calendarId INT, "
+                + "attributes VARCHAR(4000))").executeUpdate();
+    }
+
+    @Test
+    public void testColumns() {
+        List<String> columns = new Columns.All().getColumns(Device.class, "get");
+        assertTrue(columns.contains("uniqueId"));
+        assertFalse(columns.contains("class"));
+        assertTrue(new Columns.All().getColumns(Device.class, "set").contains("lastUpdate"));
+        assertFalse(new Columns.Exclude("id").getColumns(Device.class, "get").contains("id"));
+    }
+
+    @Test
+    public void testObjectMapping() throws Exception {
+        Device device = new Device();
+        device.setName("test");
+        device.setUniqueId("123456789012345");
+        device.setLastUpdate(new Date(1000000));
+        device.setDisabled(true);
+        device.set("key", "value");
+
+        List<String> columns = List.of("name", "uniqueId", "lastUpdate", "disabled", "calendarId", "attributes");
+        long id = QueryBuilder.create(config, dataSource, objectMapper,
+                "INSERT INTO tc_devices (name, uniqueId, lastUpdate, disabled, calendarId, attributes) "
+                + "VALUES (:name, :uniqueId, :lastUpdate, :disabled, :calendarId, :attributes)", true)
+                .setObject(device, columns)
+                .executeUpdate();
+
+        List<Device> devices = QueryBuilder.create(config, dataSource, objectMapper,
+                "SELECT * FROM tc_devices").executeQuery(Device.class);
+
+        assertEquals(1, devices.size());
+        Device result = devices.get(0);
+        assertEquals(id, result.getId());
+        assertEquals("test", result.getName());
+        assertEquals("123456789012345", result.getUniqueId());
+        assertEquals(1000000, result.getLastUpdate().getTime());
+        assertTrue(result.getDisabled());
+        assertEquals(0, result.getCalendarId());
+        assertEquals("value", result.getString("key"));
+        assertNull(result.getPhone());
+    }
+
+}